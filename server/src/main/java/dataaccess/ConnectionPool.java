@@ -0,0 +1,399 @@
+package dataaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of JDBC connections
+ * <p>
+ * Connections handed out by {@link #borrow()} are proxies: closing one puts
+ * the underlying connection back in the pool instead of closing it, so code
+ * written for short-lived connections in try-with-resources blocks works
+ * unchanged. Idle connections are checked with {@link Connection#isValid}
+ * before being handed out, idle connections above the minimum size are closed
+ * after a while, and connections held for too long are reported as leaks.
+ * <p>
+ * Each connection also keeps a {@link StatementCache}, so borrowers that
+ * prepare the same SQL reuse the statement instead of preparing it again.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String catalog;
+    private final Settings settings;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition returned = lock.newCondition();
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private int total;
+    private boolean closed;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    /**
+     * Pool sizing and timing
+     *
+     * @param minSize idle connections are not evicted below this many connections
+     * @param maxSize most connections open at once
+     * @param maxIdleMillis idle time after which a connection above the minimum is closed
+     * @param borrowTimeoutMillis longest time to wait for a connection when all are in use
+     * @param leakThresholdMillis time a connection may be held before it is reported as a leak
+     * @param statementCacheSize prepared statements cached per connection; 0 disables caching
+     */
+    public record Settings(int minSize, int maxSize, long maxIdleMillis, long borrowTimeoutMillis,
+                           long leakThresholdMillis, int statementCacheSize) {
+    }
+
+    /**
+     * Snapshot of the pool's counters
+     *
+     * @param active connections currently borrowed
+     * @param idle connections waiting in the pool
+     * @param borrows total successful borrows
+     * @param averageWaitMicros average time a borrow waited for a connection
+     * @param maxWaitMicros longest time a borrow waited for a connection
+     * @param timeouts borrows that gave up waiting
+     * @param created connections opened
+     * @param evicted connections closed for being idle or failing validation
+     * @param leaks connections reported as held too long
+     * @param statementHits prepared statements served from a connection's cache
+     * @param statementMisses prepared statements that had to be prepared
+     */
+    public record Stats(int active, int idle, long borrows, long averageWaitMicros, long maxWaitMicros,
+                        long timeouts, long created, long evicted, long leaks, long statementHits,
+                        long statementMisses) {
+    }
+
+    private record Pooled(Connection connection, StatementCache statements) {
+    }
+
+    private record Idle(Pooled pooled, long since) {
+    }
+
+    public ConnectionPool(String url, String username, String password, String catalog, Settings settings) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.catalog = catalog;
+        this.settings = settings;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(settings.maxIdleMillis(), settings.leakThresholdMillis()) / 2);
+        housekeeper.scheduleAtFixedRate(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting if all connections are in use. Close the
+     * returned connection to give it back to the pool.
+     *
+     * @return a pooled connection with the catalog already set
+     * @throws DataAccessException if no connection became available in time or
+     *                             a new connection could not be opened
+     */
+    public Connection borrow() throws DataAccessException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.borrowTimeoutMillis());
+        while (true) {
+            Pooled pooled = null;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (idle.isEmpty() && total >= settings.maxSize() && !closed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        throw new DataAccessException("timed out waiting for a database connection");
+                    }
+                    returned.awaitNanos(remaining);
+                }
+                if (closed) {
+                    throw new DataAccessException("connection pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    pooled = idle.pollFirst().pooled();
+                } else {
+                    total++;
+                    create = true;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessException("interrupted waiting for a database connection", ex);
+            } finally {
+                lock.unlock();
+            }
+
+            // Opening and validating connections happens outside the lock
+            if (create) {
+                pooled = open();
+            } else if (!isValid(pooled.connection())) {
+                discard(pooled.connection());
+                continue;
+            }
+            recordWait(System.nanoTime() - start);
+            return lease(pooled);
+        }
+    }
+
+    /**
+     * @return a snapshot of the pool's counters
+     */
+    public Stats stats() {
+        lock.lock();
+        try {
+            long count = borrows.get();
+            return new Stats(leases.size(), idle.size(), count,
+                    count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.get() / count),
+                    TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()), timeouts.get(), created.get(),
+                    evicted.get(), leaks.get(), statementHits.get(), statementMisses.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones. Borrowed
+     * connections are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        housekeeper.shutdownNow();
+        lock.lock();
+        try {
+            closed = true;
+            while (!idle.isEmpty()) {
+                closeQuietly(idle.pollFirst().pooled().connection());
+                total--;
+            }
+            returned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Pooled open() throws DataAccessException {
+        Connection connection = null;
+        try {
+            connection = DriverManager.getConnection(url, username, password);
+            connection.setCatalog(catalog);
+            created.incrementAndGet();
+            return new Pooled(connection, new StatementCache(connection, settings.statementCacheSize(),
+                    statementHits, statementMisses));
+        } catch (SQLException ex) {
+            // Connected but could not be set up, such as when the catalog is missing
+            if (connection != null) {
+                closeQuietly(connection);
+            }
+            lock.lock();
+            try {
+                total--;
+                returned.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw new DataAccessException("failed to get connection", ex);
+        }
+    }
+
+    private Connection lease(Pooled pooled) {
+        Lease lease = new Lease(pooled);
+        leases.add(lease);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, lease);
+    }
+
+    /**
+     * Takes a connection back from a lease, resetting any state the borrower
+     * left behind
+     */
+    private void giveBack(Lease lease) {
+        leases.remove(lease);
+        Connection connection = lease.pooled.connection();
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            discard(connection);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                total--;
+                closeQuietly(connection);
+            } else {
+                idle.addFirst(new Idle(lease.pooled, System.currentTimeMillis()));
+                returned.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard(Connection connection) {
+        evicted.incrementAndGet();
+        closeQuietly(connection);
+        lock.lock();
+        try {
+            total--;
+            returned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes connections that have sat idle too long, oldest first, and
+     * reports connections that have been borrowed for too long. Runs on the
+     * housekeeper's schedule.
+     */
+    void housekeeping() {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            while (total > settings.minSize() && !idle.isEmpty()
+                    && now - idle.peekLast().since() > settings.maxIdleMillis()) {
+                closeQuietly(idle.pollLast().pooled().connection());
+                total--;
+                evicted.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (Lease lease : leases) {
+            if (!lease.reported && now - lease.borrowedAt > settings.leakThresholdMillis()) {
+                lease.reported = true;
+                leaks.incrementAndGet();
+                LOG.warn("Database connection held for over {} ms", settings.leakThresholdMillis(), lease.borrower);
+            }
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrows.incrementAndGet();
+        waitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection: forwards calls to the real connection
+     * until the borrower closes it
+     */
+    private class Lease implements InvocationHandler {
+        private final Pooled pooled;
+        private final Connection connection;
+        private final long borrowedAt = System.currentTimeMillis();
+        // Where the connection was borrowed, logged if it leaks
+        private final Exception borrower = new Exception("Connection borrowed here");
+        private volatile boolean reported;
+        private boolean released;
+
+        Lease(Pooled pooled) {
+            this.pooled = pooled;
+            this.connection = pooled.connection();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!released) {
+                        released = true;
+                        giveBack(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return released || connection.isClosed();
+                }
+                case "prepareStatement" -> {
+                    if (released) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    if (args.length == 1) {
+                        return pooled.statements().prepare((String) args[0], (Connection) proxy);
+                    }
+                    return invokeOn(connection, method, args);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + connection;
+                }
+                default -> {
+                    if (released) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    return invokeOn(connection, method, args);
+                }
+            }
+        }
+    }
+
+    static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package dataaccess;
+
+import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class DatabaseManager {
+    private static String databaseName;
+    private static String dbUsername;
+    private static String dbPassword;
+    private static String connectionUrl;
+    private static boolean poolEnabled;
+    private static ConnectionPool.Settings poolSettings;
+    private static volatile ConnectionPool pool;
+    // A lock rather than synchronized, which would pin virtual threads while the pool is created
+    private static final ReentrantLock POOL_LOCK = new ReentrantLock();
+    private static MoveWriter.Settings moveWriterSettings;
+    private static GameCache.Settings gameCacheSettings;
+
+    /*
+     * Load the database information for the db.properties file.
+     */
+    static {
+        loadPropertiesFromResources();
+    }
+
+    /**
+     * Creates the database if it does not already exist.
+     * <p>
+     * This runs once at startup, before the database exists, so it uses its own
+     * connection without a catalog instead of one from the pool.
+     */
+    static public void createDatabase() throws DataAccessException {
+        var statement = "CREATE DATABASE IF NOT EXISTS " + databaseName;
+        try (var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create database", ex);
+        }
+    }
+
+    /**
+     * Gets a connection to the database with the catalog set based upon the
+     * properties specified in db.properties. Connections come from a pool
+     * (unless db.pool.enabled is false) and must be closed when you are done
+     * with them, which returns them to the pool. The easiest way to do that is
+     * with a try-with-resource block.
+     * <br/>
+     * <code>
+     * try (var conn = DatabaseManager.getConnection()) {
+     * // execute SQL statements.
+     * }
+     * </code>
+     */
+    static Connection getConnection() throws DataAccessException {
+        if (poolEnabled) {
+            return getPool().borrow();
+        }
+        try {
+            //do not wrap the following line with a try-with-resources
+            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+            conn.setCatalog(databaseName);
+            return conn;
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to get connection", ex);
+        }
+    }
+
+    /**
+     * Checks that the database can be reached, using a pooled connection when
+     * pooling is enabled
+     *
+     * @throws DataAccessException if no working connection could be had
+     */
+    public static void checkConnection() throws DataAccessException {
+        try (var conn = getConnection()) {
+            if (!conn.isValid(2)) {
+                throw new DataAccessException("database connection is not valid");
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to check connection", ex);
+        }
+    }
+
+    /**
+     * @return counters for the connection pool, or null if pooling is disabled
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return poolEnabled ? getPool().stats() : null;
+    }
+
+    /**
+     * Closes the connection pool, if one was created.
+     */
+    public static void closePool() {
+        POOL_LOCK.lock();
+        try {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        } finally {
+            POOL_LOCK.unlock();
+        }
+    }
+
+    /**
+     * @return how a {@link MoveWriter} should write moves, from the db.moves.* properties
+     */
+    public static MoveWriter.Settings getMoveWriterSettings() {
+        return moveWriterSettings;
+    }
+
+    /**
+     * @return how big a {@link GameCache} may grow, from the db.cache.* properties
+     */
+    public static GameCache.Settings getGameCacheSettings() {
+        return gameCacheSettings;
+    }
+
+    // The pool is created on first use so createDatabase can run before it
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            return current;
+        }
+        POOL_LOCK.lock();
+        try {
+            if (pool == null) {
+                // Server-side prepares let the statement cache skip parsing and planning on MySQL too,
+                // and rewritten batches send a batch of inserts as one multi-row statement
+                pool = new ConnectionPool(connectionUrl + "?useServerPrepStmts=true&rewriteBatchedStatements=true",
+                        dbUsername, dbPassword, databaseName, poolSettings);
+            }
+            return pool;
+        } finally {
+            POOL_LOCK.unlock();
+        }
+    }
+
+    private static void loadPropertiesFromResources() {
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
+            if (propStream == null) {
+                throw new Exception("Unable to load db.properties");
+            }
+            Properties props = new Properties();
+            props.load(propStream);
+            loadProperties(props);
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process db.properties", ex);
+        }
+    }
+
+    private static void loadProperties(Properties props) {
+        databaseName = props.getProperty("db.name");
+        dbUsername = props.getProperty("db.user");
+        dbPassword = props.getProperty("db.password");
+
+        var host = props.getProperty("db.host");
+        var port = Integer.parseInt(props.getProperty("db.port"));
+        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+
+        poolEnabled = Boolean.parseBoolean(props.getProperty("db.pool.enabled", "true"));
+        poolSettings = new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.minSize", "2")),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(props.getProperty("db.pool.maxIdleMillis", "300000")),
+                Long.parseLong(props.getProperty("db.pool.borrowTimeoutMillis", "5000")),
+                Long.parseLong(props.getProperty("db.pool.leakThresholdMillis", "30000")),
+                Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "32")));
+
+        moveWriterSettings = new MoveWriter.Settings(
+                MoveWriter.Durability.valueOf(props.getProperty("db.moves.durability", "async").toUpperCase()),
+                Integer.parseInt(props.getProperty("db.moves.batchSize", "100")),
+                Long.parseLong(props.getProperty("db.moves.flushIntervalMillis", "50")),
+                Long.parseLong(props.getProperty("db.moves.maxLagMillis", "1000")),
+                Integer.parseInt(props.getProperty("db.moves.maxRetries", "5")));
+
+        gameCacheSettings = new GameCache.Settings(
+                Integer.parseInt(props.getProperty("db.cache.maxGames", "1000")),
+                Long.parseLong(props.getProperty("db.cache.maxIdleMillis", "600000")),
+                Integer.parseInt(props.getProperty("db.cache.recentMoves", "32")));
+    }
+}
@@ -0,0 +1,461 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.LegalMoves;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of live games by gameID, in front of the move log
+ * <p>
+ * A game is loaded from the {@link MySqlMoveLog} the first time it is asked
+ * for and then served from memory. Moves are applied to the cached game and
+ * handed to a {@link MoveWriter}, so whether they are written through or
+ * behind depends on the writer's durability. A game the writer dropped moves
+ * of is reloaded from the log the next time it is asked for, so the cache
+ * never serves a position the log cannot reproduce. The least recently used
+ * game is evicted when the cache is full, and games nobody has touched for a
+ * while are expired by a background sweep.
+ * <p>
+ * Each cached position keeps its {@link LegalMoves}, worked out once when the
+ * position is first asked about, so checking a move is a mask lookup rather
+ * than generating every move for the piece again. It also remembers the
+ * idempotency keys of the last few moves made, so a client retrying a move
+ * can be told it already happened instead of having it checked again.
+ */
+public class GameCache implements AutoCloseable {
+
+    private final MySqlMoveLog log;
+    private final MoveWriter writer;
+    private final Settings settings;
+
+    // Guards the map and its access order; each entry has its own lock for the game itself
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * @param maxGames most games kept in memory
+     * @param maxIdleMillis time after which a game nobody has touched is dropped
+     * @param recentMoves idempotency keys remembered per game
+     */
+    public record Settings(int maxGames, long maxIdleMillis, int recentMoves) {
+    }
+
+    /**
+     * Snapshot of the cache's counters
+     *
+     * @param size games currently cached
+     * @param hits lookups served from memory
+     * @param misses lookups that had to load the game
+     * @param evictions games dropped to make room
+     * @param expirations games dropped for being idle
+     */
+    public record Stats(int size, long hits, long misses, long evictions, long expirations) {
+
+        /**
+         * @return fraction of lookups served from memory
+         */
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    /**
+     * A game's position and how many moves have been made in it
+     *
+     * @param game copy of the position
+     * @param ply moves made so far; goes up by one with each move, so clients
+     *            can tell whether they missed one
+     * @param legalMoves the moves the side to move can make
+     */
+    public record Position(ChessGame game, int ply, LegalMoves legalMoves) {
+    }
+
+    /**
+     * A move made earlier under an idempotency key
+     *
+     * @param username who made it
+     * @param ply the move's ply
+     * @param move the move
+     */
+    public record AppliedMove(String username, int ply, ChessMove move) {
+    }
+
+    private static class Entry {
+        private final ReentrantLock lock = new ReentrantLock();
+        private RecentMoves recent;
+        private ChessGame game;
+        private int plies;
+        // Legal moves in the current position; null until someone needs them
+        private LegalMoves legal;
+        // Read without the lock to decide whether to wait for the writer first
+        private volatile boolean loaded;
+        // Set once the entry leaves the map; whoever holds it has to look the game up again
+        private boolean retired;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Entry(int recentMoves) {
+            recent = new RecentMoves(recentMoves);
+        }
+    }
+
+    public GameCache(MySqlMoveLog log, MoveWriter writer, Settings settings) {
+        this.log = log;
+        this.writer = writer;
+        this.settings = settings;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-cache-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, settings.maxIdleMillis() / 2);
+        housekeeper.scheduleAtFixedRate(this::expireIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a new game and caches it
+     *
+     * @param gameID game to start
+     * @param game starting position
+     * @throws DataAccessException if the game could not be written
+     */
+    public void create(int gameID, ChessGame game) throws DataAccessException {
+        log.create(gameID, game);
+        while (true) {
+            Entry entry = entry(gameID, false);
+            entry.lock.lock();
+            try {
+                if (entry.retired) {
+                    continue;
+                }
+                entry.game = new ChessGame(game);
+                entry.plies = 0;
+                entry.legal = null;
+                entry.loaded = true;
+                return;
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param gameID game to get
+     * @return a copy of the game's current position, or null if there is no such game
+     * @throws DataAccessException if the game was not cached and could not be loaded
+     */
+    public ChessGame get(int gameID) throws DataAccessException {
+        Position position = position(gameID);
+        return position == null ? null : position.game();
+    }
+
+    /**
+     * @param gameID game to get
+     * @return a copy of the game's current position with its ply, or null if there is no such game
+     * @throws DataAccessException if the game was not cached and could not be loaded
+     */
+    public Position position(int gameID) throws DataAccessException {
+        while (true) {
+            Entry entry = entry(gameID, true);
+            awaitWriter(gameID, entry);
+            entry.lock.lock();
+            try {
+                if (entry.retired) {
+                    continue;
+                }
+                if (!load(gameID, entry)) {
+                    return null;
+                }
+                return new Position(new ChessGame(entry.game), entry.plies, legalMoves(entry));
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Looks up a move already made under an idempotency key. Games that are not
+     * cached are not loaded, since their keys are gone anyway.
+     *
+     * @param gameID game to look in
+     * @param key idempotency key the move was made with
+     * @return the move, or null if the key is not among the game's recent moves
+     */
+    public AppliedMove applied(int gameID, String key) {
+        lock.lock();
+        Entry entry;
+        try {
+            entry = entries.get(gameID);
+        } finally {
+            lock.unlock();
+        }
+        if (entry == null) {
+            return null;
+        }
+        entry.lock.lock();
+        try {
+            return entry.retired ? null : entry.recent.get(key);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a move in a game and saves it through the move writer
+     *
+     * @param gameID game to move in
+     * @param move move to make
+     * @param color side making the move, checked against the side to move
+     *              under the same lock the move is made with
+     * @param username who is making the move
+     * @param key idempotency key to remember the move by, or null
+     * @return a copy of the position after the move, with the move's ply
+     * @throws InvalidMoveException if it is not the side's turn or the move is not legal
+     * @throws DataAccessException if there is no such game, or the move could
+     *                             not be saved; the game is dropped from the
+     *                             cache in that case so it is reloaded as saved
+     */
+    public Position makeMove(int gameID, ChessMove move, ChessGame.TeamColor color, String username, String key)
+            throws InvalidMoveException, DataAccessException {
+        while (true) {
+            Entry entry = entry(gameID, true);
+            awaitWriter(gameID, entry);
+            entry.lock.lock();
+            try {
+                if (entry.retired) {
+                    continue;
+                }
+                if (!load(gameID, entry)) {
+                    throw new DataAccessException("no game with ID " + gameID);
+                }
+                if (entry.game.getTeamTurn() != color) {
+                    throw new InvalidMoveException("it is not your turn");
+                }
+                if (!legalMoves(entry).contains(move)) {
+                    throw new InvalidMoveException();
+                }
+                entry.game.makeLegalMove(move);
+                entry.plies++;
+                entry.legal = null;
+                try {
+                    writer.append(gameID, entry.plies, move, entry.game);
+                } catch (DataAccessException ex) {
+                    remove(gameID, entry);
+                    throw ex;
+                }
+                if (key != null) {
+                    entry.recent.put(key, new AppliedMove(username, entry.plies, move));
+                }
+                return new Position(new ChessGame(entry.game), entry.plies, legalMoves(entry));
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drops a game from the cache so its next lookup reloads it
+     *
+     * @param gameID game to drop
+     */
+    public void invalidate(int gameID) {
+        lock.lock();
+        Entry entry;
+        try {
+            entry = entries.get(gameID);
+        } finally {
+            lock.unlock();
+        }
+        if (entry != null) {
+            entry.lock.lock();
+            try {
+                remove(gameID, entry);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the cache's counters
+     */
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(entries.size(), hits.get(), misses.get(), evictions.get(), expirations.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the idle sweep. Saving queued moves is up to the move writer.
+     */
+    @Override
+    public void close() {
+        housekeeper.shutdownNow();
+    }
+
+    /**
+     * Finds or adds the entry for a game and marks it as used, evicting the
+     * least recently used games if that makes the cache too big
+     *
+     * @param lookup whether to count this as a hit or miss
+     */
+    private Entry entry(int gameID, boolean lookup) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(gameID);
+            if (lookup) {
+                (entry != null ? hits : misses).incrementAndGet();
+            }
+            if (entry == null) {
+                entry = new Entry(settings.recentMoves());
+                entries.put(gameID, entry);
+                evictOverflow(entry);
+            }
+            entry.lastAccess = System.currentTimeMillis();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits, before taking the entry's lock, for the game's moves still queued
+     * in the writer if the entry is about to be loaded, so the log is up to
+     * date and nobody else waiting on the entry is held up meanwhile. No new
+     * moves can be queued for the game until it is loaded again.
+     */
+    private void awaitWriter(int gameID, Entry entry) throws DataAccessException {
+        if (!entry.loaded) {
+            writer.awaitWritten(gameID);
+        }
+    }
+
+    /**
+     * Loads a game into its entry if it is not loaded yet, or again if the
+     * writer dropped some of its moves. The caller has already waited for the
+     * game's queued moves; a lost game has none left queued.
+     *
+     * @return whether the game exists
+     */
+    private boolean load(int gameID, Entry entry) throws DataAccessException {
+        if (entry.loaded && !writer.lost(gameID)) {
+            return true;
+        }
+        if (entry.loaded) {
+            // Moves made under these keys may be among those lost
+            entry.recent = new RecentMoves(settings.recentMoves());
+        }
+        writer.reloading(gameID);
+        MySqlMoveLog.Loaded loaded;
+        try {
+            loaded = log.load(gameID);
+        } catch (DataAccessException ex) {
+            remove(gameID, entry);
+            throw ex;
+        }
+        if (loaded == null) {
+            remove(gameID, entry);
+            return false;
+        }
+        entry.game = loaded.game();
+        entry.plies = loaded.plies();
+        entry.legal = null;
+        entry.loaded = true;
+        return true;
+    }
+
+    /**
+     * Works out the legal moves for an entry's position if nobody has yet.
+     * The caller holds the entry's lock.
+     */
+    private static LegalMoves legalMoves(Entry entry) {
+        if (entry.legal == null) {
+            entry.legal = LegalMoves.of(entry.game);
+        }
+        return entry.legal;
+    }
+
+    /**
+     * Takes an entry out of the map. The caller holds the entry's lock.
+     */
+    private void remove(int gameID, Entry entry) {
+        entry.retired = true;
+        lock.lock();
+        try {
+            entries.remove(gameID, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts least recently used games until the cache fits, skipping games
+     * that are in use. The caller holds the map lock.
+     *
+     * @param added entry just added, which is never evicted
+     */
+    private void evictOverflow(Entry added) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > settings.maxGames() && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry != added && retireIfIdle(entry, 0)) {
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Retires games nobody has used for the max idle time. Runs on the
+     * housekeeper's schedule.
+     */
+    void expireIdle() {
+        lock.lock();
+        try {
+            long cutoff = System.currentTimeMillis() - settings.maxIdleMillis();
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (retireIfIdle(iterator.next(), cutoff)) {
+                    iterator.remove();
+                    expirations.incrementAndGet();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retires an entry unless someone is using it or it was used after the cutoff
+     */
+    private static boolean retireIfIdle(Entry entry, long cutoff) {
+        if (cutoff > 0 && entry.lastAccess > cutoff || !entry.lock.tryLock()) {
+            return false;
+        }
+        try {
+            entry.retired = true;
+            return true;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind stage in front of a {@link MySqlMoveLog}
+ * <p>
+ * Moves are queued and written by a background thread that appends a whole
+ * batch of them, from any number of games, in one transaction. How long a
+ * caller waits depends on the {@link Durability}. However writes are made,
+ * a move never sits in the queue longer than the max lag: once the oldest
+ * queued move is that old, new moves wait until the writer catches up.
+ * <p>
+ * A batch that fails is written again one game at a time, so a bad row only
+ * affects its own game. Group commit callers in that game get the error. An
+ * {@link Durability#ASYNC} game's moves are retried a few times and then
+ * dropped, as they are at once for a failure retrying cannot fix, such as a
+ * constraint violation, so one bad game cannot hold up every move behind it.
+ * A game whose moves were dropped is {@link #lost} until it is reloaded from
+ * the log, and moves for it are refused meanwhile, so its log never has a gap.
+ */
+public class MoveWriter implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MoveWriter.class);
+
+    private final MySqlMoveLog log;
+    private final Settings settings;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    // Sequence of each game's latest move that is not written yet
+    private final Map<Integer, Long> lastQueued = new HashMap<>();
+    // Games whose moves were dropped; read without the lock
+    private final Set<Integer> lost = ConcurrentHashMap.newKeySet();
+    private long queuedThrough;
+    private long writtenThrough;
+    // Highest sequence someone is waiting on; the writer flushes up to it without waiting for a full batch
+    private long wantedThrough;
+    private boolean closed;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong movesWritten = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * When a move counts as saved
+     */
+    public enum Durability {
+        /**
+         * Written on the caller's thread before {@link #append} returns
+         */
+        SYNC,
+        /**
+         * Group commit: written by the background writer together with
+         * whatever else is queued, and {@link #append} waits for the commit
+         */
+        BATCHED,
+        /**
+         * Written by the background writer once a batch fills up or the
+         * flush interval passes; {@link #append} returns right away. The
+         * default, since the max lag bounds how far behind the log can fall
+         * and a move is broadcast without waiting on the database.
+         */
+        ASYNC
+    }
+
+    /**
+     * @param durability when a move counts as saved
+     * @param batchSize most moves written in one transaction
+     * @param flushIntervalMillis longest an {@link Durability#ASYNC} move waits for its batch to fill
+     * @param maxLagMillis age of the oldest queued move at which new moves wait for the writer
+     * @param maxRetries times a game's failed {@link Durability#ASYNC} moves are retried before they are dropped
+     */
+    public record Settings(Durability durability, int batchSize, long flushIntervalMillis, long maxLagMillis,
+                           int maxRetries) {
+    }
+
+    /**
+     * Snapshot of the writer's counters
+     *
+     * @param queueDepth moves waiting to be written
+     * @param lagMillis age of the oldest queued move
+     * @param flushes batches committed
+     * @param movesWritten moves committed
+     * @param averageFlushMicros average time to write and commit a batch
+     * @param maxFlushMicros longest time to write and commit a batch
+     * @param failures transactions that failed to commit, counting each attempt
+     * @param dropped asynchronous moves given up on after failing, with the later moves of their games
+     */
+    public record Stats(int queueDepth, long lagMillis, long flushes, long movesWritten, long averageFlushMicros,
+                        long maxFlushMicros, long failures, long dropped) {
+    }
+
+    /**
+     * @param attempts times the move has already failed to be written
+     */
+    private record Pending(long sequence, MySqlMoveLog.Append append, long queuedAt,
+                           CompletableFuture<Void> written, int attempts) {
+    }
+
+    public MoveWriter(MySqlMoveLog log, Settings settings) {
+        this.log = log;
+        this.settings = settings;
+        writer = new Thread(this::run, "move-writer");
+        writer.setDaemon(true);
+        if (settings.durability() != Durability.SYNC) {
+            writer.start();
+        }
+    }
+
+    /**
+     * Saves a move. The position is copied when it will be snapshotted, so
+     * the caller can keep playing on {@code after} right away.
+     *
+     * @param gameID game the move was made in
+     * @param ply number of the move in the game, starting at 1
+     * @param move move that was made
+     * @param after position after the move
+     * @throws DataAccessException in {@link Durability#SYNC} and {@link Durability#BATCHED}
+     *                             modes if the move could not be written, and
+     *                             in any mode if the game is {@link #lost}
+     */
+    public void append(int gameID, int ply, ChessMove move, ChessGame after) throws DataAccessException {
+        var append = new MySqlMoveLog.Append(gameID, ply, move, log.snapshotDue(ply) ? new ChessGame(after) : null);
+        if (settings.durability() == Durability.SYNC) {
+            long start = System.nanoTime();
+            try {
+                log.appendAll(List.of(append));
+            } catch (DataAccessException ex) {
+                failures.incrementAndGet();
+                throw ex;
+            }
+            recordFlush(1, System.nanoTime() - start);
+            return;
+        }
+
+        var written = settings.durability() == Durability.BATCHED ? new CompletableFuture<Void>() : null;
+        lock.lock();
+        try {
+            awaitLag();
+            if (closed) {
+                throw new DataAccessException("move writer is closed");
+            }
+            if (lost.contains(gameID)) {
+                throw new DataAccessException("earlier moves of game " + gameID + " were not saved; reload it");
+            }
+            queue.addLast(new Pending(++queuedThrough, append, System.nanoTime(), written, 0));
+            lastQueued.put(gameID, queuedThrough);
+            if (written != null || queue.size() >= settings.batchSize()) {
+                queued.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (written != null) {
+            try {
+                written.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessException("interrupted waiting for move to be written", ex);
+            } catch (ExecutionException ex) {
+                throw new DataAccessException("failed to write move " + ply + " of game " + gameID, ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Waits until every move queued before this call has been written, or
+     * has failed in {@link Durability#BATCHED} mode. Read the move log after
+     * this to see moves still sitting in the queue.
+     *
+     * @throws DataAccessException if interrupted while waiting
+     */
+    public void drain() throws DataAccessException {
+        lock.lock();
+        try {
+            awaitWrittenThrough(queuedThrough);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every move of one game queued before this call has been
+     * written, or has failed or been dropped. Moves of other games queued
+     * later are not waited for.
+     *
+     * @param gameID game whose moves to wait for
+     * @throws DataAccessException if interrupted while waiting
+     */
+    public void awaitWritten(int gameID) throws DataAccessException {
+        lock.lock();
+        try {
+            Long target = lastQueued.get(gameID);
+            if (target != null) {
+                awaitWrittenThrough(target);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param gameID game to check
+     * @return whether moves of the game were dropped since it was last
+     *         reloaded, so a copy made by playing them is ahead of the log
+     */
+    public boolean lost(int gameID) {
+        return lost.contains(gameID);
+    }
+
+    /**
+     * Takes moves for a lost game again. Call it just before reloading the
+     * game from the log.
+     *
+     * @param gameID game being reloaded
+     */
+    public void reloading(int gameID) {
+        lost.remove(gameID);
+    }
+
+    /**
+     * @return a snapshot of the writer's counters
+     */
+    public Stats stats() {
+        lock.lock();
+        try {
+            long count = flushes.get();
+            long lag = queue.isEmpty() ? 0 : System.nanoTime() - queue.peekFirst().queuedAt();
+            return new Stats(queue.size(), TimeUnit.NANOSECONDS.toMillis(lag), count, movesWritten.get(),
+                    count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(flushNanos.get() / count),
+                    TimeUnit.NANOSECONDS.toMicros(maxFlushNanos.get()), failures.get(), dropped.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes whatever is still queued and stops the background writer
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queued.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits, holding the lock, until every move up to a sequence is written,
+     * asking the writer to flush them without waiting for a full batch
+     */
+    private void awaitWrittenThrough(long target) throws DataAccessException {
+        try {
+            wantedThrough = Math.max(wantedThrough, target);
+            while (writtenThrough < target && !closed) {
+                queued.signal();
+                flushed.await();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("interrupted waiting for the move writer", ex);
+        }
+    }
+
+    /**
+     * Waits, holding the lock, until the oldest queued move is younger than
+     * the max lag
+     */
+    private void awaitLag() throws DataAccessException {
+        long maxLag = TimeUnit.MILLISECONDS.toNanos(settings.maxLagMillis());
+        try {
+            while (!closed && !queue.isEmpty()) {
+                long remaining = queue.peekFirst().queuedAt() + maxLag - System.nanoTime();
+                if (remaining > 0) {
+                    return;
+                }
+                queued.signal();
+                flushed.awaitNanos(TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMillis()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("interrupted waiting for the move writer", ex);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<Pending> batch = nextBatch();
+            if (batch == null) {
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    /**
+     * Waits for a batch to be ready: right away for group commit, otherwise
+     * once the batch is full or its oldest move has waited a flush interval
+     *
+     * @return the moves to write, or null once closed with nothing left
+     */
+    private List<Pending> nextBatch() {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && !closed) {
+                queued.awaitUninterruptibly();
+            }
+            if (queue.isEmpty()) {
+                return null;
+            }
+            if (settings.durability() == Durability.ASYNC) {
+                long due = queue.peekFirst().queuedAt() + TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMillis());
+                long remaining;
+                while (!closed && queue.size() < settings.batchSize() && queue.peekFirst().sequence() > wantedThrough
+                        && (remaining = due - System.nanoTime()) > 0) {
+                    queued.awaitNanos(remaining);
+                }
+            }
+            List<Pending> batch = new ArrayList<>(Math.min(queue.size(), settings.batchSize()));
+            while (!queue.isEmpty() && batch.size() < settings.batchSize()) {
+                batch.add(queue.pollFirst());
+            }
+            return batch;
+        } catch (InterruptedException ex) {
+            // Only close stops the writer
+            return List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Pending> requeued = new ArrayList<>();
+        try {
+            write(batch);
+        } catch (DataAccessException ex) {
+            failures.incrementAndGet();
+            Map<Integer, List<Pending>> games = byGame(batch);
+            if (games.size() == 1) {
+                failed(batch, ex, requeued);
+            } else {
+                // One bad row fails the whole transaction, so write each game on its own to find it
+                for (List<Pending> game : games.values()) {
+                    try {
+                        write(game);
+                    } catch (DataAccessException gameEx) {
+                        failures.incrementAndGet();
+                        failed(game, gameEx, requeued);
+                    }
+                }
+            }
+        }
+
+        requeued.sort(Comparator.comparingLong(Pending::sequence));
+        Set<Long> retrying = new HashSet<>();
+        lock.lock();
+        try {
+            for (int i = requeued.size() - 1; i >= 0; i--) {
+                queue.addFirst(requeued.get(i));
+                retrying.add(requeued.get(i).sequence());
+            }
+            for (Pending pending : batch) {
+                if (!retrying.contains(pending.sequence())) {
+                    lastQueued.remove(pending.append().gameID(), pending.sequence());
+                }
+            }
+            // The queue is in sequence order and nothing else is being written, so all before its head is settled
+            writtenThrough = queue.isEmpty() ? queuedThrough : queue.peekFirst().sequence() - 1;
+            flushed.signalAll();
+            if (!requeued.isEmpty() && !closed) {
+                // Back off before trying again
+                queued.awaitNanos(TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMillis()));
+            }
+        } catch (InterruptedException ignored) {
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes some moves in one transaction and tells anyone waiting on them
+     */
+    private void write(List<Pending> pending) throws DataAccessException {
+        List<MySqlMoveLog.Append> appends = new ArrayList<>(pending.size());
+        for (Pending move : pending) {
+            appends.add(move.append());
+        }
+        long start = System.nanoTime();
+        log.appendAll(appends);
+        recordFlush(pending.size(), System.nanoTime() - start);
+        for (Pending move : pending) {
+            if (move.written() != null) {
+                move.written().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Deals with one game's moves that failed to be written. Group commit
+     * callers are still waiting and hear about it themselves. Asynchronous
+     * moves are retried unless they have used up their retries, the failure
+     * is permanent, or the writer is closing; then the game's moves are
+     * dropped and the game is marked {@link #lost}.
+     *
+     * @param requeued collects moves to put back at the front of the queue
+     */
+    private void failed(List<Pending> game, DataAccessException ex, List<Pending> requeued) {
+        if (settings.durability() == Durability.BATCHED) {
+            for (Pending pending : game) {
+                pending.written().completeExceptionally(ex);
+            }
+            return;
+        }
+        int attempts = 0;
+        for (Pending pending : game) {
+            attempts = Math.max(attempts, pending.attempts() + 1);
+        }
+        int gameID = game.get(0).append().gameID();
+        lock.lock();
+        try {
+            String reason = closed ? "at shutdown" : isPermanent(ex) ? "that cannot succeed"
+                    : attempts > settings.maxRetries() ? "after " + attempts + " attempts" : null;
+            if (reason == null) {
+                LOG.warn("Failed to write {} move(s) of game {}; retrying", game.size(), gameID, ex);
+                for (Pending pending : game) {
+                    requeued.add(new Pending(pending.sequence(), pending.append(), pending.queuedAt(),
+                            pending.written(), attempts));
+                }
+                return;
+            }
+            // Later moves of the game would leave a gap in its log, so they go too
+            int count = game.size();
+            Iterator<Pending> later = queue.iterator();
+            while (later.hasNext()) {
+                Pending pending = later.next();
+                if (pending.append().gameID() == gameID) {
+                    later.remove();
+                    count++;
+                }
+            }
+            lastQueued.remove(gameID);
+            lost.add(gameID);
+            dropped.addAndGet(count);
+            LOG.error("Dropping {} unwritten move(s) of game {} {}", count, gameID, reason, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<Integer, List<Pending>> byGame(List<Pending> batch) {
+        Map<Integer, List<Pending>> games = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            games.computeIfAbsent(pending.append().gameID(), key -> new ArrayList<>()).add(pending);
+        }
+        return games;
+    }
+
+    /**
+     * @return whether the database rejected the batch itself, such as for a
+     *         constraint violation, rather than failing to take it
+     */
+    private static boolean isPermanent(DataAccessException ex) {
+        Throwable cause = ex.getCause();
+        return cause instanceof SQLNonTransientException && !(cause instanceof SQLNonTransientConnectionException);
+    }
+
+    private void recordFlush(int moves, long nanos) {
+        flushes.incrementAndGet();
+        movesWritten.addAndGet(moves);
+        flushNanos.addAndGet(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
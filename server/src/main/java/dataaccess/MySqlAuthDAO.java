@@ -0,0 +1,97 @@
+package dataaccess;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Stores random auth tokens and the users they belong to
+ */
+public class MySqlAuthDAO {
+
+    private static final String[] CREATE_STATEMENTS = {
+            """
+            CREATE TABLE IF NOT EXISTS auth (
+              auth_token VARCHAR(255) NOT NULL,
+              username VARCHAR(255) NOT NULL,
+              PRIMARY KEY (auth_token)
+            )
+            """
+    };
+
+    public MySqlAuthDAO() throws DataAccessException {
+        DatabaseManager.createDatabase();
+        try (var conn = DatabaseManager.getConnection()) {
+            for (String statement : CREATE_STATEMENTS) {
+                try (var preparedStatement = conn.prepareStatement(statement)) {
+                    preparedStatement.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create auth table", ex);
+        }
+    }
+
+    /**
+     * @param username user to issue a token to
+     * @return a new random token
+     * @throws DataAccessException if the token could not be stored
+     */
+    public String createAuth(String username) throws DataAccessException {
+        String token = UUID.randomUUID().toString();
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("INSERT INTO auth (auth_token, username) VALUES (?, ?)")) {
+            statement.setString(1, token);
+            statement.setString(2, username);
+            statement.executeUpdate();
+            return token;
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create auth token", ex);
+        }
+    }
+
+    /**
+     * @param token token to look up
+     * @return the user the token belongs to, or null if there is no such token
+     * @throws DataAccessException if the token could not be read
+     */
+    public String getUsername(String token) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT username FROM auth WHERE auth_token = ?")) {
+            statement.setString(1, token);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString("username") : null;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to read auth token", ex);
+        }
+    }
+
+    /**
+     * @param token token to delete
+     * @return whether there was such a token
+     * @throws DataAccessException if the token could not be deleted
+     */
+    public boolean deleteAuth(String token) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("DELETE FROM auth WHERE auth_token = ?")) {
+            statement.setString(1, token);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to delete auth token", ex);
+        }
+    }
+
+    /**
+     * Deletes every token
+     *
+     * @throws DataAccessException if the table could not be cleared
+     */
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("TRUNCATE auth")) {
+            statement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to clear auth tokens", ex);
+        }
+    }
+}
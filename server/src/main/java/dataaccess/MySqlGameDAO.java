@@ -0,0 +1,267 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameList;
+import model.GameSummary;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores who is playing which game
+ * <p>
+ * The games table only holds each game's name and players. Board state lives
+ * in the {@link MySqlMoveLog}, so listing games reads small rows and never
+ * deserializes a board.
+ */
+public class MySqlGameDAO {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+
+    private static final String[] CREATE_STATEMENTS = {
+            """
+            CREATE TABLE IF NOT EXISTS games (
+              game_id INT NOT NULL AUTO_INCREMENT,
+              game_name VARCHAR(255) NOT NULL,
+              white_username VARCHAR(255),
+              black_username VARCHAR(255),
+              finished BOOLEAN NOT NULL DEFAULT FALSE,
+              PRIMARY KEY (game_id),
+              INDEX (white_username),
+              INDEX (black_username)
+            )
+            """
+    };
+
+    private static final String SUMMARY_COLUMNS = "game_id, game_name, white_username, black_username";
+
+    /**
+     * Which games to list
+     *
+     * @param limit most games to return; clamped to 1..{@link #MAX_LIMIT}
+     * @param cursor only games with a higher gameID are returned, or null to start at the beginning
+     * @param openOnly only games with at least one open seat
+     * @param player only games this user is playing in, or null for any
+     */
+    public record Query(int limit, Integer cursor, boolean openOnly, String player) {
+
+        /**
+         * @return the first page of every game
+         */
+        public static Query all() {
+            return new Query(DEFAULT_LIMIT, null, false, null);
+        }
+    }
+
+    public MySqlGameDAO() throws DataAccessException {
+        this(true);
+    }
+
+    /**
+     * @param createTable whether to create the table; false for DAOs that
+     *                    keep their games somewhere other than MySQL
+     * @throws DataAccessException if the table could not be created
+     */
+    protected MySqlGameDAO(boolean createTable) throws DataAccessException {
+        if (createTable) {
+            createTable();
+        }
+    }
+
+    private static void createTable() throws DataAccessException {
+        DatabaseManager.createDatabase();
+        try (var conn = DatabaseManager.getConnection()) {
+            for (String statement : CREATE_STATEMENTS) {
+                try (var preparedStatement = conn.prepareStatement(statement)) {
+                    preparedStatement.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create games table", ex);
+        }
+    }
+
+    /**
+     * @param gameName name of the new game
+     * @return the new game's ID
+     * @throws DataAccessException if the game could not be created
+     */
+    public int createGame(String gameName) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("INSERT INTO games (game_name) VALUES (?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, gameName);
+            statement.executeUpdate();
+            try (var rs = statement.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create game", ex);
+        }
+    }
+
+    /**
+     * @param gameID game to get
+     * @return the game's name and players, or null if there is no such game
+     * @throws DataAccessException if the game could not be read
+     */
+    public GameSummary getGame(int gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT " + SUMMARY_COLUMNS + " FROM games WHERE game_id = ?")) {
+            statement.setInt(1, gameID);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() ? readSummary(rs) : null;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to read game " + gameID, ex);
+        }
+    }
+
+    /**
+     * Takes a seat in a game if nobody has it yet
+     *
+     * @param gameID game to join
+     * @param color seat to take
+     * @param username user taking the seat
+     * @return whether the seat was taken; false if it was already taken or
+     *         there is no such game
+     * @throws DataAccessException if the game could not be updated
+     */
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        String column = color == ChessGame.TeamColor.WHITE ? "white_username" : "black_username";
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement(
+                     "UPDATE games SET " + column + " = ? WHERE game_id = ? AND " + column + " IS NULL")) {
+            statement.setString(1, username);
+            statement.setInt(2, gameID);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to join game " + gameID, ex);
+        }
+    }
+
+    /**
+     * Gives up a seat in a game
+     *
+     * @param gameID game to leave
+     * @param color seat to give up
+     * @param username user giving it up; nothing changes if someone else has the seat
+     * @throws DataAccessException if the game could not be updated
+     */
+    public void releaseSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        String column = color == ChessGame.TeamColor.WHITE ? "white_username" : "black_username";
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement(
+                     "UPDATE games SET " + column + " = NULL WHERE game_id = ? AND " + column + " = ?")) {
+            statement.setInt(1, gameID);
+            statement.setString(2, username);
+            statement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to leave game " + gameID, ex);
+        }
+    }
+
+    /**
+     * Marks a game as over, so no more moves can be made in it
+     *
+     * @param gameID game that ended
+     * @throws DataAccessException if the game could not be updated
+     */
+    public void finishGame(int gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("UPDATE games SET finished = TRUE WHERE game_id = ?")) {
+            statement.setInt(1, gameID);
+            statement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to finish game " + gameID, ex);
+        }
+    }
+
+    /**
+     * @param gameID game to check
+     * @return whether the game has ended
+     * @throws DataAccessException if the game could not be read
+     */
+    public boolean isFinished(int gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT finished FROM games WHERE game_id = ?")) {
+            statement.setInt(1, gameID);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean("finished");
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to read game " + gameID, ex);
+        }
+    }
+
+    /**
+     * Lists one page of games, in gameID order. Pages are found by gameID
+     * rather than by offset, so every page costs the same however deep it is.
+     *
+     * @param query which games to list
+     * @return the page, with a cursor for the next one if there are more games
+     * @throws DataAccessException if the games could not be read
+     */
+    public GameList listGames(Query query) throws DataAccessException {
+        int limit = Math.max(1, Math.min(MAX_LIMIT, query.limit()));
+        StringBuilder sql = new StringBuilder("SELECT " + SUMMARY_COLUMNS + " FROM games WHERE game_id > ?");
+        if (query.openOnly()) {
+            sql.append(" AND (white_username IS NULL OR black_username IS NULL)");
+        }
+        if (query.player() != null) {
+            sql.append(" AND (white_username = ? OR black_username = ?)");
+        }
+        sql.append(" ORDER BY game_id LIMIT ?");
+
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            statement.setInt(index++, query.cursor() == null ? 0 : query.cursor());
+            if (query.player() != null) {
+                statement.setString(index++, query.player());
+                statement.setString(index++, query.player());
+            }
+            // One extra row says whether there is another page
+            statement.setInt(index, limit + 1);
+
+            List<GameSummary> games = new ArrayList<>(Math.min(limit, 64));
+            boolean more = false;
+            try (var rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    if (games.size() == limit) {
+                        more = true;
+                        break;
+                    }
+                    games.add(readSummary(rs));
+                }
+            }
+            return new GameList(games, more ? games.get(games.size() - 1).gameID() : null);
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to list games", ex);
+        }
+    }
+
+    /**
+     * Deletes every game
+     *
+     * @throws DataAccessException if the table could not be cleared
+     */
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("TRUNCATE games")) {
+            statement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to clear games", ex);
+        }
+    }
+
+    private static GameSummary readSummary(ResultSet rs) throws SQLException {
+        return new GameSummary(rs.getInt("game_id"), rs.getString("white_username"), rs.getString("black_username"),
+                rs.getString("game_name"));
+    }
+}
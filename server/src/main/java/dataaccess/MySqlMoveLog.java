@@ -0,0 +1,301 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.InvalidMoveException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Stores games as an append-only log of moves plus occasional snapshots
+ * <p>
+ * Each move is one row in {@code game_moves} holding the move packed into a
+ * short by {@link ChessMove#pack()}, so a move writes a few bytes instead of
+ * the whole serialized board. Every {@code snapshotInterval} plies the board
+ * is also written to {@code game_snapshots} as FEN, and a game is loaded by
+ * replaying the moves made since its latest snapshot.
+ */
+public class MySqlMoveLog {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 20;
+
+    private static final String[] CREATE_STATEMENTS = {
+            """
+            CREATE TABLE IF NOT EXISTS game_moves (
+              game_id INT NOT NULL,
+              ply INT NOT NULL,
+              move SMALLINT NOT NULL,
+              PRIMARY KEY (game_id, ply)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS game_snapshots (
+              game_id INT NOT NULL,
+              ply INT NOT NULL,
+              fen VARCHAR(100) NOT NULL,
+              PRIMARY KEY (game_id, ply)
+            )
+            """
+    };
+
+    private final int snapshotInterval;
+
+    public MySqlMoveLog() throws DataAccessException {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param snapshotInterval plies between board snapshots
+     * @throws DataAccessException if the tables could not be created
+     */
+    public MySqlMoveLog(int snapshotInterval) throws DataAccessException {
+        this(snapshotInterval, true);
+    }
+
+    /**
+     * @param snapshotInterval plies between board snapshots
+     * @param createTables whether to create the tables; false for logs that
+     *                     keep their moves somewhere other than MySQL
+     * @throws DataAccessException if the tables could not be created
+     */
+    MySqlMoveLog(int snapshotInterval, boolean createTables) throws DataAccessException {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("snapshotInterval must be positive");
+        }
+        this.snapshotInterval = snapshotInterval;
+        if (createTables) {
+            createTables();
+        }
+    }
+
+    private static void createTables() throws DataAccessException {
+        DatabaseManager.createDatabase();
+        try (var conn = DatabaseManager.getConnection()) {
+            for (String statement : CREATE_STATEMENTS) {
+                try (var preparedStatement = conn.prepareStatement(statement)) {
+                    preparedStatement.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create move log tables", ex);
+        }
+    }
+
+    /**
+     * Starts the log for a new game with a snapshot of its starting position
+     *
+     * @param gameID game to start
+     * @param game starting position
+     * @throws DataAccessException if the snapshot could not be written
+     */
+    public void create(int gameID, ChessGame game) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            writeSnapshot(conn, gameID, 0, game);
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create game " + gameID, ex);
+        }
+    }
+
+    /**
+     * A move to append to a game's log
+     *
+     * @param gameID game the move was made in
+     * @param ply number of the move in the game, starting at 1
+     * @param move move that was made
+     * @param after position after the move, or null if this ply is not
+     *              snapshotted (see {@link #snapshotDue(int)})
+     */
+    public record Append(int gameID, int ply, ChessMove move, ChessGame after) {
+    }
+
+    /**
+     * @param ply number of a move in a game
+     * @return whether the position after that move is snapshotted
+     */
+    public boolean snapshotDue(int ply) {
+        return ply % snapshotInterval == 0;
+    }
+
+    /**
+     * Appends a move to a game's log, snapshotting the board if the move
+     * lands on a snapshot interval
+     *
+     * @param gameID game the move was made in
+     * @param ply number of the move in the game, starting at 1
+     * @param move move that was made
+     * @param after position after the move
+     * @throws DataAccessException if the move could not be written, including
+     *                             when a move with that ply is already logged
+     */
+    public void append(int gameID, int ply, ChessMove move, ChessGame after) throws DataAccessException {
+        appendAll(List.of(new Append(gameID, ply, move, snapshotDue(ply) ? after : null)));
+    }
+
+    /**
+     * Appends moves from any number of games in one transaction, sending the
+     * inserts as JDBC batches
+     *
+     * @param appends moves to append
+     * @throws DataAccessException if the moves could not be written; none of
+     *                             them are written in that case
+     */
+    public void appendAll(List<Append> appends) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var moves = conn.prepareStatement("INSERT INTO game_moves (game_id, ply, move) VALUES (?, ?, ?)");
+                 var snapshots = conn.prepareStatement(
+                         "REPLACE INTO game_snapshots (game_id, ply, fen) VALUES (?, ?, ?)")) {
+                boolean anySnapshots = false;
+                for (Append append : appends) {
+                    moves.setInt(1, append.gameID());
+                    moves.setInt(2, append.ply());
+                    moves.setShort(3, append.move().pack());
+                    moves.addBatch();
+                    if (append.after() != null) {
+                        snapshots.setInt(1, append.gameID());
+                        snapshots.setInt(2, append.ply());
+                        snapshots.setString(3, Fen.format(append.after()));
+                        snapshots.addBatch();
+                        anySnapshots = true;
+                    }
+                }
+                moves.executeBatch();
+                if (anySnapshots) {
+                    snapshots.executeBatch();
+                }
+            }
+            conn.commit();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to append " + appends.size() + " move(s)", ex);
+        }
+    }
+
+    /**
+     * A game rebuilt from its log
+     *
+     * @param game current position
+     * @param plies number of moves made in the game so far
+     */
+    public record Loaded(ChessGame game, int plies) {
+    }
+
+    /**
+     * Rebuilds a game from its latest snapshot and the moves made after it
+     *
+     * @param gameID game to load
+     * @return the game's current position, or null if the game has no log
+     * @throws DataAccessException if the log could not be read or does not replay
+     */
+    public Loaded load(int gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            ChessGame game;
+            int snapshotPly;
+            try (var statement = conn.prepareStatement(
+                    "SELECT ply, fen FROM game_snapshots WHERE game_id = ? ORDER BY ply DESC LIMIT 1")) {
+                statement.setInt(1, gameID);
+                try (var rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    snapshotPly = rs.getInt("ply");
+                    game = Fen.parse(rs.getString("fen"));
+                }
+            }
+            return replay(gameID, game, snapshotPly, readMoves(conn, gameID, snapshotPly));
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to load game " + gameID, ex);
+        }
+    }
+
+    /**
+     * Plays the moves logged after a snapshot onto it
+     *
+     * @param gameID game being loaded, for error messages
+     * @param game position at the snapshot, which the moves are played on
+     * @param snapshotPly ply the snapshot was taken at
+     * @param moves moves logged after the snapshot, by ply
+     * @return the position after the moves
+     * @throws DataAccessException if a ply is missing or a move is not legal where it was logged
+     */
+    static Loaded replay(int gameID, ChessGame game, int snapshotPly, SortedMap<Integer, ChessMove> moves)
+            throws DataAccessException {
+        int ply = snapshotPly;
+        for (var logged : moves.entrySet()) {
+            if (logged.getKey() != ply + 1) {
+                throw new DataAccessException("move log for game " + gameID + " is missing ply " + (ply + 1));
+            }
+            try {
+                game.makeMove(logged.getValue());
+            } catch (InvalidMoveException ex) {
+                throw new DataAccessException("move log for game " + gameID + " does not replay at ply "
+                        + logged.getKey(), ex);
+            }
+            ply++;
+        }
+        return new Loaded(game, ply);
+    }
+
+    /**
+     * @param gameID game whose moves to read
+     * @return every move made in the game, in order
+     * @throws DataAccessException if the log could not be read
+     */
+    public List<ChessMove> history(int gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            return new ArrayList<>(readMoves(conn, gameID, 0).values());
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to read moves for game " + gameID, ex);
+        }
+    }
+
+    /**
+     * Deletes every game's moves and snapshots
+     *
+     * @throws DataAccessException if the tables could not be cleared
+     */
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            for (String table : new String[]{"game_moves", "game_snapshots"}) {
+                try (var statement = conn.prepareStatement("TRUNCATE " + table)) {
+                    statement.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to clear move log", ex);
+        }
+    }
+
+    private static void writeSnapshot(Connection conn, int gameID, int ply, ChessGame game) throws SQLException {
+        try (var statement = conn.prepareStatement(
+                "REPLACE INTO game_snapshots (game_id, ply, fen) VALUES (?, ?, ?)")) {
+            statement.setInt(1, gameID);
+            statement.setInt(2, ply);
+            statement.setString(3, Fen.format(game));
+            statement.executeUpdate();
+        }
+    }
+
+    private static SortedMap<Integer, ChessMove> readMoves(Connection conn, int gameID, int afterPly)
+            throws SQLException {
+        SortedMap<Integer, ChessMove> moves = new TreeMap<>();
+        try (PreparedStatement statement = conn.prepareStatement(
+                "SELECT ply, move FROM game_moves WHERE game_id = ? AND ply > ? ORDER BY ply")) {
+            statement.setInt(1, gameID);
+            statement.setInt(2, afterPly);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    moves.put(rs.getInt("ply"), ChessMove.unpack(rs.getShort("move")));
+                }
+            }
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,106 @@
+package dataaccess;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * Stores users and their bcrypt password hashes
+ */
+public class MySqlUserDAO {
+
+    private static final String[] CREATE_STATEMENTS = {
+            """
+            CREATE TABLE IF NOT EXISTS users (
+              username VARCHAR(255) NOT NULL,
+              password_hash CHAR(60) NOT NULL,
+              email VARCHAR(255) NOT NULL,
+              PRIMARY KEY (username)
+            )
+            """
+    };
+
+    public MySqlUserDAO() throws DataAccessException {
+        DatabaseManager.createDatabase();
+        try (var conn = DatabaseManager.getConnection()) {
+            for (String statement : CREATE_STATEMENTS) {
+                try (var preparedStatement = conn.prepareStatement(statement)) {
+                    preparedStatement.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create users table", ex);
+        }
+    }
+
+    /**
+     * @param username name of the new user
+     * @param passwordHash bcrypt hash of the user's password
+     * @param email the user's email address
+     * @return whether the user was added, or false if the name is taken
+     * @throws DataAccessException if the user could not be stored
+     */
+    public boolean createUser(String username, String passwordHash, String email) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement(
+                     "INSERT INTO users (username, password_hash, email) VALUES (?, ?, ?)")) {
+            statement.setString(1, username);
+            statement.setString(2, passwordHash);
+            statement.setString(3, email);
+            statement.executeUpdate();
+            return true;
+        } catch (SQLIntegrityConstraintViolationException ex) {
+            return false;
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create user", ex);
+        }
+    }
+
+    /**
+     * @param username user to look up
+     * @return the user's bcrypt password hash, or null if there is no such user
+     * @throws DataAccessException if the user could not be read
+     */
+    public String getPasswordHash(String username) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT password_hash FROM users WHERE username = ?")) {
+            statement.setString(1, username);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString("password_hash") : null;
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to read user", ex);
+        }
+    }
+
+    /**
+     * Replaces a user's password hash, such as with one of a higher cost
+     *
+     * @param username user to update
+     * @param passwordHash new bcrypt hash of the same password
+     * @throws DataAccessException if the user could not be updated
+     */
+    public void updatePasswordHash(String username, String passwordHash) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("UPDATE users SET password_hash = ? WHERE username = ?")) {
+            statement.setString(1, passwordHash);
+            statement.setString(2, username);
+            statement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to update password", ex);
+        }
+    }
+
+    /**
+     * Deletes every user
+     *
+     * @throws DataAccessException if the table could not be cleared
+     */
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("TRUNCATE users")) {
+            statement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to clear users", ex);
+        }
+    }
+}
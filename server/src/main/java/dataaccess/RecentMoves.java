@@ -0,0 +1,47 @@
+package dataaccess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The moves made in one game under the last few idempotency keys, oldest
+ * first
+ * <p>
+ * Once the window is full each new key pushes out the oldest one, after which
+ * a retry under that key is treated as a new move. Belongs to one cached game
+ * and is only used under its lock, so it is not synchronized.
+ */
+class RecentMoves {
+
+    private final LinkedHashMap<String, GameCache.AppliedMove> moves;
+
+    /**
+     * @param capacity most keys to remember; 0 remembers none
+     */
+    RecentMoves(int capacity) {
+        this.moves = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GameCache.AppliedMove> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Remembers a move, replacing any made earlier under the same key
+     *
+     * @param key idempotency key the move was made with
+     * @param move the move
+     */
+    void put(String key, GameCache.AppliedMove move) {
+        moves.put(key, move);
+    }
+
+    /**
+     * @param key idempotency key to look up
+     * @return the move made under the key, or null if it is not in the window
+     */
+    GameCache.AppliedMove get(String key) {
+        return moves.get(key);
+    }
+}
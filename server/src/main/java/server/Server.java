@@ -0,0 +1,300 @@
+package server;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import dataaccess.ConnectionPool;
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
+import dataaccess.GameCache;
+import dataaccess.MoveWriter;
+import dataaccess.MySqlAuthDAO;
+import dataaccess.MySqlGameDAO;
+import dataaccess.MySqlMoveLog;
+import dataaccess.MySqlUserDAO;
+import io.javalin.*;
+import io.javalin.http.Context;
+import server.websocket.ConnectionManager;
+import server.websocket.GameExecutor;
+import server.websocket.Heartbeat;
+import server.websocket.WebSocketHandler;
+import service.AlreadyTakenException;
+import service.AuthService;
+import service.BadRequestException;
+import service.LobbyService;
+import service.PasswordHasher;
+import service.ServiceUnavailableException;
+import service.TokenSigner;
+import service.UnauthorizedException;
+import service.UserService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+public class Server {
+
+    private static final Gson GSON = new Gson();
+
+    private record RegisterRequest(String username, String password, String email) {
+    }
+
+    private record LoginRequest(String username, String password) {
+    }
+
+    private record CreateGameRequest(String gameName) {
+    }
+
+    private record JoinGameRequest(ChessGame.TeamColor playerColor, Integer gameID) {
+    }
+
+    private final Javalin javalin;
+    private final PasswordHasher passwordHasher;
+    private final AuthService authService;
+    private final UserService userService;
+    private final LobbyService lobbyService;
+    private final MoveWriter moveWriter;
+    private final GameCache gameCache;
+    private final GameExecutor gameExecutor = new GameExecutor();
+    private final WebSocketHandler webSocketHandler;
+
+    public Server() {
+        this(Boolean.parseBoolean(loadProperties().getProperty("server.virtualThreads", "true")));
+    }
+
+    /**
+     * @param virtualThreads whether to handle HTTP requests and websocket
+     *                       messages on virtual threads instead of a fixed
+     *                       pool of platform threads. Handlers block on JDBC,
+     *                       so with virtual threads the connection pool, not
+     *                       the thread count, limits how many run at once.
+     */
+    public Server(boolean virtualThreads) {
+        passwordHasher = new PasswordHasher(PasswordHasher.loadSettings());
+        try {
+            authService = new AuthService(new MySqlAuthDAO(), new TokenSigner(TokenSigner.loadSettings()),
+                    AuthService.loadCacheMillis());
+            userService = new UserService(new MySqlUserDAO(), passwordHasher, authService);
+            MySqlMoveLog moveLog = new MySqlMoveLog();
+            moveWriter = new MoveWriter(moveLog, DatabaseManager.getMoveWriterSettings());
+            gameCache = new GameCache(moveLog, moveWriter, DatabaseManager.getGameCacheSettings());
+            lobbyService = new LobbyService(new MySqlGameDAO(), gameCache);
+        } catch (DataAccessException ex) {
+            throw new RuntimeException("unable to set up the database", ex);
+        }
+
+        javalin = Javalin.create(config -> {
+            config.staticFiles.add("web");
+            config.useVirtualThreads = virtualThreads;
+        });
+
+        // Register your endpoints and exception handlers here.
+        javalin.get("/health", this::health);
+        javalin.post("/user", this::register);
+        javalin.post("/session", this::login);
+        javalin.delete("/session", this::logout);
+        javalin.get("/game", this::listGames);
+        javalin.post("/game", this::createGame);
+        javalin.put("/game", this::joinGame);
+        javalin.get("/metrics", this::metrics);
+        webSocketHandler = new WebSocketHandler(authService, lobbyService, gameCache, gameExecutor,
+                loadConnectionSettings(), loadHeartbeatSettings());
+        javalin.ws("/ws", webSocketHandler::configure);
+
+        javalin.exception(NumberFormatException.class, (ex, ctx) -> error(ctx, 400, ex));
+        javalin.exception(JsonSyntaxException.class, (ex, ctx) -> error(ctx, 400, ex));
+        javalin.exception(BadRequestException.class, (ex, ctx) -> error(ctx, 400, ex));
+        javalin.exception(UnauthorizedException.class, (ex, ctx) -> error(ctx, 401, ex));
+        javalin.exception(AlreadyTakenException.class, (ex, ctx) -> error(ctx, 403, ex));
+        javalin.exception(ServiceUnavailableException.class, (ex, ctx) -> error(ctx, 503, ex));
+        javalin.exception(DataAccessException.class, (ex, ctx) -> error(ctx, 500, ex));
+    }
+
+    public int run(int desiredPort) {
+        javalin.start(desiredPort);
+        return javalin.port();
+    }
+
+    public void stop() {
+        javalin.stop();
+        webSocketHandler.close();
+        gameExecutor.close();
+        gameCache.close();
+        moveWriter.close();
+        passwordHasher.close();
+    }
+
+    /**
+     * Registers a user from a JSON body with username, password and email,
+     * and answers with the user's first token
+     */
+    private void register(Context ctx) throws BadRequestException, AlreadyTakenException,
+            ServiceUnavailableException, DataAccessException {
+        RegisterRequest request = body(ctx, RegisterRequest.class);
+        String token = userService.register(request.username(), request.password(), request.email());
+        json(ctx, Map.of("username", request.username(), "authToken", token));
+    }
+
+    /**
+     * Logs a user in from a JSON body with username and password
+     */
+    private void login(Context ctx) throws BadRequestException, UnauthorizedException,
+            ServiceUnavailableException, DataAccessException {
+        LoginRequest request = body(ctx, LoginRequest.class);
+        String token = userService.login(request.username(), request.password());
+        json(ctx, Map.of("username", request.username(), "authToken", token));
+    }
+
+    /**
+     * Stops accepting the request's token. A signed token is revoked in
+     * memory; a random one is deleted from the auth table.
+     */
+    private void logout(Context ctx) throws UnauthorizedException, DataAccessException {
+        authService.logout(ctx.header("authorization"));
+        json(ctx, Map.of());
+    }
+
+    /**
+     * Reports whether the database can be reached
+     */
+    private void health(Context ctx) throws DataAccessException {
+        DatabaseManager.checkConnection();
+        ctx.contentType("application/json");
+        ctx.result(GSON.toJson(Map.of("status", "ok")));
+    }
+
+    /**
+     * Reports the server's counters: websocket sends and heartbeats, the
+     * per-game command executor with the games that have commands waiting,
+     * the move writer and game cache, the connection pool with its statement
+     * caches, and password hashing. The pool is left out when pooling is off.
+     */
+    private void metrics(Context ctx) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("websocket", webSocketHandler.stats());
+        metrics.put("heartbeat", webSocketHandler.heartbeatStats());
+        metrics.put("executor", Map.of("totals", gameExecutor.totals(),
+                "backlogged", gameExecutor.stats().stream().filter(game -> game.depth() > 0).toList()));
+        metrics.put("moveWriter", moveWriter.stats());
+        metrics.put("gameCache", gameCache.stats());
+        ConnectionPool.Stats pool = DatabaseManager.getPoolStats();
+        if (pool != null) {
+            metrics.put("connectionPool", pool);
+        }
+        metrics.put("passwordHasher", passwordHasher.stats());
+        json(ctx, metrics);
+    }
+
+    /**
+     * Lists games a page at a time. Takes optional limit, cursor, open and
+     * player query parameters, and answers 304 Not Modified when the
+     * If-None-Match header holds the ETag of the same list at the current
+     * lobby version.
+     */
+    private void listGames(Context ctx) throws UnauthorizedException, DataAccessException {
+        authService.authenticate(ctx.header("authorization"));
+        String limit = ctx.queryParam("limit");
+        String cursor = ctx.queryParam("cursor");
+        var query = new MySqlGameDAO.Query(limit == null ? MySqlGameDAO.DEFAULT_LIMIT : Integer.parseInt(limit),
+                cursor == null ? null : Integer.valueOf(cursor), Boolean.parseBoolean(ctx.queryParam("open")),
+                ctx.queryParam("player"));
+
+        LobbyService.Listing listing = lobbyService.listGames(query, ctx.header("If-None-Match"));
+        ctx.header("ETag", listing.etag());
+        if (listing.notModified()) {
+            ctx.status(304);
+            return;
+        }
+        ctx.contentType("application/json");
+        ctx.result(listing.body());
+    }
+
+    /**
+     * Parses a JSON request body
+     *
+     * @throws BadRequestException if there is no body
+     */
+    private static <T> T body(Context ctx, Class<T> type) throws BadRequestException {
+        T request = GSON.fromJson(ctx.body(), type);
+        if (request == null) {
+            throw new BadRequestException("bad request");
+        }
+        return request;
+    }
+
+    private static void json(Context ctx, Object body) {
+        ctx.contentType("application/json");
+        ctx.result(GSON.toJson(body));
+    }
+
+    /**
+     * Creates a game from a JSON body with gameName. The lobby version goes
+     * up, so clients polling the list get the new game on their next request.
+     */
+    private void createGame(Context ctx) throws UnauthorizedException, BadRequestException, DataAccessException {
+        authService.authenticate(ctx.header("authorization"));
+        CreateGameRequest request = body(ctx, CreateGameRequest.class);
+        if (request.gameName() == null || request.gameName().isBlank()) {
+            throw new BadRequestException("bad request");
+        }
+        json(ctx, Map.of("gameID", lobbyService.createGame(request.gameName())));
+    }
+
+    /**
+     * Takes a seat from a JSON body with playerColor and gameID
+     */
+    private void joinGame(Context ctx) throws UnauthorizedException, BadRequestException, AlreadyTakenException,
+            DataAccessException {
+        String username = authService.authenticate(ctx.header("authorization"));
+        JoinGameRequest request = body(ctx, JoinGameRequest.class);
+        if (request.playerColor() == null || request.gameID() == null) {
+            throw new BadRequestException("bad request");
+        }
+        if (!lobbyService.joinGame(request.gameID(), request.playerColor(), username)) {
+            if (lobbyService.getGame(request.gameID()) == null) {
+                throw new BadRequestException("bad request");
+            }
+            throw new AlreadyTakenException("already taken");
+        }
+        json(ctx, Map.of());
+    }
+
+    private static void error(Context ctx, int status, Exception ex) {
+        ctx.status(status);
+        ctx.contentType("application/json");
+        ctx.result(GSON.toJson(Map.of("message", "Error: " + ex.getMessage())));
+    }
+
+    /**
+     * Reads the server.ws.* properties in server.properties
+     */
+    private static ConnectionManager.Settings loadConnectionSettings() {
+        Properties props = loadProperties();
+        return new ConnectionManager.Settings(
+                Integer.parseInt(props.getProperty("server.ws.queueCapacity", "64")),
+                Long.parseLong(props.getProperty("server.ws.maxLagMillis", "10000")));
+    }
+
+    /**
+     * Reads the heartbeat timing from the server.ws.* properties in server.properties
+     */
+    private static Heartbeat.Settings loadHeartbeatSettings() {
+        Properties props = loadProperties();
+        return new Heartbeat.Settings(
+                Long.parseLong(props.getProperty("server.ws.pingIntervalMillis", "30000")),
+                Long.parseLong(props.getProperty("server.ws.idleTimeoutMillis", "300000")),
+                Long.parseLong(props.getProperty("server.ws.timerTickMillis", "100")));
+    }
+
+    private static Properties loadProperties() {
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("server.properties")) {
+            Properties props = new Properties();
+            if (propStream != null) {
+                props.load(propStream);
+            }
+            return props;
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process server.properties", ex);
+        }
+    }
+}
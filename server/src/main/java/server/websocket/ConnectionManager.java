@@ -0,0 +1,439 @@
+package server.websocket;
+
+import com.google.gson.Gson;
+import io.javalin.websocket.WsContext;
+import json.GsonFactory;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.BinaryProtocol;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks which websocket sessions are watching which game, and sends them
+ * messages
+ * <p>
+ * Which session watches which game is kept in a {@link ConnectionRegistry}.
+ * Each session picks at CONNECT whether it is sent JSON or binary frames, and
+ * whether it is sent each move or the whole game again after it.
+ * <p>
+ * Every session has its own bounded outbox, and only one message per session
+ * is ever being written at a time, so sending never waits on a client. A new
+ * LOAD_GAME replaces any boards and moves still queued, since it holds them
+ * all. When an outbox is full the oldest move or notification is dropped; a
+ * client missing a move sees the gap in sequence numbers and resyncs. A
+ * session whose oldest unsent message is older than the lag limit, or whose
+ * outbox is full of messages that cannot be dropped, is disconnected.
+ */
+public class ConnectionManager {
+
+    private static final Gson GSON = GsonFactory.gson();
+    private static final int TRY_AGAIN_LATER = 1013;
+
+    private final Settings settings;
+    private final ConnectionRegistry<WsContext> registry = new ConnectionRegistry<>();
+    private final Map<WsContext, Outbox> outboxes = new ConcurrentHashMap<>();
+    // Sessions that chose the binary protocol at CONNECT; everyone else gets JSON
+    private final Set<WsContext> binary = ConcurrentHashMap.newKeySet();
+    // Sessions that get a MOVE after each move; everyone else gets the whole game
+    private final Set<WsContext> moveDeltas = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong serialized = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+    private final AtomicLong maxQueued = new AtomicLong();
+
+    /**
+     * @param queueCapacity most messages waiting to be sent to one session
+     * @param maxLagMillis how long a session's oldest unsent message may wait
+     *                     before the session is disconnected
+     */
+    public record Settings(int queueCapacity, long maxLagMillis) {
+    }
+
+    /**
+     * Snapshot of the send counters
+     *
+     * @param serialized messages encoded, once per broadcast and encoding however many sessions get it
+     * @param sent messages written to a session
+     * @param failed messages a session could not take, such as because it closed meanwhile
+     * @param games games with at least one session
+     * @param sessions sessions watching at least one game
+     * @param queued messages waiting in all outboxes now
+     * @param maxQueued most messages that have waited in one outbox
+     * @param dropped moves and notifications dropped from full outboxes
+     * @param coalesced boards and moves replaced by a newer LOAD_GAME before being sent
+     * @param disconnected sessions closed for falling too far behind
+     */
+    public record Stats(int games, int sessions, long serialized, long sent, long failed, long queued,
+                        long maxQueued, long dropped, long coalesced, long disconnected) {
+    }
+
+    /**
+     * How an unsent message may be treated when a session falls behind
+     */
+    private enum Kind {
+        // A whole board, which makes any earlier board or move redundant
+        SNAPSHOT,
+        // A move the client can get back by resyncing
+        DELTA,
+        // A notification, which the client can do without
+        NOTICE,
+        // Anything else, which must be delivered
+        OTHER;
+
+        static Kind of(ServerMessage message) {
+            return switch (message.getServerMessageType()) {
+                case LOAD_GAME -> SNAPSHOT;
+                case MOVE -> DELTA;
+                case NOTIFICATION -> NOTICE;
+                case ERROR -> OTHER;
+            };
+        }
+    }
+
+    /**
+     * A message waiting to be sent, as either text or a binary frame
+     */
+    private record Pending(String text, ByteBuffer frame, Kind kind, long queuedAt) {
+    }
+
+    /**
+     * A message going to several sessions, encoded the first time a session
+     * needs each form
+     */
+    private final class Encodings {
+        private final ServerMessage message;
+        private final Kind kind;
+        private String text;
+        private ByteBuffer frame;
+
+        Encodings(ServerMessage message) {
+            this.message = message;
+            this.kind = Kind.of(message);
+        }
+
+        void deliverTo(WsContext session) {
+            if (binary.contains(session)) {
+                if (frame == null) {
+                    serialized.incrementAndGet();
+                    frame = BinaryProtocol.encode(message);
+                }
+                deliver(session, null, frame, kind);
+            } else {
+                if (text == null) {
+                    serialized.incrementAndGet();
+                    text = GSON.toJson(message);
+                }
+                deliver(session, text, null, kind);
+            }
+        }
+    }
+
+    public ConnectionManager(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * @param gameID game the session is watching
+     * @param session session to add
+     */
+    public void add(int gameID, WsContext session) {
+        registry.add(gameID, session);
+        if (!session.session.isOpen()) {
+            // Closed while being added, possibly after its close handler cleaned up
+            registry.removeAll(session);
+        }
+    }
+
+    /**
+     * @param gameID game the session was watching
+     * @param session session to remove
+     * @return whether the game has no sessions left
+     */
+    public boolean remove(int gameID, WsContext session) {
+        return registry.remove(gameID, session);
+    }
+
+    /**
+     * @param session session to look up
+     * @return the games the session is watching
+     */
+    public Set<Integer> gamesOf(WsContext session) {
+        return registry.gamesOf(session);
+    }
+
+    /**
+     * Takes a session that has closed out of every game and throws away
+     * whatever is still queued for it
+     *
+     * @param session session that closed
+     * @return the games left with no sessions
+     */
+    public Set<Integer> closed(WsContext session) {
+        binary.remove(session);
+        moveDeltas.remove(session);
+        Outbox outbox = outboxes.remove(session);
+        if (outbox != null) {
+            outbox.discard();
+        }
+        return registry.removeAll(session);
+    }
+
+    /**
+     * Picks how everything is sent to a session from now on
+     *
+     * @param session session that just sent a CONNECT
+     * @param useBinary whether the CONNECT came as a binary frame rather than JSON
+     * @param useMoveDeltas whether the session is sent each move rather than the whole game after it
+     */
+    public void setEncoding(WsContext session, boolean useBinary, boolean useMoveDeltas) {
+        if (useBinary) {
+            binary.add(session);
+        } else {
+            binary.remove(session);
+        }
+        if (useMoveDeltas) {
+            moveDeltas.add(session);
+        } else {
+            moveDeltas.remove(session);
+        }
+    }
+
+    /**
+     * @param session session to look up
+     * @return whether the session is sent each move rather than the whole game after it
+     */
+    public boolean getsMoveDeltas(WsContext session) {
+        return moveDeltas.contains(session);
+    }
+
+    /**
+     * @param session session to send to
+     * @param message message to send
+     */
+    public void send(WsContext session, ServerMessage message) {
+        serialized.incrementAndGet();
+        if (binary.contains(session)) {
+            deliver(session, null, BinaryProtocol.encode(message), Kind.of(message));
+        } else {
+            deliver(session, GSON.toJson(message), null, Kind.of(message));
+        }
+    }
+
+    /**
+     * Sends a message to every session watching a game. The message is
+     * serialized once and the same text is queued for every session, so a
+     * slow client holds nobody up.
+     *
+     * @param gameID game whose sessions get the message
+     * @param exclude session that should not get it, or null
+     * @param message message to send
+     */
+    public void broadcast(int gameID, WsContext exclude, ServerMessage message) {
+        List<WsContext> game = registry.sessions(gameID);
+        if (game.isEmpty() || (exclude != null && game.size() == 1 && game.contains(exclude))) {
+            return;
+        }
+        // Each encoding is made at most once, and only if some session uses it
+        Encodings encodings = new Encodings(message);
+        for (WsContext session : game) {
+            // WsContext.equals throws on null
+            if (exclude == null || !session.equals(exclude)) {
+                encodings.deliverTo(session);
+            }
+        }
+    }
+
+    /**
+     * Tells every session watching a game about a move: the move itself to
+     * sessions that asked for move deltas, and the whole game after it to the
+     * rest. Each form is serialized at most once per encoding.
+     *
+     * @param gameID game the move was made in
+     * @param move the move
+     * @param game the game after the move
+     */
+    public void broadcastMove(int gameID, MoveMessage move, LoadGameMessage game) {
+        Encodings moves = new Encodings(move);
+        Encodings games = new Encodings(game);
+        for (WsContext session : registry.sessions(gameID)) {
+            (moveDeltas.contains(session) ? moves : games).deliverTo(session);
+        }
+    }
+
+    /**
+     * @return a snapshot of the send counters
+     */
+    public Stats stats() {
+        long queued = 0;
+        for (Outbox outbox : outboxes.values()) {
+            queued += outbox.depth();
+        }
+        return new Stats(registry.gameCount(), registry.sessionCount(), serialized.get(), sent.get(), failed.get(),
+                queued, maxQueued.get(), dropped.get(), coalesced.get(), disconnected.get());
+    }
+
+    private void deliver(WsContext session, String text, ByteBuffer frame, Kind kind) {
+        if (!session.session.isOpen()) {
+            return;
+        }
+        outboxes.computeIfAbsent(session, Outbox::new).offer(new Pending(text, frame, kind, System.nanoTime()));
+    }
+
+    private class Outbox implements WriteCallback {
+        private final WsContext session;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        // The message being written, if any; at most one write per session is outstanding
+        private Pending writing;
+        private boolean closed;
+
+        Outbox(WsContext session) {
+            this.session = session;
+        }
+
+        void offer(Pending message) {
+            Pending next = null;
+            boolean tooSlow;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (message.kind() == Kind.SNAPSHOT) {
+                    coalesce();
+                }
+                if (queue.size() >= settings.queueCapacity() && !dropOldest()) {
+                    tooSlow = true;
+                } else {
+                    Pending oldest = writing != null ? writing : queue.peekFirst();
+                    tooSlow = oldest != null && message.queuedAt() - oldest.queuedAt()
+                            > TimeUnit.MILLISECONDS.toNanos(settings.maxLagMillis());
+                }
+                if (tooSlow) {
+                    closed = true;
+                    queue.clear();
+                } else {
+                    queue.addLast(message);
+                    maxQueued.accumulateAndGet(queue.size(), Math::max);
+                    if (writing == null) {
+                        next = writing = queue.pollFirst();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (tooSlow) {
+                disconnected.incrementAndGet();
+                outboxes.remove(session, this);
+                session.closeSession(TRY_AGAIN_LATER, "too far behind");
+            } else if (next != null) {
+                write(next);
+            }
+        }
+
+        int depth() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void discard() {
+            lock.lock();
+            try {
+                closed = true;
+                queue.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void writeSuccess() {
+            sent.incrementAndGet();
+            writeNext();
+        }
+
+        @Override
+        public void writeFailed(Throwable ex) {
+            // The session's close handler takes it out of its games
+            failed.incrementAndGet();
+            discard();
+        }
+
+        /**
+         * Drops queued boards and moves, which the LOAD_GAME being added supersedes
+         */
+        private void coalesce() {
+            Iterator<Pending> pending = queue.iterator();
+            while (pending.hasNext()) {
+                Kind kind = pending.next().kind();
+                if (kind == Kind.SNAPSHOT || kind == Kind.DELTA) {
+                    pending.remove();
+                    coalesced.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * @return whether a move or notification was dropped to make room
+         */
+        private boolean dropOldest() {
+            Iterator<Pending> pending = queue.iterator();
+            while (pending.hasNext()) {
+                Kind kind = pending.next().kind();
+                if (kind == Kind.DELTA || kind == Kind.NOTICE) {
+                    pending.remove();
+                    dropped.incrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void writeNext() {
+            Pending next;
+            lock.lock();
+            try {
+                next = writing = closed ? null : queue.pollFirst();
+            } finally {
+                lock.unlock();
+            }
+            if (next != null) {
+                write(next);
+            }
+        }
+
+        private void write(Pending message) {
+            try {
+                if (message.text() != null) {
+                    session.session.getRemote().sendString(message.text(), this);
+                } else {
+                    // The frame is shared by every session it was broadcast to, so each write gets its own view
+                    session.session.getRemote().sendBytes(message.frame().asReadOnlyBuffer(), this);
+                }
+            } catch (RuntimeException ex) {
+                writeFailed(ex);
+            }
+        }
+    }
+}
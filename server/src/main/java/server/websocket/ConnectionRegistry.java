@@ -0,0 +1,150 @@
+package server.websocket;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which sessions are watching which games, and the reverse
+ * <p>
+ * Each game's sessions are an immutable list that is replaced whenever a
+ * session joins or leaves, so broadcasting just reads the current list
+ * without locking or copying. Changes go through
+ * {@link ConcurrentHashMap#compute}, which only locks the one bucket the key
+ * hashes to, so connects and disconnects in different games rarely contend.
+ * The reverse index from each session to its games lets a disconnect clean up
+ * without scanning every game.
+ *
+ * @param <S> session type
+ */
+public class ConnectionRegistry<S> {
+
+    private final ConcurrentHashMap<Integer, List<S>> byGame = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<S, Set<Integer>> bySession = new ConcurrentHashMap<>();
+
+    /**
+     * @param gameID game the session is watching
+     * @param session session to add
+     * @return whether the session was not already watching the game
+     */
+    public boolean add(int gameID, S session) {
+        boolean[] added = new boolean[1];
+        // Working inside the session's entry keeps this atomic with removeAll for the same session
+        bySession.compute(session, (key, games) -> {
+            if (games != null && games.contains(gameID)) {
+                return games;
+            }
+            byGame.compute(gameID, (id, sessions) -> append(sessions, session));
+            added[0] = true;
+            return with(games, gameID);
+        });
+        return added[0];
+    }
+
+    /**
+     * @param gameID game the session was watching
+     * @param session session to remove
+     * @return whether the game has no sessions left
+     */
+    public boolean remove(int gameID, S session) {
+        boolean[] empty = new boolean[1];
+        bySession.computeIfPresent(session, (key, games) -> {
+            empty[0] = dropFromGame(gameID, session);
+            return without(games, gameID);
+        });
+        return empty[0] || !byGame.containsKey(gameID);
+    }
+
+    /**
+     * Removes a session from every game it is watching, such as when it closes
+     *
+     * @param session session to remove
+     * @return the games left with no sessions
+     */
+    public Set<Integer> removeAll(S session) {
+        Set<Integer> emptied = new HashSet<>();
+        bySession.computeIfPresent(session, (key, games) -> {
+            for (int gameID : games) {
+                if (dropFromGame(gameID, session)) {
+                    emptied.add(gameID);
+                }
+            }
+            return null;
+        });
+        return emptied;
+    }
+
+    /**
+     * @param gameID game to look up
+     * @return the game's sessions as of now; later changes do not show in it
+     */
+    public List<S> sessions(int gameID) {
+        return byGame.getOrDefault(gameID, List.of());
+    }
+
+    /**
+     * @param session session to look up
+     * @return the games the session is watching
+     */
+    public Set<Integer> gamesOf(S session) {
+        return bySession.getOrDefault(session, Set.of());
+    }
+
+    /**
+     * @return games with at least one session
+     */
+    public int gameCount() {
+        return byGame.size();
+    }
+
+    /**
+     * @return sessions watching at least one game
+     */
+    public int sessionCount() {
+        return bySession.size();
+    }
+
+    /**
+     * @return whether the game's session list was left empty and dropped
+     */
+    private boolean dropFromGame(int gameID, S session) {
+        boolean[] empty = new boolean[1];
+        byGame.computeIfPresent(gameID, (id, sessions) -> {
+            List<S> rest = new ArrayList<>(sessions);
+            rest.remove(session);
+            empty[0] = rest.isEmpty();
+            return rest.isEmpty() ? null : List.copyOf(rest);
+        });
+        return empty[0];
+    }
+
+    private static <S> List<S> append(List<S> sessions, S session) {
+        if (sessions == null) {
+            return List.of(session);
+        }
+        List<S> grown = new ArrayList<>(sessions.size() + 1);
+        grown.addAll(sessions);
+        grown.add(session);
+        return List.copyOf(grown);
+    }
+
+    private static Set<Integer> with(Set<Integer> games, int gameID) {
+        if (games == null) {
+            return Set.of(gameID);
+        }
+        Set<Integer> grown = new HashSet<>(games);
+        grown.add(gameID);
+        return Set.copyOf(grown);
+    }
+
+    private static Set<Integer> without(Set<Integer> games, int gameID) {
+        if (!games.contains(gameID)) {
+            return games;
+        }
+        Set<Integer> rest = new HashSet<>(games);
+        rest.remove(gameID);
+        return rest.isEmpty() ? null : Set.copyOf(rest);
+    }
+}
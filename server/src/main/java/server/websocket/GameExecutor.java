@@ -0,0 +1,259 @@
+package server.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the commands for each game one at a time, in the order they arrive
+ * <p>
+ * Every live game has its own mailbox. Whoever finds a mailbox idle starts a
+ * virtual thread to drain it, and only that thread runs the game's commands
+ * until the mailbox is empty again. A game's state is therefore only ever
+ * touched by one thread at a time without being locked, while different games
+ * run in parallel.
+ * <p>
+ * Counters are kept per mailbox and for the executor as a whole. The totals
+ * include games whose mailboxes have been retired.
+ */
+public class GameExecutor implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GameExecutor.class);
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Counters counters = new Counters();
+    private final AtomicLong retired = new AtomicLong();
+
+    /**
+     * Snapshot of one game's mailbox
+     *
+     * @param gameID game the mailbox belongs to
+     * @param depth commands waiting to run
+     * @param maxDepth most commands that have waited at once
+     * @param processed commands run
+     * @param averageWaitMicros average time a command waited before running
+     * @param averageRunMicros average time a command took to run
+     * @param maxRunMicros longest time a command took to run
+     */
+    public record Stats(int gameID, int depth, int maxDepth, long processed, long averageWaitMicros,
+                        long averageRunMicros, long maxRunMicros) {
+    }
+
+    /**
+     * Snapshot of the executor's counters across every game, past and present
+     *
+     * @param games games with a mailbox
+     * @param depth commands waiting to run, in every mailbox
+     * @param maxDepth most commands that have waited at once in one mailbox
+     * @param processed commands run
+     * @param averageWaitMicros average time a command waited before running
+     * @param averageRunMicros average time a command took to run
+     * @param maxRunMicros longest time a command took to run
+     * @param retired mailboxes retired
+     */
+    public record Totals(int games, int depth, int maxDepth, long processed, long averageWaitMicros,
+                         long averageRunMicros, long maxRunMicros, long retired) {
+    }
+
+    private record Task(Runnable command, long queuedAt) {
+    }
+
+    /**
+     * Queues a command for a game
+     *
+     * @param gameID game the command is for
+     * @param command work to run after every command already queued for the game
+     */
+    public void submit(int gameID, Runnable command) {
+        Task task = new Task(command, System.nanoTime());
+        // compute keeps retire() from dropping a mailbox while a command is added to it
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox(id);
+            }
+            mailbox.enqueue(task);
+            return mailbox;
+        });
+    }
+
+    /**
+     * Forgets a game's mailbox once nothing is queued or running for it, such
+     * as when the last client leaves the game. May be called from one of the
+     * game's own commands; a command submitted afterwards brings it back.
+     *
+     * @param gameID game to forget
+     */
+    public void retire(int gameID) {
+        Mailbox mailbox = mailboxes.get(gameID);
+        if (mailbox != null) {
+            mailbox.retiring = true;
+            removeIfIdle(gameID);
+        }
+    }
+
+    private void removeIfIdle(int gameID) {
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            if (mailbox.retiring && mailbox.isIdle()) {
+                retired.incrementAndGet();
+                return null;
+            }
+            return mailbox;
+        });
+    }
+
+    /**
+     * @param gameID game to look at
+     * @return a snapshot of the game's mailbox, or null if it has none
+     */
+    public Stats stats(int gameID) {
+        Mailbox mailbox = mailboxes.get(gameID);
+        return mailbox == null ? null : mailbox.stats();
+    }
+
+    /**
+     * @return a snapshot of every game's mailbox
+     */
+    public List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>(mailboxes.size());
+        for (Mailbox mailbox : mailboxes.values()) {
+            stats.add(mailbox.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return a snapshot of the counters for every game, including games
+     *         whose mailboxes have been retired
+     */
+    public Totals totals() {
+        int games = 0;
+        int depth = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            games++;
+            depth += mailbox.depth.get();
+        }
+        return new Totals(games, depth, counters.maxDepth.get(), counters.processed.get(),
+                counters.averageWaitMicros(), counters.averageRunMicros(), counters.maxRunMicros(), retired.get());
+    }
+
+    /**
+     * Stops taking commands and waits briefly for queued ones to finish
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Mailbox implements Runnable {
+        private final int gameID;
+        private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        // Set while a thread is draining the mailbox; whoever sets it does the draining
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile boolean retiring;
+
+        private final Counters mailboxCounters = new Counters();
+
+        Mailbox(int gameID) {
+            this.gameID = gameID;
+        }
+
+        void enqueue(Task task) {
+            retiring = false;
+            queue.add(task);
+            int queued = depth.incrementAndGet();
+            mailboxCounters.queued(queued);
+            counters.queued(queued);
+            if (running.compareAndSet(false, true)) {
+                workers.execute(this);
+            }
+        }
+
+        boolean isIdle() {
+            return depth.get() == 0 && !running.get();
+        }
+
+        @Override
+        public void run() {
+            do {
+                Task task;
+                while ((task = queue.poll()) != null) {
+                    depth.decrementAndGet();
+                    long start = System.nanoTime();
+                    try {
+                        task.command().run();
+                    } catch (RuntimeException ex) {
+                        LOG.error("Command for game {} failed", gameID, ex);
+                    }
+                    long end = System.nanoTime();
+                    mailboxCounters.ran(start - task.queuedAt(), end - start);
+                    counters.ran(start - task.queuedAt(), end - start);
+                }
+                running.set(false);
+                // A command added after the last poll but before the flag was cleared would otherwise wait forever
+            } while (!queue.isEmpty() && running.compareAndSet(false, true));
+            if (retiring) {
+                removeIfIdle(gameID);
+            }
+        }
+
+        Stats stats() {
+            return new Stats(gameID, depth.get(), mailboxCounters.maxDepth.get(), mailboxCounters.processed.get(),
+                    mailboxCounters.averageWaitMicros(), mailboxCounters.averageRunMicros(),
+                    mailboxCounters.maxRunMicros());
+        }
+    }
+
+    /**
+     * Queue depth and timing, for one mailbox or for all of them
+     */
+    private static class Counters {
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong runNanos = new AtomicLong();
+        private final AtomicLong maxRunNanos = new AtomicLong();
+
+        void queued(int depth) {
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        void ran(long waitedNanos, long tookNanos) {
+            processed.incrementAndGet();
+            waitNanos.addAndGet(waitedNanos);
+            runNanos.addAndGet(tookNanos);
+            maxRunNanos.accumulateAndGet(tookNanos, Math::max);
+        }
+
+        long averageWaitMicros() {
+            long count = processed.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.get() / count);
+        }
+
+        long averageRunMicros() {
+            long count = processed.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(runNanos.get() / count);
+        }
+
+        long maxRunMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(maxRunNanos.get());
+        }
+    }
+}
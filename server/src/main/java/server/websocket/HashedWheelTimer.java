@@ -0,0 +1,153 @@
+package server.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs short tasks after a delay, rounded up to the next tick, on one thread
+ * <p>
+ * The wheel is a ring of buckets, one per tick. A task goes in the bucket its
+ * deadline falls in, with a count of how many more times round the wheel it
+ * has to wait. Each tick the thread empties just that bucket, so scheduling
+ * and cancelling cost the same however many tasks are waiting, which suits
+ * timeouts that are set for every session and usually cancelled or pushed
+ * back. Tasks run on the timer's thread and must not block.
+ */
+public class HashedWheelTimer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final long tickNanos;
+    private final List<ArrayDeque<Timeout>> wheel;
+    private final int mask;
+    private final long start = System.nanoTime();
+    // Tasks scheduled since the last tick; only the timer's thread touches the buckets
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * A scheduled task
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Stops the task from running if it has not yet
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * @param name name of the timer's thread
+     * @param tickMillis how precisely tasks are timed
+     * @param ticksPerWheel buckets in the wheel, rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tickMillis, int ticksPerWheel) {
+        if (tickMillis <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("tick and wheel size must be positive");
+        }
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Math.max(1, Integer.highestOneBit(ticksPerWheel - 1) << 1);
+        wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        mask = wheel.size() - 1;
+
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @param task work to run on the timer's thread
+     * @param delayMillis how long to wait first
+     * @return a handle for cancelling the task
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - start + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        if (!closed) {
+            added.add(timeout);
+        }
+        return timeout;
+    }
+
+    /**
+     * Stops the timer; tasks still waiting never run
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!closed) {
+            long tickEnd = tickNanos * (tick + 1);
+            long sleep = tickEnd - (System.nanoTime() - start);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            addScheduled(tick);
+            expire(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    /**
+     * Puts newly scheduled tasks in their buckets. A task whose deadline has
+     * already passed goes in the current one.
+     */
+    private void addScheduled(long tick) {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = Math.max(0, due - tick) / wheel.size();
+            wheel.get((int) (Math.max(due, tick) & mask)).addLast(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket) {
+        Iterator<Timeout> timeouts = bucket.iterator();
+        while (timeouts.hasNext()) {
+            Timeout timeout = timeouts.next();
+            if (timeout.cancelled) {
+                timeouts.remove();
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                timeouts.remove();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException ex) {
+                    LOG.warn("timer task failed", ex);
+                }
+            }
+        }
+    }
+}
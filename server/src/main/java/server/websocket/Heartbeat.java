@@ -0,0 +1,167 @@
+package server.websocket;
+
+import io.javalin.websocket.WsContext;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pings quiet websocket sessions and reaps the ones a ping cannot reach
+ * <p>
+ * Every session has one check on a shared {@link HashedWheelTimer} rather
+ * than a scheduled task of its own. Hearing from a session only records the
+ * time; when its check comes round it sends a ping if the session has been
+ * quiet for a ping interval, and books the next check. Pings keep proxies
+ * from dropping quiet connections, and a ping that cannot be written gets
+ * its session reaped.
+ * <p>
+ * Silence alone never reaps a session: Javalin does not pass pongs on, so a
+ * player who is only thinking looks the same here as a dead peer. Instead
+ * each session is given the idle timeout as its Jetty idle timeout, which
+ * every frame resets, pongs included. A peer that stops answering pings is
+ * closed by Jetty, and its close handler cleans up.
+ */
+public class Heartbeat implements AutoCloseable {
+
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private final Settings settings;
+    private final Consumer<WsContext> reaper;
+    private final HashedWheelTimer timer;
+    private final ConcurrentHashMap<WsContext, Liveness> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong pings = new AtomicLong();
+    private final AtomicLong reaped = new AtomicLong();
+
+    /**
+     * @param pingIntervalMillis how long a session may be quiet before it is pinged
+     * @param idleTimeoutMillis how long Jetty lets a session go without a frame, pongs included,
+     *                          before closing it; several ping intervals, so a late pong is not fatal
+     * @param tickMillis how precisely the checks are timed
+     */
+    public record Settings(long pingIntervalMillis, long idleTimeoutMillis, long tickMillis) {
+    }
+
+    /**
+     * Snapshot of the heartbeat counters
+     *
+     * @param watched open sessions being checked
+     * @param pings pings sent
+     * @param reaped sessions closed because a ping to them could not be written
+     */
+    public record Stats(int watched, long pings, long reaped) {
+    }
+
+    private static final class Liveness {
+        private volatile long lastHeard = System.nanoTime();
+        // Only the timer's thread reads or writes this
+        private long lastPinged = lastHeard;
+        private volatile HashedWheelTimer.Timeout check;
+    }
+
+    /**
+     * @param settings ping and idle timing
+     * @param reaper called on the timer's thread with each session a ping could not
+     *               reach, which it should take out of its games and close; must not block
+     */
+    public Heartbeat(Settings settings, Consumer<WsContext> reaper) {
+        this.settings = settings;
+        this.reaper = reaper;
+        this.timer = new HashedWheelTimer("websocket-heartbeat", settings.tickMillis(), TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Records that a session sent something. A new session is checked from
+     * now on, and gets the idle timeout from Jetty.
+     *
+     * @param session session heard from
+     */
+    public void heard(WsContext session) {
+        Liveness liveness = sessions.get(session);
+        if (liveness != null) {
+            liveness.lastHeard = System.nanoTime();
+            return;
+        }
+        sessions.computeIfAbsent(session, key -> {
+            key.session.setIdleTimeout(Duration.ofMillis(settings.idleTimeoutMillis()));
+            Liveness added = new Liveness();
+            added.check = timer.schedule(() -> check(key, added), settings.pingIntervalMillis());
+            return added;
+        });
+    }
+
+    /**
+     * Stops checking a session that has closed
+     *
+     * @param session session that closed
+     */
+    public void forget(WsContext session) {
+        Liveness liveness = sessions.remove(session);
+        if (liveness != null) {
+            liveness.check.cancel();
+        }
+    }
+
+    /**
+     * @return a snapshot of the heartbeat counters
+     */
+    public Stats stats() {
+        return new Stats(sessions.size(), pings.get(), reaped.get());
+    }
+
+    /**
+     * Stops checking sessions
+     */
+    @Override
+    public void close() {
+        timer.close();
+    }
+
+    private void check(WsContext session, Liveness liveness) {
+        if (sessions.get(session) != liveness) {
+            return;
+        }
+        if (!session.session.isOpen()) {
+            sessions.remove(session, liveness);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long pingInterval = TimeUnit.MILLISECONDS.toNanos(settings.pingIntervalMillis());
+        if (now - liveness.lastHeard >= pingInterval && now - liveness.lastPinged >= pingInterval) {
+            liveness.lastPinged = now;
+            ping(session, liveness);
+        }
+
+        long nextPing = Math.max(liveness.lastHeard, liveness.lastPinged) + pingInterval;
+        long delay = TimeUnit.NANOSECONDS.toMillis(nextPing - now);
+        liveness.check = timer.schedule(() -> check(session, liveness), Math.max(settings.tickMillis(), delay));
+    }
+
+    private void ping(WsContext session, Liveness liveness) {
+        pings.incrementAndGet();
+        try {
+            session.session.getRemote().sendPing(ByteBuffer.allocate(0), new WriteCallback() {
+                @Override
+                public void writeFailed(Throwable cause) {
+                    // Reported on Jetty's thread, so the reap is handed back to the timer's
+                    timer.schedule(() -> reap(session, liveness), 0);
+                }
+            });
+        } catch (RuntimeException ex) {
+            reap(session, liveness);
+        }
+    }
+
+    private void reap(WsContext session, Liveness liveness) {
+        if (sessions.remove(session, liveness)) {
+            reaped.incrementAndGet();
+            reaper.accept(session);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dataaccess.DataAccessException;
+import dataaccess.GameCache;
+import io.javalin.websocket.WsBinaryMessageContext;
+import io.javalin.websocket.WsCloseContext;
+import io.javalin.websocket.WsConfig;
+import io.javalin.websocket.WsContext;
+import io.javalin.websocket.WsMessageContext;
+import json.GsonFactory;
+import model.GameSummary;
+import service.AuthService;
+import service.LobbyService;
+import service.UnauthorizedException;
+import websocket.BinaryProtocol;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plays games over websockets
+ * <p>
+ * Commands are parsed on the thread that received them and then handed to the
+ * {@link GameExecutor}, so each game's commands run one at a time and in
+ * order while other games carry on in parallel.
+ * <p>
+ * After a move the mover and everyone else watching get the whole game as a
+ * LOAD_GAME, and everyone but the mover also gets a notification of the move.
+ * Sessions that asked for move deltas at CONNECT, and all binary sessions,
+ * get a MOVE in place of the LOAD_GAME.
+ * <p>
+ * Sessions that go quiet are pinged by the {@link Heartbeat}, and those a
+ * ping cannot reach are reaped: they stop getting every game they were in
+ * and are closed. Unlike LEAVE this keeps a player's seat, so they can
+ * connect again once their network is back. Sessions that stop answering
+ * pings altogether are closed by Jetty's idle timeout instead.
+ */
+public class WebSocketHandler implements AutoCloseable {
+
+    private static final Gson GSON = GsonFactory.gson();
+    private static final int GOING_AWAY = 1001;
+
+    private final AuthService authService;
+    private final LobbyService lobbyService;
+    private final GameCache gameCache;
+    private final GameExecutor executor;
+    private final ConnectionManager connections;
+    private final Heartbeat heartbeat;
+    // Who each session connected as, so others can be told when it is reaped
+    private final ConcurrentHashMap<WsContext, String> usernames = new ConcurrentHashMap<>();
+
+    public WebSocketHandler(AuthService authService, LobbyService lobbyService, GameCache gameCache,
+                            GameExecutor executor, ConnectionManager.Settings settings,
+                            Heartbeat.Settings heartbeatSettings) {
+        this.authService = authService;
+        this.lobbyService = lobbyService;
+        this.gameCache = gameCache;
+        this.executor = executor;
+        this.connections = new ConnectionManager(settings);
+        this.heartbeat = new Heartbeat(heartbeatSettings, this::reap);
+    }
+
+    /**
+     * @param ws the websocket endpoint's configuration
+     */
+    public void configure(WsConfig ws) {
+        ws.onConnect(heartbeat::heard);
+        ws.onMessage(this::onMessage);
+        ws.onBinaryMessage(this::onBinaryMessage);
+        ws.onClose(this::onClose);
+    }
+
+    /**
+     * @return a snapshot of the send counters
+     */
+    public ConnectionManager.Stats stats() {
+        return connections.stats();
+    }
+
+    /**
+     * @return a snapshot of the heartbeat counters, such as sessions reaped
+     */
+    public Heartbeat.Stats heartbeatStats() {
+        return heartbeat.stats();
+    }
+
+    /**
+     * Stops pinging and reaping sessions
+     */
+    @Override
+    public void close() {
+        heartbeat.close();
+    }
+
+    void onMessage(WsMessageContext ctx) {
+        heartbeat.heard(ctx);
+        UserGameCommand command;
+        try {
+            // Comes back as a MakeMoveCommand for MAKE_MOVE and a ConnectCommand for CONNECT
+            command = GSON.fromJson(ctx.message(), UserGameCommand.class);
+        } catch (JsonParseException ex) {
+            command = null;
+        }
+        if (command == null || command.getCommandType() == null || command.getGameID() == null) {
+            connections.send(ctx, new ErrorMessage("Error: malformed command"));
+            return;
+        }
+
+        if (command instanceof ConnectCommand connect) {
+            connections.setEncoding(ctx, false, connect.wantsMoveDeltas());
+        }
+        UserGameCommand parsed = command;
+        executor.submit(command.getGameID(), () -> handle(ctx, parsed));
+    }
+
+    /**
+     * Takes a command in the binary protocol. A session whose CONNECT comes
+     * this way is answered in binary, with move deltas, from then on.
+     */
+    void onBinaryMessage(WsBinaryMessageContext ctx) {
+        heartbeat.heard(ctx);
+        UserGameCommand command;
+        try {
+            command = BinaryProtocol.decodeCommand(ByteBuffer.wrap(ctx.data(), ctx.offset(), ctx.length()));
+        } catch (IllegalArgumentException ex) {
+            connections.send(ctx, new ErrorMessage("Error: malformed command"));
+            return;
+        }
+        if (command.getCommandType() == UserGameCommand.CommandType.CONNECT) {
+            connections.setEncoding(ctx, true, true);
+        }
+        executor.submit(command.getGameID(), () -> handle(ctx, command));
+    }
+
+    void onClose(WsCloseContext ctx) {
+        heartbeat.forget(ctx);
+        usernames.remove(ctx);
+        for (int gameID : connections.closed(ctx)) {
+            executor.retire(gameID);
+        }
+    }
+
+    /**
+     * Takes a session the heartbeat could not ping out of its games, leaving any
+     * seat it holds, then closes it. Runs on the heartbeat's timer, so the
+     * removal is handed to each game's executor.
+     */
+    void reap(WsContext ctx) {
+        String username = usernames.get(ctx);
+        if (username != null) {
+            for (int gameID : connections.gamesOf(ctx)) {
+                executor.submit(gameID, () -> reapFrom(ctx, gameID, username));
+            }
+        }
+        ctx.closeSession(GOING_AWAY, "unreachable");
+    }
+
+    private void reapFrom(WsContext ctx, int gameID, String username) {
+        if (connections.remove(gameID, ctx)) {
+            executor.retire(gameID);
+        }
+        connections.broadcast(gameID, null, new NotificationMessage(username + " lost connection"));
+    }
+
+    /**
+     * Carries out one command. Runs on the game's executor, so nothing else
+     * touches the game meanwhile.
+     */
+    private void handle(WsContext ctx, UserGameCommand command) {
+        int gameID = command.getGameID();
+        try {
+            String username = authService.authenticate(command.getAuthToken());
+            if (command instanceof MakeMoveCommand makeMove && isRetry(ctx, gameID, username, makeMove)) {
+                return;
+            }
+            GameSummary game = lobbyService.getGame(gameID);
+            if (game == null) {
+                connections.send(ctx, new ErrorMessage("Error: no game with ID " + gameID));
+                return;
+            }
+            switch (command.getCommandType()) {
+                case CONNECT -> connect(ctx, game, username);
+                case MAKE_MOVE -> makeMove(ctx, game, username, (MakeMoveCommand) command);
+                case LEAVE -> leave(ctx, game, username);
+                case RESIGN -> resign(ctx, game, username);
+                case RESYNC -> resync(ctx, game);
+            }
+        } catch (UnauthorizedException ex) {
+            connections.send(ctx, new ErrorMessage("Error: unauthorized"));
+        } catch (InvalidMoveException ex) {
+            String reason = ex.getMessage() == null ? "invalid move" : ex.getMessage();
+            connections.send(ctx, new ErrorMessage("Error: " + reason));
+        } catch (DataAccessException ex) {
+            connections.send(ctx, new ErrorMessage("Error: " + ex.getMessage()));
+        }
+    }
+
+    private void connect(WsContext ctx, GameSummary game, String username) throws DataAccessException {
+        GameCache.Position position = gameCache.position(game.gameID());
+        if (position == null) {
+            connections.send(ctx, new ErrorMessage("Error: no board for game " + game.gameID()));
+            return;
+        }
+        connections.add(game.gameID(), ctx);
+        usernames.put(ctx, username);
+        connections.send(ctx, new LoadGameMessage(position.game(), position.ply(), position.legalMoves()));
+
+        ChessGame.TeamColor color = colorOf(game, username);
+        String role = color == null ? "an observer" : color.name().toLowerCase();
+        connections.broadcast(game.gameID(), ctx, new NotificationMessage(username + " joined as " + role));
+    }
+
+    /**
+     * Acknowledges a MAKE_MOVE whose idempotency key the user already made a
+     * move under, without checking or saving it again, by sending just this
+     * client that move again, or the current game if it does not take moves
+     *
+     * @return whether the command was a retry
+     */
+    private boolean isRetry(WsContext ctx, int gameID, String username, MakeMoveCommand command)
+            throws DataAccessException {
+        if (command.getIdempotencyKey() == null) {
+            return false;
+        }
+        GameCache.AppliedMove applied = gameCache.applied(gameID, command.getIdempotencyKey());
+        if (applied == null || !applied.username().equals(username)) {
+            return false;
+        }
+        if (connections.getsMoveDeltas(ctx)) {
+            connections.send(ctx, new MoveMessage(applied.ply(), applied.move()));
+            return true;
+        }
+        GameCache.Position position = gameCache.position(gameID);
+        if (position != null) {
+            connections.send(ctx, new LoadGameMessage(position.game(), position.ply(), position.legalMoves()));
+        }
+        return true;
+    }
+
+    private void makeMove(WsContext ctx, GameSummary game, String username, MakeMoveCommand command)
+            throws InvalidMoveException, DataAccessException {
+        ChessMove move = command.getMove();
+        ChessGame.TeamColor color = colorOf(game, username);
+        if (color == null) {
+            connections.send(ctx, new ErrorMessage("Error: observers cannot move"));
+            return;
+        }
+        if (lobbyService.isFinished(game.gameID())) {
+            connections.send(ctx, new ErrorMessage("Error: the game is over"));
+            return;
+        }
+        if (move == null) {
+            connections.send(ctx, new ErrorMessage("Error: no move given"));
+            return;
+        }
+
+        GameCache.Position position = gameCache.makeMove(game.gameID(), move, color, username,
+                command.getIdempotencyKey());
+        ChessGame chess = position.game();
+        connections.broadcastMove(game.gameID(), new MoveMessage(position.ply(), move),
+                new LoadGameMessage(chess, position.ply(), position.legalMoves()));
+        connections.broadcast(game.gameID(), ctx, new NotificationMessage(
+                username + " moved " + square(move.getStartPosition()) + " to " + square(move.getEndPosition())));
+
+        ChessGame.TeamColor opponent = chess.getTeamTurn();
+        String opponentName = opponent == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+        // The cache already worked out the opponent's moves; having none is mate or stalemate
+        boolean noMoves = position.legalMoves().isEmpty();
+        if (noMoves && chess.isInCheck(opponent)) {
+            lobbyService.finishGame(game.gameID());
+            connections.broadcast(game.gameID(), null, new NotificationMessage(opponentName + " is in checkmate"));
+        } else if (noMoves) {
+            lobbyService.finishGame(game.gameID());
+            connections.broadcast(game.gameID(), null, new NotificationMessage(opponentName + " is in stalemate"));
+        } else if (chess.isInCheck(opponent)) {
+            connections.broadcast(game.gameID(), null, new NotificationMessage(opponentName + " is in check"));
+        }
+    }
+
+    /**
+     * Sends the whole game again, with its legal moves, to a client that
+     * missed a move or wants the legal moves for the current position
+     */
+    private void resync(WsContext ctx, GameSummary game) throws DataAccessException {
+        GameCache.Position position = gameCache.position(game.gameID());
+        if (position == null) {
+            connections.send(ctx, new ErrorMessage("Error: no board for game " + game.gameID()));
+            return;
+        }
+        connections.send(ctx, new LoadGameMessage(position.game(), position.ply(), position.legalMoves()));
+    }
+
+    private void leave(WsContext ctx, GameSummary game, String username) throws DataAccessException {
+        ChessGame.TeamColor color = colorOf(game, username);
+        if (color != null) {
+            lobbyService.leaveGame(game.gameID(), color, username);
+        }
+        if (connections.remove(game.gameID(), ctx)) {
+            executor.retire(game.gameID());
+        }
+        connections.broadcast(game.gameID(), null, new NotificationMessage(username + " left the game"));
+    }
+
+    private void resign(WsContext ctx, GameSummary game, String username) throws DataAccessException {
+        if (colorOf(game, username) == null) {
+            connections.send(ctx, new ErrorMessage("Error: observers cannot resign"));
+            return;
+        }
+        if (lobbyService.isFinished(game.gameID())) {
+            connections.send(ctx, new ErrorMessage("Error: the game is over"));
+            return;
+        }
+        lobbyService.finishGame(game.gameID());
+        connections.broadcast(game.gameID(), null, new NotificationMessage(username + " resigned"));
+    }
+
+    private static ChessGame.TeamColor colorOf(GameSummary game, String username) {
+        if (username.equals(game.whiteUsername())) {
+            return ChessGame.TeamColor.WHITE;
+        }
+        if (username.equals(game.blackUsername())) {
+            return ChessGame.TeamColor.BLACK;
+        }
+        return null;
+    }
+
+    private static String square(ChessPosition position) {
+        return (char) ('a' + position.getColumn() - 1) + Integer.toString(position.getRow());
+    }
+}
@@ -0,0 +1,11 @@
+package service;
+
+/**
+ * Indicates a username or seat already belongs to someone else; it is
+ * reported to the client as 403 Forbidden
+ */
+public class AlreadyTakenException extends Exception {
+    public AlreadyTakenException(String message) {
+        super(message);
+    }
+}
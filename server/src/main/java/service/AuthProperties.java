@@ -0,0 +1,27 @@
+package service;
+
+import java.util.Properties;
+
+/**
+ * Reads auth.properties, the settings for tokens and password hashing
+ */
+class AuthProperties {
+
+    private AuthProperties() {
+    }
+
+    /**
+     * @return the properties, or no properties if there is no auth.properties
+     */
+    static Properties load() {
+        Properties props = new Properties();
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("auth.properties")) {
+            if (propStream != null) {
+                props.load(propStream);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process auth.properties", ex);
+        }
+        return props;
+    }
+}
@@ -0,0 +1,116 @@
+package service;
+
+import dataaccess.DataAccessException;
+import dataaccess.MySqlAuthDAO;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues auth tokens and works out who a request's token belongs to
+ * <p>
+ * When signed tokens are enabled, new tokens are signed by the
+ * {@link TokenSigner} and checked without touching the database. Random
+ * tokens stored in the auth table are still accepted, so switching modes
+ * does not log anyone out. A random token that was found is remembered for
+ * a few seconds, so a client polling with it does not hit the database on
+ * every request; logging out forgets it at once.
+ */
+public class AuthService {
+
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
+    private final MySqlAuthDAO authDAO;
+    private final TokenSigner signer;
+    private final long cacheMillis;
+    private final Map<String, Cached> cached = new ConcurrentHashMap<>();
+
+    private record Cached(String username, long expiresAt) {
+    }
+
+    /**
+     * @param cacheMillis how long a random token that was found is accepted
+     *                    without looking it up again; 0 to always look it up
+     */
+    public AuthService(MySqlAuthDAO authDAO, TokenSigner signer, long cacheMillis) {
+        this.authDAO = authDAO;
+        this.signer = signer;
+        this.cacheMillis = cacheMillis;
+    }
+
+    /**
+     * Reads how long random tokens are cached from auth.tokens.cacheMillis in auth.properties
+     */
+    public static long loadCacheMillis() {
+        return Long.parseLong(AuthProperties.load().getProperty("auth.tokens.cacheMillis", "5000"));
+    }
+
+    /**
+     * @param username user who just registered or logged in
+     * @return a new token for the user
+     * @throws DataAccessException if a random token could not be stored
+     */
+    public String issue(String username) throws DataAccessException {
+        if (signer.getSettings().enabled()) {
+            return signer.issue(username);
+        }
+        return authDAO.createAuth(username);
+    }
+
+    /**
+     * @param token token from a request
+     * @return the user the token belongs to
+     * @throws UnauthorizedException if the token is missing, unknown, expired or revoked
+     * @throws DataAccessException if a random token could not be looked up
+     */
+    public String authenticate(String token) throws UnauthorizedException, DataAccessException {
+        String username = null;
+        if (TokenSigner.isSigned(token)) {
+            TokenSigner.Claims claims = signer.verify(token);
+            username = claims == null ? null : claims.username();
+        } else if (token != null) {
+            username = lookUp(token);
+        }
+        if (username == null) {
+            throw new UnauthorizedException("unauthorized");
+        }
+        return username;
+    }
+
+    /**
+     * @param token token to stop accepting
+     * @throws UnauthorizedException if the token was not valid to begin with
+     * @throws DataAccessException if a random token could not be deleted
+     */
+    public void logout(String token) throws UnauthorizedException, DataAccessException {
+        if (token != null) {
+            cached.remove(token);
+        }
+        boolean valid = TokenSigner.isSigned(token) ? signer.revoke(token) : token != null && authDAO.deleteAuth(token);
+        if (!valid) {
+            throw new UnauthorizedException("unauthorized");
+        }
+    }
+
+    /**
+     * Finds who a random token belongs to, from the cache if it was looked up recently
+     */
+    private String lookUp(String token) throws DataAccessException {
+        long now = System.currentTimeMillis();
+        Cached hit = cached.get(token);
+        if (hit != null && hit.expiresAt() > now) {
+            return hit.username();
+        }
+        String username = authDAO.getUsername(token);
+        if (username != null && cacheMillis > 0) {
+            if (cached.size() >= MAX_CACHED_TOKENS) {
+                cached.values().removeIf(entry -> entry.expiresAt() <= now);
+                if (cached.size() >= MAX_CACHED_TOKENS) {
+                    cached.clear();
+                }
+            }
+            cached.put(token, new Cached(username, now + cacheMillis));
+        }
+        return username;
+    }
+}
@@ -0,0 +1,11 @@
+package service;
+
+/**
+ * Indicates a request is missing something it needs; it is reported to the
+ * client as 400 Bad Request
+ */
+public class BadRequestException extends Exception {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,199 @@
+package service;
+
+import chess.ChessGame;
+import com.google.gson.Gson;
+import dataaccess.DataAccessException;
+import dataaccess.GameCache;
+import dataaccess.MySqlGameDAO;
+import model.GameSummary;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Creates, joins and lists games, and tracks a version number for the lobby
+ * <p>
+ * The version goes up after every change that shows in the game list:
+ * creating, joining or leaving a game, and a game finishing. Together with
+ * the query it makes up the list's ETag, so a client polling with the ETag
+ * it last saw gets a not-modified answer without the database being read,
+ * and the JSON of each list asked for is kept until the version next changes.
+ */
+public class LobbyService {
+
+    private static final Gson GSON = new Gson();
+    private static final int MAX_CACHED_LISTS = 64;
+
+    private final MySqlGameDAO gameDAO;
+    private final GameCache gameCache;
+    // Starts at the clock so versions from before a restart are never reused
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private final AtomicReference<Bodies> bodies = new AtomicReference<>(new Bodies(-1, Map.of()));
+
+    /**
+     * Serialized game lists for one lobby version
+     */
+    private record Bodies(long version, Map<MySqlGameDAO.Query, String> byQuery) {
+    }
+
+    /**
+     * A game list ready to send
+     *
+     * @param etag ETag of the lobby version the list was read at
+     * @param body the list as JSON, or null when the client's copy is current
+     */
+    public record Listing(String etag, String body) {
+
+        /**
+         * @return whether the client already has this list
+         */
+        public boolean notModified() {
+            return body == null;
+        }
+    }
+
+    public LobbyService(MySqlGameDAO gameDAO, GameCache gameCache) {
+        this.gameDAO = gameDAO;
+        this.gameCache = gameCache;
+    }
+
+    /**
+     * @param gameName name of the new game
+     * @return the new game's ID
+     * @throws DataAccessException if the game could not be created
+     */
+    public int createGame(String gameName) throws DataAccessException {
+        int gameID = gameDAO.createGame(gameName);
+        gameCache.create(gameID, new ChessGame());
+        version.incrementAndGet();
+        return gameID;
+    }
+
+    /**
+     * @param gameID game to join
+     * @param color seat to take
+     * @param username user taking the seat
+     * @return whether the seat was free and is now the user's
+     * @throws DataAccessException if the game could not be updated
+     */
+    public boolean joinGame(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        boolean joined = gameDAO.claimSeat(gameID, color, username);
+        if (joined) {
+            version.incrementAndGet();
+        }
+        return joined;
+    }
+
+    /**
+     * @param gameID game to leave
+     * @param color seat to give up
+     * @param username user giving it up
+     * @throws DataAccessException if the game could not be updated
+     */
+    public void leaveGame(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        gameDAO.releaseSeat(gameID, color, username);
+        version.incrementAndGet();
+    }
+
+    /**
+     * @param gameID game to get
+     * @return the game's name and players, or null if there is no such game
+     * @throws DataAccessException if the game could not be read
+     */
+    public GameSummary getGame(int gameID) throws DataAccessException {
+        return gameDAO.getGame(gameID);
+    }
+
+    /**
+     * @param gameID game to check
+     * @return whether the game has ended
+     * @throws DataAccessException if the game could not be read
+     */
+    public boolean isFinished(int gameID) throws DataAccessException {
+        return gameDAO.isFinished(gameID);
+    }
+
+    /**
+     * Records that a game has ended, by checkmate, stalemate or resignation
+     *
+     * @param gameID game that ended
+     * @throws DataAccessException if the game could not be updated
+     */
+    public void finishGame(int gameID) throws DataAccessException {
+        gameDAO.finishGame(gameID);
+        version.incrementAndGet();
+    }
+
+    /**
+     * @param query which games are listed
+     * @return the ETag of the list at the current lobby version
+     */
+    public String etag(MySqlGameDAO.Query query) {
+        return etag(version.get(), query);
+    }
+
+    /**
+     * Lists games unless the client's copy is already current
+     *
+     * @param query which games to list
+     * @param ifNoneMatch the request's If-None-Match header, or null
+     * @return the list, or a not-modified listing if the header matches the list at the current version
+     * @throws DataAccessException if the games could not be read
+     */
+    public Listing listGames(MySqlGameDAO.Query query, String ifNoneMatch) throws DataAccessException {
+        // Read the version before the games, so a change made meanwhile gets a newer ETag than this list
+        long current = version.get();
+        String etag = etag(current, query);
+        if (matches(ifNoneMatch, etag)) {
+            return new Listing(etag, null);
+        }
+
+        Bodies cached = bodies.get();
+        if (cached.version() == current) {
+            String body = cached.byQuery().get(query);
+            if (body != null) {
+                return new Listing(etag, body);
+            }
+        }
+
+        String body = GSON.toJson(gameDAO.listGames(query));
+        if (cached.version() != current) {
+            Bodies fresh = new Bodies(current, new ConcurrentHashMap<>());
+            cached = bodies.compareAndSet(cached, fresh) ? fresh : bodies.get();
+        }
+        if (cached.version() == current && cached.byQuery().size() < MAX_CACHED_LISTS) {
+            cached.byQuery().put(query, body);
+        }
+        return new Listing(etag, body);
+    }
+
+    /**
+     * Tags a list by lobby version and query, so the ETag of one page or
+     * filter is never taken for another's
+     */
+    private static String etag(long version, MySqlGameDAO.Query query) {
+        return "\"lobby-" + version + "-" + Integer.toHexString(query.hashCode()) + "\"";
+    }
+
+    /**
+     * Checks an If-None-Match header, which may list several ETags, weak
+     * ones included, or be {@code *}
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
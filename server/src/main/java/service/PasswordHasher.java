@@ -0,0 +1,211 @@
+package service;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashes and checks passwords with bcrypt on a small dedicated pool of threads
+ * <p>
+ * Bcrypt is slow on purpose, so running it on request threads lets a burst of
+ * logins hold up cheap requests. Here at most {@code threads} hashes run at
+ * once and at most {@code queueCapacity} more wait; anything beyond that is
+ * turned away with a {@link ServiceUnavailableException} instead of queueing
+ * without bound. The bcrypt cost is chosen at startup so that one hash takes
+ * about the target time on this machine.
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PasswordHasher.class);
+    private static final int MAX_COST = 20;
+    private static final int CALIBRATION_COST = 8;
+
+    private final ThreadPoolExecutor executor;
+    private final int cost;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    /**
+     * @param threads hashes run at once; 0 means one per core
+     * @param queueCapacity hashes allowed to wait for a thread before new ones are refused
+     * @param targetMillis roughly how long one hash should take
+     * @param minCost lowest bcrypt cost to use, however slow the machine
+     */
+    public record Settings(int threads, int queueCapacity, long targetMillis, int minCost) {
+    }
+
+    /**
+     * Snapshot of the hasher's counters
+     *
+     * @param cost bcrypt cost used for new hashes
+     * @param queued hashes waiting for a thread
+     * @param completed hashes and checks finished
+     * @param rejected hashes and checks refused because the queue was full
+     * @param averageWaitMicros average time spent waiting for a thread
+     * @param maxWaitMicros longest time spent waiting for a thread
+     * @param averageHashMicros average time to hash or check a password
+     * @param maxHashMicros longest time to hash or check a password
+     */
+    public record Stats(int cost, int queued, long completed, long rejected, long averageWaitMicros,
+                        long maxWaitMicros, long averageHashMicros, long maxHashMicros) {
+    }
+
+    public PasswordHasher(Settings settings) {
+        int threads = settings.threads() > 0 ? settings.threads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.queueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "bcrypt-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        cost = calibrate(settings.targetMillis(), settings.minCost());
+        LOG.info("Using bcrypt cost {} on {} thread(s)", cost, threads);
+    }
+
+    /**
+     * Reads settings from the auth.bcrypt.* properties in auth.properties
+     *
+     * @return settings
+     */
+    public static Settings loadSettings() {
+        Properties props = AuthProperties.load();
+        return new Settings(
+                Integer.parseInt(props.getProperty("auth.bcrypt.threads", "0")),
+                Integer.parseInt(props.getProperty("auth.bcrypt.queueCapacity", "64")),
+                Long.parseLong(props.getProperty("auth.bcrypt.targetMillis", "100")),
+                Integer.parseInt(props.getProperty("auth.bcrypt.minCost", "10")));
+    }
+
+    /**
+     * @param password password to hash
+     * @return bcrypt hash of the password, with a new salt
+     * @throws ServiceUnavailableException if too many hashes are already waiting
+     */
+    public String hash(String password) throws ServiceUnavailableException {
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    /**
+     * @param password password to check
+     * @param hash bcrypt hash to check it against, of any cost
+     * @return whether the password matches
+     * @throws ServiceUnavailableException if too many hashes are already waiting
+     */
+    public boolean verify(String password, String hash) throws ServiceUnavailableException {
+        return run(() -> BCrypt.checkpw(password, hash));
+    }
+
+    /**
+     * @param hash a stored bcrypt hash
+     * @return whether the hash was made with a lower cost than is used now,
+     *         so it should be replaced the next time its password is checked
+     */
+    public boolean needsRehash(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) < cost;
+        } catch (RuntimeException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the bcrypt cost used for new hashes
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return a snapshot of the hasher's counters
+     */
+    public Stats stats() {
+        long count = completed.get();
+        return new Stats(cost, executor.getQueue().size(), count, rejected.get(),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.get() / count),
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(hashNanos.get() / count),
+                TimeUnit.NANOSECONDS.toMicros(maxHashNanos.get()));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> work) throws ServiceUnavailableException {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    long end = System.nanoTime();
+                    record(start - queuedAt, end - start);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+            throw new ServiceUnavailableException("too many logins in progress; try again shortly", ex);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("interrupted waiting for password hashing", ex);
+        } catch (ExecutionException ex) {
+            // BCrypt only throws for malformed hashes and salts
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void record(long wait, long hash) {
+        completed.incrementAndGet();
+        waitNanos.addAndGet(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+        hashNanos.addAndGet(hash);
+        maxHashNanos.accumulateAndGet(hash, Math::max);
+    }
+
+    /**
+     * Times a cheap hash and scales up from it: each step up in cost doubles
+     * the work, so the cost is the one whose hash time is closest to the
+     * target without going over
+     */
+    private static int calibrate(long targetMillis, int minCost) {
+        String salt = BCrypt.gensalt(CALIBRATION_COST);
+        BCrypt.hashpw("calibration", salt);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double ratio = TimeUnit.MILLISECONDS.toNanos(targetMillis) / (double) Math.max(best, 1);
+        int cost = CALIBRATION_COST + (int) Math.floor(Math.log(ratio) / Math.log(2));
+        return Math.max(minCost, Math.min(MAX_COST, cost));
+    }
+}
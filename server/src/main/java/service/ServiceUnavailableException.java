@@ -0,0 +1,14 @@
+package service;
+
+/**
+ * Indicates the server is too busy to handle a request right now; it is
+ * reported to the client as 503 Service Unavailable
+ */
+public class ServiceUnavailableException extends Exception {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+    public ServiceUnavailableException(String message, Throwable ex) {
+        super(message, ex);
+    }
+}
@@ -0,0 +1,193 @@
+package service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and checks self-contained auth tokens signed with HMAC-SHA256
+ * <p>
+ * A token carries its key id, issue time and username, so checking one needs
+ * no database lookup:
+ * {@code v1.<key id>.<issued at>.<base64 username>.<base64 signature>}.
+ * Signing keys rotate every rotation period. The key for a period is derived
+ * from the configured secret and the period number, so every server sharing
+ * the secret agrees on the keys and tokens survive a restart. Tokens expire
+ * after the max age, and logged-out tokens are kept in a revocation set
+ * until they would have expired anyway.
+ */
+public class TokenSigner {
+
+    private static final String PREFIX = "v1.";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Settings settings;
+    private final byte[] secret;
+    private final Map<Long, SecretKeySpec> keys = new ConcurrentHashMap<>();
+    // Signature of each revoked token, mapped to when the token expires
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile long nextPurge;
+
+    /**
+     * @param enabled whether the server should hand out signed tokens
+     * @param secret secret the signing keys are derived from; if empty a random
+     *               one is used and tokens stop working when the server restarts
+     * @param rotationMillis how long each signing key is used for new tokens
+     * @param maxAgeMillis how long a token is accepted after it is issued
+     */
+    public record Settings(boolean enabled, String secret, long rotationMillis, long maxAgeMillis) {
+    }
+
+    /**
+     * What a valid token says
+     *
+     * @param username user the token was issued to
+     * @param issuedAt when the token was issued, in epoch milliseconds
+     * @param keyId rotation period of the key that signed it
+     */
+    public record Claims(String username, long issuedAt, long keyId) {
+    }
+
+    public TokenSigner(Settings settings) {
+        this.settings = settings;
+        if (settings.secret() == null || settings.secret().isEmpty()) {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else {
+            secret = settings.secret().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads settings from the auth.tokens.* properties in auth.properties
+     *
+     * @return settings, with signed tokens disabled if there is no auth.properties
+     */
+    public static Settings loadSettings() {
+        Properties props = AuthProperties.load();
+        return new Settings(
+                Boolean.parseBoolean(props.getProperty("auth.tokens.signed", "false")),
+                props.getProperty("auth.tokens.secret", ""),
+                Long.parseLong(props.getProperty("auth.tokens.rotationMillis", "86400000")),
+                Long.parseLong(props.getProperty("auth.tokens.maxAgeMillis", "86400000")));
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @param token token from a request
+     * @return whether the token is in the signed format, as opposed to a
+     *         random token that has to be looked up
+     */
+    public static boolean isSigned(String token) {
+        return token != null && token.startsWith(PREFIX);
+    }
+
+    /**
+     * @param username user to issue a token to
+     * @return a new token signed with the current key
+     */
+    public String issue(String username) {
+        long now = System.currentTimeMillis();
+        long keyId = now / settings.rotationMillis();
+        String payload = PREFIX + keyId + "." + now + "."
+                + ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8));
+        return payload + "." + ENCODER.encodeToString(sign(keyId, payload));
+    }
+
+    /**
+     * Checks a token's signature, age and revocation
+     *
+     * @param token token from a request
+     * @return what the token says, or null if it is not valid
+     */
+    public Claims verify(String token) {
+        if (!isSigned(token)) {
+            return null;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            long keyId = Long.parseLong(parts[1]);
+            long issuedAt = Long.parseLong(parts[2]);
+            long now = System.currentTimeMillis();
+            if (issuedAt / settings.rotationMillis() != keyId || issuedAt > now
+                    || now - issuedAt > settings.maxAgeMillis()) {
+                return null;
+            }
+
+            String payload = token.substring(0, token.lastIndexOf('.'));
+            if (!MessageDigest.isEqual(sign(keyId, payload), DECODER.decode(parts[4]))) {
+                return null;
+            }
+            if (revoked.containsKey(parts[4])) {
+                return null;
+            }
+            return new Claims(new String(DECODER.decode(parts[3]), StandardCharsets.UTF_8), issuedAt, keyId);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Rejects a token from now on, such as when its user logs out
+     *
+     * @param token token to revoke
+     * @return whether the token was valid before being revoked
+     */
+    public boolean revoke(String token) {
+        Claims claims = verify(token);
+        if (claims == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        revoked.put(token.substring(token.lastIndexOf('.') + 1), claims.issuedAt() + settings.maxAgeMillis());
+        if (now >= nextPurge) {
+            // Expired tokens are rejected anyway, so there is no need to remember them
+            nextPurge = now + settings.rotationMillis();
+            revoked.values().removeIf(expires -> expires < now);
+            keys.keySet().removeIf(keyId -> (keyId + 1) * settings.rotationMillis() + settings.maxAgeMillis() < now);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of revoked tokens still remembered
+     */
+    public int revokedCount() {
+        return revoked.size();
+    }
+
+    private byte[] sign(long keyId, String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keys.computeIfAbsent(keyId, this::deriveKey));
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+        }
+    }
+
+    private SecretKeySpec deriveKey(long keyId) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return new SecretKeySpec(mac.doFinal(("auth-key-" + keyId).getBytes(StandardCharsets.UTF_8)), ALGORITHM);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+        }
+    }
+}
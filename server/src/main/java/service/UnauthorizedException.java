@@ -0,0 +1,11 @@
+package service;
+
+/**
+ * Indicates a request did not carry a valid auth token; it is reported to
+ * the client as 401 Unauthorized
+ */
+public class UnauthorizedException extends Exception {
+    public UnauthorizedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,78 @@
+package service;
+
+import dataaccess.DataAccessException;
+import dataaccess.MySqlUserDAO;
+
+/**
+ * Registers users and logs them in
+ * <p>
+ * Passwords are hashed and checked on the {@link PasswordHasher}'s pool, so
+ * a burst of registrations and logins is turned away with 503 once the pool
+ * is full rather than tying up request threads. A stored hash made with a
+ * lower cost than is used now is replaced after its password checks out.
+ */
+public class UserService {
+
+    private final MySqlUserDAO userDAO;
+    private final PasswordHasher hasher;
+    private final AuthService authService;
+
+    public UserService(MySqlUserDAO userDAO, PasswordHasher hasher, AuthService authService) {
+        this.userDAO = userDAO;
+        this.hasher = hasher;
+        this.authService = authService;
+    }
+
+    /**
+     * @param username name for the new user
+     * @param password the user's password
+     * @param email the user's email address
+     * @return a token for the new user
+     * @throws BadRequestException if any of the fields is missing
+     * @throws AlreadyTakenException if the username belongs to someone else
+     * @throws ServiceUnavailableException if too many passwords are already being hashed
+     * @throws DataAccessException if the user could not be stored
+     */
+    public String register(String username, String password, String email)
+            throws BadRequestException, AlreadyTakenException, ServiceUnavailableException, DataAccessException {
+        if (isBlank(username) || isBlank(password) || isBlank(email)) {
+            throw new BadRequestException("bad request");
+        }
+        if (!userDAO.createUser(username, hasher.hash(password), email)) {
+            throw new AlreadyTakenException("already taken");
+        }
+        return authService.issue(username);
+    }
+
+    /**
+     * @param username user logging in
+     * @param password the user's password
+     * @return a new token for the user
+     * @throws BadRequestException if either field is missing
+     * @throws UnauthorizedException if there is no such user or the password is wrong
+     * @throws ServiceUnavailableException if too many passwords are already being checked
+     * @throws DataAccessException if the user could not be read
+     */
+    public String login(String username, String password)
+            throws BadRequestException, UnauthorizedException, ServiceUnavailableException, DataAccessException {
+        if (isBlank(username) || isBlank(password)) {
+            throw new BadRequestException("bad request");
+        }
+        String hash = userDAO.getPasswordHash(username);
+        if (hash == null || !hasher.verify(password, hash)) {
+            throw new UnauthorizedException("unauthorized");
+        }
+        if (hasher.needsRehash(hash)) {
+            try {
+                userDAO.updatePasswordHash(username, hasher.hash(password));
+            } catch (ServiceUnavailableException ex) {
+                // The old hash still works; it is upgraded at a quieter login
+            }
+        }
+        return authService.issue(username);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
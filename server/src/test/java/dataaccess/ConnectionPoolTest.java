@@ -0,0 +1,125 @@
+package dataaccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the pool against {@link StubDriver} connections, calling its
+ * housekeeping directly instead of waiting for the schedule
+ */
+public class ConnectionPoolTest {
+
+    private final List<ConnectionPool> pools = new ArrayList<>();
+    private String url;
+
+    @AfterEach
+    public void tearDown() {
+        pools.forEach(ConnectionPool::close);
+    }
+
+    @Test
+    @DisplayName("Borrow Times Out When Every Connection Is Out")
+    public void borrowTimeout(TestInfo test) throws DataAccessException, SQLException {
+        ConnectionPool pool = pool(test, new ConnectionPool.Settings(0, 1, 60_000, 50, 60_000, 0));
+        Connection held = pool.borrow();
+
+        long start = System.nanoTime();
+        Assertions.assertThrows(DataAccessException.class, pool::borrow);
+        Assertions.assertTrue(System.nanoTime() - start >= 40_000_000L, "the borrow should wait before giving up");
+        Assertions.assertEquals(1, pool.stats().timeouts());
+
+        held.close();
+        Assertions.assertTrue(held.isClosed());
+        try (Connection again = pool.borrow()) {
+            Assertions.assertFalse(again.isClosed());
+        }
+        Assertions.assertEquals(1, StubDriver.opened(url).size(), "the returned connection should be reused");
+        Assertions.assertEquals(2, pool.stats().borrows());
+    }
+
+    @Test
+    @DisplayName("Dead Idle Connection Is Replaced on Borrow")
+    public void validationOnBorrow(TestInfo test) throws DataAccessException, SQLException {
+        ConnectionPool pool = pool(test, new ConnectionPool.Settings(0, 2, 60_000, 1000, 60_000, 0));
+        pool.borrow().close();
+        StubDriver.StubConnection dead = StubDriver.opened(url).get(0);
+        dead.valid = false;
+
+        try (Connection connection = pool.borrow()) {
+            Assertions.assertFalse(connection.isClosed());
+        }
+        Assertions.assertTrue(dead.closed, "the dead connection should be closed");
+        Assertions.assertEquals(2, StubDriver.opened(url).size());
+        ConnectionPool.Stats stats = pool.stats();
+        Assertions.assertEquals(1, stats.evicted());
+        Assertions.assertEquals(2, stats.created());
+        Assertions.assertEquals(1, stats.idle());
+    }
+
+    @Test
+    @DisplayName("Idle Connections Are Closed Down to the Minimum")
+    public void idleEviction(TestInfo test) throws DataAccessException, SQLException, InterruptedException {
+        ConnectionPool pool = pool(test, new ConnectionPool.Settings(1, 3, 1, 1000, 60_000, 0));
+        List<Connection> borrowed = List.of(pool.borrow(), pool.borrow(), pool.borrow());
+        for (Connection connection : borrowed) {
+            connection.close();
+        }
+        Assertions.assertEquals(3, pool.stats().idle());
+
+        Thread.sleep(10);
+        pool.housekeeping();
+
+        ConnectionPool.Stats stats = pool.stats();
+        Assertions.assertEquals(1, stats.idle());
+        Assertions.assertEquals(2, stats.evicted());
+        Assertions.assertEquals(2, StubDriver.opened(url).stream().filter(c -> c.closed).count());
+        // The last returned is the most recently used, so it is the one kept
+        Assertions.assertFalse(StubDriver.opened(url).get(2).closed);
+    }
+
+    @Test
+    @DisplayName("Connection Held Too Long Is Reported Once")
+    public void leak(TestInfo test) throws DataAccessException, SQLException, InterruptedException {
+        ConnectionPool pool = pool(test, new ConnectionPool.Settings(0, 2, 60_000, 1000, 1, 0));
+        Connection held = pool.borrow();
+        try (Connection brief = pool.borrow()) {
+            Assertions.assertFalse(brief.isClosed());
+        }
+
+        Thread.sleep(10);
+        pool.housekeeping();
+        pool.housekeeping();
+
+        Assertions.assertEquals(1, pool.stats().leaks(), "only the connection still out should be reported");
+        held.close();
+        Assertions.assertThrows(SQLException.class, () -> held.prepareStatement("SELECT 1"),
+                "a returned connection should not be usable");
+    }
+
+    @Test
+    @DisplayName("Uncommitted Work Is Rolled Back on Return")
+    public void resetOnReturn(TestInfo test) throws DataAccessException, SQLException {
+        ConnectionPool pool = pool(test, new ConnectionPool.Settings(0, 1, 60_000, 1000, 60_000, 0));
+        try (Connection connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+        }
+        try (Connection connection = pool.borrow()) {
+            Assertions.assertTrue(connection.getAutoCommit());
+        }
+    }
+
+    private ConnectionPool pool(TestInfo test, ConnectionPool.Settings settings) {
+        url = StubDriver.url("pool-" + test.getTestMethod().orElseThrow().getName());
+        ConnectionPool pool = new ConnectionPool(url, "user", "password", "chess", settings);
+        pools.add(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,141 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Move log kept in memory the way the MySQL tables keep it: a row per move
+ * keyed by game and ply, snapshots as FEN, and appends that are all or
+ * nothing. Tests can make chosen appends fail.
+ */
+class FakeMoveLog extends MySqlMoveLog {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, TreeMap<Integer, ChessMove>> moves = new HashMap<>();
+    private final Map<Integer, TreeMap<Integer, String>> snapshots = new HashMap<>();
+    // Gives the error an append fails a transaction with, or null to let it through
+    private volatile Function<Append, SQLException> failure = append -> null;
+
+    final AtomicInteger transactions = new AtomicInteger();
+
+    FakeMoveLog(int snapshotInterval) throws DataAccessException {
+        super(snapshotInterval, false);
+    }
+
+    /**
+     * @param failure gives the error any append in a transaction fails it
+     *                with, or null to let the append through
+     */
+    void failWith(Function<Append, SQLException> failure) {
+        this.failure = failure;
+    }
+
+    @Override
+    public void create(int gameID, ChessGame game) {
+        lock.lock();
+        try {
+            snapshots.computeIfAbsent(gameID, key -> new TreeMap<>()).put(0, Fen.format(game));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void appendAll(List<Append> appends) throws DataAccessException {
+        lock.lock();
+        try {
+            transactions.incrementAndGet();
+            for (Append append : appends) {
+                SQLException ex = failure.apply(append);
+                if (ex == null && moves.getOrDefault(append.gameID(), new TreeMap<>()).containsKey(append.ply())) {
+                    ex = new SQLIntegrityConstraintViolationException("Duplicate entry for game_moves.PRIMARY");
+                }
+                if (ex != null) {
+                    throw new DataAccessException("failed to append " + appends.size() + " move(s)", ex);
+                }
+            }
+            for (Append append : appends) {
+                moves.computeIfAbsent(append.gameID(), key -> new TreeMap<>()).put(append.ply(), append.move());
+                if (append.after() != null) {
+                    snapshots.computeIfAbsent(append.gameID(), key -> new TreeMap<>())
+                            .put(append.ply(), Fen.format(append.after()));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Loaded load(int gameID) throws DataAccessException {
+        lock.lock();
+        try {
+            TreeMap<Integer, String> gameSnapshots = snapshots.get(gameID);
+            if (gameSnapshots == null) {
+                return null;
+            }
+            var latest = gameSnapshots.lastEntry();
+            var after = new TreeMap<>(moves.getOrDefault(gameID, new TreeMap<>()).tailMap(latest.getKey(), false));
+            return replay(gameID, Fen.parse(latest.getValue()), latest.getKey(), after);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<ChessMove> history(int gameID) {
+        lock.lock();
+        try {
+            return new ArrayList<>(moves.getOrDefault(gameID, new TreeMap<>()).values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            moves.clear();
+            snapshots.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return plies logged for a game, in order
+     */
+    List<Integer> plies(int gameID) {
+        lock.lock();
+        try {
+            return new ArrayList<>(moves.getOrDefault(gameID, new TreeMap<>()).keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return plies a game was snapshotted at, in order
+     */
+    List<Integer> snapshotPlies(int gameID) {
+        lock.lock();
+        try {
+            return new ArrayList<>(snapshots.getOrDefault(gameID, new TreeMap<>()).keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
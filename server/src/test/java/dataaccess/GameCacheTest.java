@@ -0,0 +1,182 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+
+/**
+ * Runs the cache over a {@link FakeMoveLog} and a real {@link MoveWriter},
+ * so loads, write-behind and reloads go through the same paths as in MySQL
+ */
+public class GameCacheTest {
+
+    // Knights out and back, so any number of plies is legal
+    private static final ChessMove[] SHUFFLE = {move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7),
+            move(6, 6, 8, 7)};
+
+    private FakeMoveLog log;
+    private MoveWriter writer;
+    private GameCache cache;
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        log = new FakeMoveLog(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Game Loads From the Log Once, Then Hits")
+    public void loadsOnce() throws DataAccessException, InvalidMoveException {
+        ChessGame expected = new ChessGame();
+        log.create(1, expected);
+        for (int ply = 1; ply <= 6; ply++) {
+            expected.makeMove(SHUFFLE[(ply - 1) % 4]);
+            log.append(1, ply, SHUFFLE[(ply - 1) % 4], expected);
+        }
+        start(new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 100, 60_000, 60_000, 3),
+                new GameCache.Settings(16, 600_000, 8));
+
+        GameCache.Position position = cache.position(1);
+        Assertions.assertEquals(6, position.ply());
+        Assertions.assertEquals(expected, position.game());
+        Assertions.assertEquals(expected, cache.get(1));
+        Assertions.assertNull(cache.position(2), "a game with no log should not load");
+
+        GameCache.Stats stats = cache.stats();
+        Assertions.assertEquals(1, stats.hits());
+        Assertions.assertEquals(2, stats.misses());
+        Assertions.assertEquals(1, stats.size(), "a missing game should not stay cached");
+    }
+
+    @Test
+    @DisplayName("Least Recently Used Game Is Evicted and Reloaded After Its Queued Moves")
+    public void evictAndReload() throws DataAccessException, InvalidMoveException {
+        start(new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 100, 60_000, 60_000, 3),
+                new GameCache.Settings(2, 600_000, 8));
+        cache.create(1, new ChessGame());
+        cache.create(2, new ChessGame());
+        ChessGame expected = play(1, 6);
+        cache.position(2);
+        Assertions.assertEquals(List.of(), log.plies(1), "the moves should still be queued");
+
+        cache.create(3, new ChessGame());
+        Assertions.assertEquals(1, cache.stats().evictions(), "game 1 was the least recently used");
+        Assertions.assertEquals(2, cache.stats().size());
+
+        long misses = cache.stats().misses();
+        GameCache.Position position = cache.position(1);
+        Assertions.assertEquals(6, position.ply(), "the reload should wait for the queued moves");
+        Assertions.assertEquals(expected, position.game());
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6), log.plies(1));
+        Assertions.assertEquals(misses + 1, cache.stats().misses());
+        Assertions.assertEquals(2, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("Idle Game Expires and Reloads After Its Queued Moves")
+    public void expireAndReload() throws DataAccessException, InvalidMoveException, InterruptedException {
+        start(new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 100, 60_000, 60_000, 3),
+                new GameCache.Settings(16, 1, 8));
+        cache.create(1, new ChessGame());
+        ChessGame expected = play(1, 5);
+
+        Thread.sleep(10);
+        cache.expireIdle();
+        Assertions.assertEquals(1, cache.stats().expirations());
+        Assertions.assertEquals(0, cache.stats().size());
+        Assertions.assertNull(cache.applied(1, "move-5"), "expired games keep no keys");
+
+        GameCache.Position position = cache.position(1);
+        Assertions.assertEquals(5, position.ply());
+        Assertions.assertEquals(expected, position.game());
+        Assertions.assertEquals(List.of(0, 4), log.snapshotPlies(1));
+    }
+
+    @Test
+    @DisplayName("Move Out of Turn Is Refused Before It Is Made")
+    public void outOfTurn() throws DataAccessException, InvalidMoveException {
+        start(new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 100, 60_000, 60_000, 3),
+                new GameCache.Settings(16, 600_000, 8));
+        cache.create(1, new ChessGame());
+
+        InvalidMoveException ex = Assertions.assertThrows(InvalidMoveException.class,
+                () -> cache.makeMove(1, SHUFFLE[0], ChessGame.TeamColor.BLACK, "black", null));
+        Assertions.assertEquals("it is not your turn", ex.getMessage());
+        Assertions.assertEquals(0, cache.position(1).ply());
+
+        Assertions.assertEquals(1, cache.makeMove(1, SHUFFLE[0], ChessGame.TeamColor.WHITE, "white", null).ply());
+        Assertions.assertThrows(InvalidMoveException.class,
+                () -> cache.makeMove(1, SHUFFLE[2], ChessGame.TeamColor.WHITE, "white", null));
+        writer.drain();
+        Assertions.assertEquals(List.of(1), log.plies(1), "refused moves should not be logged");
+    }
+
+    @Test
+    @DisplayName("Game Whose Moves Were Dropped Reloads As Saved, Other Games Untouched")
+    public void lostGameReloads() throws DataAccessException, InvalidMoveException {
+        start(new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 100, 60_000, 60_000, 3),
+                new GameCache.Settings(16, 600_000, 8));
+        cache.create(1, new ChessGame());
+        cache.create(2, new ChessGame());
+        log.failWith(append -> append.gameID() == 1 ? new SQLIntegrityConstraintViolationException("bad row") : null);
+
+        cache.makeMove(1, SHUFFLE[0], ChessGame.TeamColor.WHITE, "white", "k1");
+        cache.makeMove(2, SHUFFLE[0], ChessGame.TeamColor.WHITE, "white", "k2");
+        writer.drain();
+        Assertions.assertTrue(writer.lost(1));
+
+        Assertions.assertEquals(0, cache.position(1).ply(), "game 1 should be back where its log ends");
+        Assertions.assertNull(cache.applied(1, "k1"), "the move under k1 was never saved");
+        Assertions.assertEquals(1, cache.position(2).ply());
+        Assertions.assertNotNull(cache.applied(2, "k2"), "game 2 should keep its cached moves");
+        Assertions.assertFalse(writer.lost(1));
+
+        log.failWith(append -> null);
+        Assertions.assertEquals(1, cache.makeMove(1, SHUFFLE[0], ChessGame.TeamColor.WHITE, "white", "k1").ply());
+        writer.drain();
+        Assertions.assertEquals(List.of(1), log.plies(1));
+    }
+
+    /**
+     * Makes moves in a cached game under keys named after their plies
+     *
+     * @return the position they lead to
+     */
+    private ChessGame play(int gameID, int plies) throws DataAccessException, InvalidMoveException {
+        ChessGame expected = new ChessGame();
+        for (int ply = 1; ply <= plies; ply++) {
+            ChessMove move = SHUFFLE[(ply - 1) % 4];
+            expected.makeMove(move);
+            ChessGame.TeamColor color = ply % 2 == 1 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            Assertions.assertEquals(ply, cache.makeMove(gameID, move, color, "player", "move-" + ply).ply());
+        }
+        return expected;
+    }
+
+    private void start(MoveWriter.Settings writerSettings, GameCache.Settings cacheSettings) {
+        writer = new MoveWriter(log, writerSettings);
+        cache = new GameCache(log, writer, cacheSettings);
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,181 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the writer against a {@link FakeMoveLog} whose appends can be made
+ * to fail, checking that a failing game never costs another game its moves
+ */
+public class MoveWriterTest {
+
+    private static final ChessMove MOVE = new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null);
+    private static final ChessGame AFTER = new ChessGame();
+
+    private FakeMoveLog log;
+    private MoveWriter writer;
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        log = new FakeMoveLog(20);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Group Commit Failure Only Fails Its Own Game")
+    public void batchedFailureStaysInItsGame() throws Exception {
+        writer = new MoveWriter(log, new MoveWriter.Settings(MoveWriter.Durability.BATCHED, 100, 50, 10_000, 5));
+        CountDownLatch release = new CountDownLatch(1);
+        log.failWith(append -> {
+            if (append.gameID() == 3) {
+                // Holds the writer so games 1 and 2 queue up behind it and share the next batch
+                await(release);
+            }
+            return append.gameID() == 1 ? new SQLIntegrityConstraintViolationException("bad row") : null;
+        });
+
+        CompletableFuture<Void> warmUp = CompletableFuture.runAsync(() -> append(3, 1));
+        awaitTransactions(1);
+        CompletableFuture<Void> failing = CompletableFuture.runAsync(() -> append(1, 1));
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() -> append(2, 1));
+        while (writer.stats().queueDepth() < 2) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        warmUp.get(5, TimeUnit.SECONDS);
+        other.get(5, TimeUnit.SECONDS);
+        ExecutionException ex = Assertions.assertThrows(ExecutionException.class,
+                () -> failing.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(DataAccessException.class, ex.getCause().getCause());
+        Assertions.assertEquals(List.of(1), log.plies(2), "game 2 should be written even though it shared the batch");
+        Assertions.assertEquals(List.of(), log.plies(1));
+        Assertions.assertEquals(4, log.transactions.get(), "game 3, the shared batch, then games 1 and 2 alone");
+    }
+
+    @Test
+    @DisplayName("Permanent Failure Drops Only That Game, Later Moves Included")
+    public void asyncPermanentFailure() throws DataAccessException, InterruptedException {
+        writer = new MoveWriter(log, new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 2, 60_000, 60_000, 5));
+        CountDownLatch release = new CountDownLatch(1);
+        log.failWith(append -> {
+            if (append.gameID() != 1 || append.ply() != 1) {
+                return null;
+            }
+            // Holds the first batch until ply 2 of game 1 is queued behind it
+            await(release);
+            return new SQLIntegrityConstraintViolationException("bad row");
+        });
+
+        writer.append(1, 1, MOVE, AFTER);
+        writer.append(2, 1, MOVE, AFTER);
+        awaitTransactions(1);
+        writer.append(1, 2, MOVE, AFTER);
+        writer.append(2, 2, MOVE, AFTER);
+        release.countDown();
+        writer.drain();
+
+        Assertions.assertEquals(List.of(1, 2), log.plies(2));
+        Assertions.assertEquals(List.of(), log.plies(1), "ply 2 alone would leave a gap at ply 1");
+        Assertions.assertTrue(writer.lost(1));
+        Assertions.assertFalse(writer.lost(2));
+        Assertions.assertEquals(2, writer.stats().dropped());
+        Assertions.assertThrows(DataAccessException.class, () -> writer.append(1, 3, MOVE, AFTER),
+                "moves after the gap should be refused until the game is reloaded");
+
+        writer.reloading(1);
+        log.failWith(append -> null);
+        writer.append(1, 1, MOVE, AFTER);
+        writer.drain();
+        Assertions.assertEquals(List.of(1), log.plies(1));
+    }
+
+    @Test
+    @DisplayName("Transient Failure Is Retried Without Holding Up Other Games")
+    public void asyncTransientFailure() throws DataAccessException {
+        writer = new MoveWriter(log, new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 100, 10, 60_000, 5));
+        AtomicInteger attempts = new AtomicInteger();
+        log.failWith(append -> append.gameID() == 1 && attempts.incrementAndGet() <= 2
+                ? new SQLTransientConnectionException("connection reset") : null);
+
+        writer.append(1, 1, MOVE, AFTER);
+        writer.append(2, 1, MOVE, AFTER);
+        writer.drain();
+
+        Assertions.assertEquals(List.of(1), log.plies(1));
+        Assertions.assertEquals(List.of(1), log.plies(2));
+        Assertions.assertFalse(writer.lost(1));
+        MoveWriter.Stats stats = writer.stats();
+        Assertions.assertEquals(0, stats.dropped());
+        Assertions.assertEquals(2, stats.movesWritten());
+        Assertions.assertEquals(0, stats.queueDepth());
+    }
+
+    @Test
+    @DisplayName("Game Is Dropped Once Its Retries Run Out")
+    public void retriesRunOut() throws DataAccessException {
+        writer = new MoveWriter(log, new MoveWriter.Settings(MoveWriter.Durability.ASYNC, 100, 5, 60_000, 2));
+        AtomicInteger attempts = new AtomicInteger();
+        log.failWith(append -> {
+            if (append.gameID() != 1) {
+                return null;
+            }
+            attempts.incrementAndGet();
+            return new SQLTransientConnectionException("connection reset");
+        });
+
+        writer.append(1, 1, MOVE, AFTER);
+        writer.append(2, 1, MOVE, AFTER);
+        writer.drain();
+
+        Assertions.assertEquals(List.of(1), log.plies(2));
+        Assertions.assertEquals(List.of(), log.plies(1));
+        Assertions.assertTrue(writer.lost(1));
+        Assertions.assertEquals(1, writer.stats().dropped());
+        // The shared batch and game 1 alone, then two retries
+        Assertions.assertEquals(4, attempts.get());
+    }
+
+    private void append(int gameID, int ply) {
+        try {
+            writer.append(gameID, ply, MOVE, AFTER);
+        } catch (DataAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private void awaitTransactions(int count) throws InterruptedException {
+        while (log.transactions.get() < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Covers loading a game from its latest snapshot plus the moves after it,
+ * through the same replay MySQL loads use
+ */
+public class MySqlMoveLogTest {
+
+    // Knights out and back, so any number of plies is legal
+    private static final ChessMove[] SHUFFLE = {move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7),
+            move(6, 6, 8, 7)};
+
+    @Test
+    @DisplayName("Snapshots Land on the Interval")
+    public void snapshotDue() throws DataAccessException {
+        FakeMoveLog log = new FakeMoveLog(4);
+        Assertions.assertFalse(log.snapshotDue(1));
+        Assertions.assertTrue(log.snapshotDue(4));
+        Assertions.assertTrue(log.snapshotDue(8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FakeMoveLog(0));
+    }
+
+    @Test
+    @DisplayName("Game Loads From Its Latest Snapshot Plus Later Moves")
+    public void loadFromSnapshot() throws DataAccessException, InvalidMoveException {
+        FakeMoveLog log = new FakeMoveLog(4);
+        log.create(1, new ChessGame());
+        ChessGame expected = new ChessGame();
+        for (int ply = 1; ply <= 10; ply++) {
+            expected.makeMove(SHUFFLE[(ply - 1) % 4]);
+            log.append(1, ply, SHUFFLE[(ply - 1) % 4], expected);
+        }
+        Assertions.assertEquals(List.of(0, 4, 8), log.snapshotPlies(1));
+
+        MySqlMoveLog.Loaded loaded = log.load(1);
+        Assertions.assertEquals(10, loaded.plies());
+        Assertions.assertEquals(expected, loaded.game());
+        Assertions.assertEquals(10, log.history(1).size());
+        Assertions.assertNull(log.load(2), "a game with no log should not load");
+    }
+
+    @Test
+    @DisplayName("Replay Starts at the Snapshot's Ply")
+    public void replay() throws DataAccessException, InvalidMoveException {
+        ChessGame atEight = new ChessGame();
+        for (int ply = 1; ply <= 8; ply++) {
+            atEight.makeMove(SHUFFLE[(ply - 1) % 4]);
+        }
+        SortedMap<Integer, ChessMove> after = new TreeMap<>();
+        after.put(9, SHUFFLE[0]);
+        after.put(10, SHUFFLE[1]);
+
+        MySqlMoveLog.Loaded loaded = MySqlMoveLog.replay(1, new ChessGame(atEight), 8, after);
+        Assertions.assertEquals(10, loaded.plies());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, loaded.game().getTeamTurn());
+
+        MySqlMoveLog.Loaded bare = MySqlMoveLog.replay(1, new ChessGame(atEight), 8, new TreeMap<>());
+        Assertions.assertEquals(8, bare.plies());
+        Assertions.assertEquals(atEight, bare.game());
+    }
+
+    @Test
+    @DisplayName("Log With a Missing Ply or a Bad Move Does Not Load")
+    public void brokenLog() {
+        SortedMap<Integer, ChessMove> gap = new TreeMap<>();
+        gap.put(1, SHUFFLE[0]);
+        gap.put(3, SHUFFLE[2]);
+        DataAccessException missing = Assertions.assertThrows(DataAccessException.class,
+                () -> MySqlMoveLog.replay(7, new ChessGame(), 0, gap));
+        Assertions.assertTrue(missing.getMessage().contains("missing ply 2"), missing.getMessage());
+
+        SortedMap<Integer, ChessMove> illegal = new TreeMap<>();
+        illegal.put(1, move(1, 1, 5, 1));
+        Assertions.assertThrows(DataAccessException.class, () -> MySqlMoveLog.replay(7, new ChessGame(), 0, illegal));
+    }
+
+    @Test
+    @DisplayName("Failed Append Writes None of Its Moves")
+    public void appendIsAllOrNothing() throws DataAccessException {
+        FakeMoveLog log = new FakeMoveLog(20);
+        log.create(1, new ChessGame());
+        log.append(1, 1, SHUFFLE[0], null);
+
+        List<MySqlMoveLog.Append> appends = new ArrayList<>();
+        appends.add(new MySqlMoveLog.Append(1, 2, SHUFFLE[1], null));
+        appends.add(new MySqlMoveLog.Append(1, 1, SHUFFLE[0], null));
+        Assertions.assertThrows(DataAccessException.class, () -> log.appendAll(appends), "ply 1 is already logged");
+        Assertions.assertEquals(List.of(1), log.plies(1));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,54 @@
+package dataaccess;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RecentMovesTest {
+
+    private static final ChessMove E4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    private static final ChessMove E5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+
+    @Test
+    @DisplayName("Key Finds Its Move and Who Made It")
+    public void sameKey() {
+        RecentMoves recent = new RecentMoves(4);
+        GameCache.AppliedMove white = new GameCache.AppliedMove("white", 1, E4);
+        recent.put("k", white);
+
+        Assertions.assertEquals(white, recent.get("k"));
+        Assertions.assertNull(recent.get("other"));
+    }
+
+    @Test
+    @DisplayName("Another User's Move Replaces the Key")
+    public void otherUser() {
+        RecentMoves recent = new RecentMoves(4);
+        recent.put("k", new GameCache.AppliedMove("white", 1, E4));
+        GameCache.AppliedMove black = new GameCache.AppliedMove("black", 2, E5);
+        recent.put("k", black);
+
+        Assertions.assertEquals(black, recent.get("k"), "a retry by white should no longer match");
+    }
+
+    @Test
+    @DisplayName("Oldest Key Leaves When the Window Is Full")
+    public void evicted() {
+        RecentMoves recent = new RecentMoves(2);
+        recent.put("1", new GameCache.AppliedMove("white", 1, E4));
+        recent.put("2", new GameCache.AppliedMove("black", 2, E5));
+        // Looking a key up does not keep it in the window
+        Assertions.assertNotNull(recent.get("1"));
+        recent.put("3", new GameCache.AppliedMove("white", 3, E4));
+
+        Assertions.assertNull(recent.get("1"));
+        Assertions.assertNotNull(recent.get("2"));
+        Assertions.assertNotNull(recent.get("3"));
+
+        RecentMoves none = new RecentMoves(0);
+        none.put("1", new GameCache.AppliedMove("white", 1, E4));
+        Assertions.assertNull(none.get("1"));
+    }
+}
@@ -0,0 +1,97 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StatementCacheTest {
+
+    private final StubDriver.StubConnection connection = new StubDriver.StubConnection();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Test
+    @DisplayName("Closed Statement Is Reused for the Same SQL")
+    public void reuse() throws SQLException {
+        StatementCache cache = new StatementCache(connection.proxy, 4, hits, misses);
+        PreparedStatement first = cache.prepare("SELECT 1", connection.proxy);
+        first.close();
+        Assertions.assertTrue(first.isClosed());
+        Assertions.assertThrows(SQLException.class, () -> first.setInt(1, 1), "a closed handle should not be usable");
+
+        PreparedStatement second = cache.prepare("SELECT 1", connection.proxy);
+        Assertions.assertEquals(1, connection.statements.size(), "the statement should be prepared once");
+        Assertions.assertEquals(1, connection.statements.get(0).cleared, "parameters should be cleared on close");
+        Assertions.assertFalse(connection.statements.get(0).closed);
+        Assertions.assertSame(connection.proxy, second.getConnection());
+        Assertions.assertEquals(1, hits.get());
+        Assertions.assertEquals(1, misses.get());
+    }
+
+    @Test
+    @DisplayName("Same SQL Already in Use Gets Its Own Statement")
+    public void inUse() throws SQLException {
+        StatementCache cache = new StatementCache(connection.proxy, 4, hits, misses);
+        PreparedStatement outer = cache.prepare("SELECT 1", connection.proxy);
+        PreparedStatement inner = cache.prepare("SELECT 1", connection.proxy);
+        inner.close();
+        outer.close();
+
+        Assertions.assertEquals(2, connection.statements.size());
+        Assertions.assertTrue(connection.statements.get(1).closed, "the uncached copy should really close");
+        Assertions.assertFalse(connection.statements.get(0).closed);
+        Assertions.assertEquals(2, misses.get());
+    }
+
+    @Test
+    @DisplayName("Least Recently Used Statement Is Evicted and Closed")
+    public void evictsLeastRecentlyUsed() throws SQLException {
+        StatementCache cache = new StatementCache(connection.proxy, 2, hits, misses);
+        cache.prepare("A", connection.proxy).close();
+        cache.prepare("B", connection.proxy).close();
+        cache.prepare("A", connection.proxy).close();
+        // B is now the least recently used
+        PreparedStatement c = cache.prepare("C", connection.proxy);
+
+        Assertions.assertTrue(statement("B").closed);
+        Assertions.assertFalse(statement("A").closed);
+        c.close();
+        Assertions.assertFalse(statement("C").closed);
+
+        cache.prepare("B", connection.proxy).close();
+        Assertions.assertEquals(1, hits.get());
+        Assertions.assertEquals(4, misses.get(), "A, B, C, then B again after its eviction");
+    }
+
+    @Test
+    @DisplayName("Statement Evicted While in Use Closes When Its Borrower Is Done")
+    public void evictedInUse() throws SQLException {
+        StatementCache cache = new StatementCache(connection.proxy, 1, hits, misses);
+        PreparedStatement a = cache.prepare("A", connection.proxy);
+        cache.prepare("B", connection.proxy).close();
+
+        Assertions.assertFalse(statement("A").closed, "A is still being used");
+        a.close();
+        Assertions.assertTrue(statement("A").closed);
+    }
+
+    @Test
+    @DisplayName("Capacity 0 Caches Nothing")
+    public void disabled() throws SQLException {
+        StatementCache cache = new StatementCache(connection.proxy, 0, hits, misses);
+        cache.prepare("A", connection.proxy).close();
+        cache.prepare("A", connection.proxy).close();
+
+        Assertions.assertEquals(2, connection.statements.size());
+        Assertions.assertTrue(connection.statements.stream().allMatch(statement -> statement.closed));
+        Assertions.assertEquals(0, hits.get());
+    }
+
+    private StubDriver.StubStatement statement(String sql) {
+        return connection.statements.stream().filter(statement -> statement.sql.equals(sql)).findFirst().orElseThrow();
+    }
+}
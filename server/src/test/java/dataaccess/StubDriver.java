@@ -0,0 +1,157 @@
+package dataaccess;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver for {@code jdbc:stub:<name>} URLs whose connections and
+ * statements only record what is done to them, so the pool can be tested
+ * without a database. Each URL name keeps its own list of connections.
+ */
+class StubDriver implements Driver {
+
+    private static final String PREFIX = "jdbc:stub:";
+    private static final Map<String, List<StubConnection>> OPENED = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new StubDriver());
+        } catch (SQLException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    /**
+     * @param name name to put in the URL, unique to the test
+     * @return a URL the stub driver opens connections for
+     */
+    static String url(String name) {
+        return PREFIX + name;
+    }
+
+    /**
+     * @return connections opened for a URL, oldest first
+     */
+    static List<StubConnection> opened(String url) {
+        return OPENED.computeIfAbsent(url, key -> new CopyOnWriteArrayList<>());
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        StubConnection connection = new StubConnection();
+        opened(url).add(connection);
+        return connection.proxy;
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getGlobal();
+    }
+
+    /**
+     * A physical connection as the pool sees it
+     */
+    static class StubConnection {
+        final List<StubStatement> statements = new CopyOnWriteArrayList<>();
+        final Connection proxy;
+        // Set to false to have isValid fail, as for a connection the server dropped
+        volatile boolean valid = true;
+        volatile boolean closed;
+        private boolean autoCommit = true;
+
+        StubConnection() {
+            proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (self, method, args) -> switch (method.getName()) {
+                        case "isValid" -> valid && !closed;
+                        case "isClosed" -> closed;
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "prepareStatement" -> {
+                            StubStatement statement = new StubStatement((String) args[0]);
+                            statements.add(statement);
+                            yield statement.proxy;
+                        }
+                        case "equals" -> self == args[0];
+                        case "hashCode" -> System.identityHashCode(self);
+                        case "toString" -> "stub connection";
+                        default -> null;
+                    });
+        }
+    }
+
+    /**
+     * A physical prepared statement as the statement cache sees it
+     */
+    static class StubStatement {
+        final String sql;
+        final PreparedStatement proxy;
+        volatile boolean closed;
+        volatile int cleared;
+
+        StubStatement(String sql) {
+            this.sql = sql;
+            proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (self, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "clearParameters" -> {
+                            cleared++;
+                            yield null;
+                        }
+                        case "equals" -> self == args[0];
+                        case "hashCode" -> System.identityHashCode(self);
+                        case "toString" -> "stub statement " + sql;
+                        default -> null;
+                    });
+        }
+    }
+}
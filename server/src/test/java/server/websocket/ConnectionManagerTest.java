@@ -0,0 +1,183 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.javalin.websocket.WsContext;
+import io.javalin.websocket.WsMessageContext;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Sends to a session that never finishes a write unless told to, so
+ * messages pile up in its outbox the way they do for a slow client
+ */
+public class ConnectionManagerTest {
+
+    private static final ChessMove MOVE = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+
+    @Test
+    @DisplayName("New LOAD_GAME Replaces Queued Boards and Moves")
+    public void coalesce() {
+        ConnectionManager connections = new ConnectionManager(new ConnectionManager.Settings(8, 60_000));
+        StalledClient client = new StalledClient();
+        connections.send(client.context, new NotificationMessage("writing"));
+        connections.send(client.context, new MoveMessage(1, MOVE));
+        connections.send(client.context, new MoveMessage(2, MOVE));
+        connections.send(client.context, board(2));
+        connections.send(client.context, new NotificationMessage("joined"));
+        connections.send(client.context, board(3));
+
+        ConnectionManager.Stats stats = connections.stats();
+        Assertions.assertEquals(3, stats.coalesced(), "both moves and the first board");
+        Assertions.assertEquals(2, stats.queued());
+        Assertions.assertEquals(0, stats.dropped());
+
+        client.acknowledgeAll();
+        Assertions.assertEquals(List.of("n:writing", "n:joined", "g:3"), client.written);
+        Assertions.assertEquals(3, connections.stats().sent());
+        Assertions.assertEquals(0, connections.stats().queued());
+    }
+
+    @Test
+    @DisplayName("Full Outbox Drops Its Oldest Move or Notification")
+    public void dropOldest() {
+        ConnectionManager connections = new ConnectionManager(new ConnectionManager.Settings(3, 60_000));
+        StalledClient client = new StalledClient();
+        connections.send(client.context, new ErrorMessage("writing"));
+        connections.send(client.context, new ErrorMessage("must arrive"));
+        connections.send(client.context, new MoveMessage(1, MOVE));
+        connections.send(client.context, new NotificationMessage("first"));
+        Assertions.assertEquals(3, connections.stats().queued());
+
+        connections.send(client.context, new MoveMessage(2, MOVE));
+        connections.send(client.context, new NotificationMessage("second"));
+
+        ConnectionManager.Stats stats = connections.stats();
+        Assertions.assertEquals(2, stats.dropped(), "move 1, then the first notification");
+        Assertions.assertEquals(3, stats.queued());
+        Assertions.assertEquals(3, stats.maxQueued());
+        Assertions.assertTrue(client.open);
+
+        client.acknowledgeAll();
+        Assertions.assertEquals(List.of("e:writing", "e:must arrive", "m:2", "n:second"), client.written);
+    }
+
+    @Test
+    @DisplayName("Session Too Far Behind Is Closed With 1013")
+    public void tooFarBehind() throws InterruptedException {
+        ConnectionManager connections = new ConnectionManager(new ConnectionManager.Settings(8, 50));
+        StalledClient client = new StalledClient();
+        connections.send(client.context, new NotificationMessage("stuck"));
+        connections.send(client.context, new MoveMessage(1, MOVE));
+
+        Thread.sleep(100);
+        connections.send(client.context, new MoveMessage(2, MOVE));
+
+        Assertions.assertFalse(client.open);
+        Assertions.assertEquals(1013, client.closeCode);
+        ConnectionManager.Stats stats = connections.stats();
+        Assertions.assertEquals(1, stats.disconnected());
+        Assertions.assertEquals(0, stats.queued(), "a closed session's outbox is let go");
+
+        connections.send(client.context, new MoveMessage(3, MOVE));
+        client.acknowledgeAll();
+        Assertions.assertEquals(List.of("n:stuck"), client.written, "nothing more is written once closed");
+    }
+
+    @Test
+    @DisplayName("Session Whose Outbox Is Full of Messages It Must Get Is Closed")
+    public void fullOfUndroppable() {
+        ConnectionManager connections = new ConnectionManager(new ConnectionManager.Settings(2, 60_000));
+        StalledClient client = new StalledClient();
+        for (int i = 0; i < 3; i++) {
+            connections.send(client.context, new ErrorMessage("error " + i));
+        }
+        Assertions.assertTrue(client.open);
+
+        connections.send(client.context, new ErrorMessage("one too many"));
+        Assertions.assertFalse(client.open);
+        Assertions.assertEquals(1013, client.closeCode);
+        Assertions.assertEquals(1, connections.stats().disconnected());
+        Assertions.assertEquals(0, connections.stats().dropped());
+    }
+
+    private static LoadGameMessage board(int sequence) {
+        return new LoadGameMessage(new ChessGame(), sequence, null);
+    }
+
+    /**
+     * A session whose writes only finish when the test acknowledges them
+     */
+    private static class StalledClient {
+        private final WsContext context;
+        private final ConcurrentLinkedQueue<WriteCallback> unacknowledged = new ConcurrentLinkedQueue<>();
+        // Each message as its type's initial and what tells it apart, in the order writes were started
+        private final List<String> written = new ArrayList<>();
+        private volatile boolean open = true;
+        private volatile int closeCode;
+
+        StalledClient() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString") && args.length == 2) {
+                            written.add(label(JsonParser.parseString((String) args[0]).getAsJsonObject()));
+                            unacknowledged.add((WriteCallback) args[1]);
+                        }
+                        return null;
+                    });
+            Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> open;
+                        case "getRemote" -> remote;
+                        case "close" -> {
+                            open = false;
+                            if (args != null && args.length == 2) {
+                                closeCode = (Integer) args[0];
+                            }
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "stalled session";
+                        default -> null;
+                    });
+            context = new WsMessageContext("stalled", session, "");
+        }
+
+        /**
+         * Finishes every write, including ones started by finishing others
+         */
+        void acknowledgeAll() {
+            WriteCallback callback;
+            while ((callback = unacknowledged.poll()) != null) {
+                callback.writeSuccess();
+            }
+        }
+
+        private static String label(JsonObject message) {
+            return switch (ServerMessage.ServerMessageType.valueOf(message.get("serverMessageType").getAsString())) {
+                case NOTIFICATION -> "n:" + message.get("message").getAsString();
+                case ERROR -> "e:" + message.get("errorMessage").getAsString();
+                case MOVE -> "m:" + message.get("sequence").getAsInt();
+                case LOAD_GAME -> "g:" + message.get("sequence").getAsInt();
+            };
+        }
+    }
+}
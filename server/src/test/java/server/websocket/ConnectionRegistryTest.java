@@ -0,0 +1,154 @@
+package server.websocket;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConnectionRegistryTest {
+
+    private static final int GAMES = 10_000;
+
+    @Test
+    @DisplayName("Add, Remove and Remove All")
+    public void addAndRemove() {
+        ConnectionRegistry<String> registry = new ConnectionRegistry<>();
+        Assertions.assertTrue(registry.add(1, "a"));
+        Assertions.assertFalse(registry.add(1, "a"), "adding a session twice should do nothing");
+        registry.add(1, "b");
+        registry.add(2, "a");
+
+        Assertions.assertEquals(List.of("a", "b"), registry.sessions(1));
+        Assertions.assertEquals(Set.of(1, 2), registry.gamesOf("a"));
+
+        Assertions.assertFalse(registry.remove(1, "b"), "game 1 still has a session");
+        Assertions.assertEquals(Set.of(1, 2), registry.removeAll("a"), "both games should be left empty");
+        Assertions.assertEquals(0, registry.gameCount());
+        Assertions.assertEquals(0, registry.sessionCount());
+        Assertions.assertTrue(registry.sessions(1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Session List Is a Snapshot")
+    public void snapshot() {
+        ConnectionRegistry<String> registry = new ConnectionRegistry<>();
+        registry.add(1, "a");
+        List<String> before = registry.sessions(1);
+        registry.add(1, "b");
+        registry.remove(1, "a");
+        Assertions.assertEquals(List.of("a"), before, "a list already handed out should not change");
+        Assertions.assertEquals(List.of("b"), registry.sessions(1));
+    }
+
+    @Test
+    @DisplayName("Concurrent Churn Across 10k Games")
+    public void concurrentChurn() throws InterruptedException {
+        ConnectionRegistry<String> registry = new ConnectionRegistry<>();
+        int writers = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int sessionsPerWriter = 2_000;
+        int operationsPerWriter = 200_000;
+
+        // Each writer owns its own sessions, so it knows exactly which games they should end up in
+        List<Map<String, Set<Integer>>> expected = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong broadcasts = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            Map<String, Set<Integer>> mine = new HashMap<>();
+            expected.add(mine);
+            int writer = w;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < operationsPerWriter; i++) {
+                        String session = writer + "-" + random.nextInt(sessionsPerWriter);
+                        int gameID = random.nextInt(GAMES);
+                        int choice = random.nextInt(10);
+                        if (choice < 6) {
+                            registry.add(gameID, session);
+                            mine.computeIfAbsent(session, s -> new HashSet<>()).add(gameID);
+                        } else if (choice < 9) {
+                            registry.remove(gameID, session);
+                            Set<Integer> games = mine.get(session);
+                            if (games != null && games.remove(gameID) && games.isEmpty()) {
+                                mine.remove(session);
+                            }
+                        } else {
+                            registry.removeAll(session);
+                            mine.remove(session);
+                        }
+                    }
+                } catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            }));
+        }
+
+        // Readers walk session lists the way a broadcast does while the writers churn
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (writing.get()) {
+                        for (String session : registry.sessions(random.nextInt(GAMES))) {
+                            Assertions.assertNotNull(session);
+                        }
+                        broadcasts.incrementAndGet();
+                    }
+                } catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+        Assertions.assertNull(failure.get(), () -> "a thread failed: " + failure.get());
+        Assertions.assertTrue(broadcasts.get() > 0);
+
+        Map<Integer, Set<String>> expectedByGame = new HashMap<>();
+        int expectedSessions = 0;
+        for (Map<String, Set<Integer>> mine : expected) {
+            for (var entry : mine.entrySet()) {
+                expectedSessions++;
+                Assertions.assertEquals(entry.getValue(), registry.gamesOf(entry.getKey()),
+                        "wrong games for session " + entry.getKey());
+                for (int gameID : entry.getValue()) {
+                    expectedByGame.computeIfAbsent(gameID, id -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+        }
+        Assertions.assertEquals(expectedSessions, registry.sessionCount());
+        Assertions.assertEquals(expectedByGame.size(), registry.gameCount(),
+                "games with no sessions should be dropped");
+        for (int gameID = 0; gameID < GAMES; gameID++) {
+            List<String> sessions = registry.sessions(gameID);
+            Assertions.assertEquals(sessions.size(), new HashSet<>(sessions).size(), "duplicate session in game");
+            Assertions.assertEquals(expectedByGame.getOrDefault(gameID, Set.of()), new HashSet<>(sessions),
+                    "wrong sessions for game " + gameID);
+        }
+    }
+}
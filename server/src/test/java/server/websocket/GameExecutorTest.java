@@ -0,0 +1,98 @@
+package server.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class GameExecutorTest {
+
+    private final GameExecutor executor = new GameExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Commands for a Game Run in Order")
+    public void inOrder() throws InterruptedException {
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int command = i;
+            executor.submit(1, () -> ran.add(command));
+        }
+        await(1);
+
+        Assertions.assertEquals(100, ran.size());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, ran.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Totals Keep the Counters of Retired Mailboxes")
+    public void totalsSurviveRetirement() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        executor.submit(1, () -> {
+            started.countDown();
+            await(release);
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(1, finished::countDown);
+        await(2);
+
+        GameExecutor.Totals busy = executor.totals();
+        Assertions.assertEquals(2, busy.games());
+        Assertions.assertEquals(1, busy.depth(), "game 1's second command waits behind the first");
+        Assertions.assertEquals(List.of(1), executor.stats().stream()
+                .filter(game -> game.depth() > 0).map(GameExecutor.Stats::gameID).toList());
+
+        // Game 1 is still busy, so it is only dropped once its commands are done
+        executor.retire(1);
+        executor.retire(2);
+        release.countDown();
+        Assertions.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        awaitRetired(1);
+        awaitRetired(2);
+
+        GameExecutor.Totals totals = executor.totals();
+        Assertions.assertEquals(0, totals.games());
+        Assertions.assertEquals(0, totals.depth());
+        Assertions.assertEquals(1, totals.maxDepth());
+        Assertions.assertEquals(3, totals.processed(), "both games' commands, counted after they were retired");
+        Assertions.assertEquals(2, totals.retired());
+    }
+
+    private void awaitRetired(int gameID) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.stats(gameID) != null) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "game " + gameID + " was never retired");
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits until every command queued for a game so far has run
+     */
+    private void await(int gameID) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(gameID, done::countDown);
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
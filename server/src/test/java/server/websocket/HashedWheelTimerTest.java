@@ -0,0 +1,88 @@
+package server.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the timer with 5 ms ticks on a wheel of 4 buckets, so tasks more than
+ * 20 ms out have to wait whole turns of the wheel
+ */
+public class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 5, 4);
+
+    @AfterEach
+    public void tearDown() {
+        timer.close();
+    }
+
+    @Test
+    @DisplayName("Task Runs No Sooner Than Its Delay")
+    public void notEarly() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(ran::countDown, 50);
+
+        Assertions.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    @DisplayName("Tasks Run in Deadline Order Across Turns of the Wheel")
+    public void deadlineOrder() throws InterruptedException {
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        for (int delay : new int[]{70, 10, 45, 0}) {
+            timer.schedule(() -> {
+                ran.add(delay);
+                done.countDown();
+            }, delay);
+        }
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(0, 10, 45, 70), ran);
+    }
+
+    @Test
+    @DisplayName("Cancelled Task Never Runs")
+    public void cancelled() throws InterruptedException {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        timer.schedule(() -> ran.add("cancelled"), 10).cancel();
+        timer.schedule(() -> ran.add("cancelled late"), 30).cancel();
+        timer.schedule(done::countDown, 50);
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(), ran);
+    }
+
+    @Test
+    @DisplayName("Failing Task Does Not Stop the Timer")
+    public void failingTask() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        timer.schedule(() -> {
+            throw new IllegalStateException("task failed");
+        }, 0);
+        timer.schedule(ran::countDown, 20);
+
+        Assertions.assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Tasks Still Waiting When Closed Never Run")
+    public void closed() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        timer.schedule(ran::countDown, 30);
+        timer.close();
+        timer.schedule(ran::countDown, 0);
+
+        Assertions.assertFalse(ran.await(100, TimeUnit.MILLISECONDS));
+    }
+}
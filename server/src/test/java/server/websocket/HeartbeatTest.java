@@ -0,0 +1,178 @@
+package server.websocket;
+
+import io.javalin.websocket.WsContext;
+import io.javalin.websocket.WsMessageContext;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the heartbeat with a 50 ms ping interval and 5 ms ticks against
+ * sessions that answer, fail or never finish their pings
+ */
+public class HeartbeatTest {
+
+    private static final Heartbeat.Settings SETTINGS = new Heartbeat.Settings(50, 200, 5);
+
+    private final List<WsContext> reaped = new CopyOnWriteArrayList<>();
+    private final Heartbeat heartbeat = new Heartbeat(SETTINGS, reaped::add);
+
+    @AfterEach
+    public void tearDown() {
+        heartbeat.close();
+    }
+
+    @Test
+    @DisplayName("Quiet Session Is Pinged but Never Reaped for Its Silence")
+    public void quietIsNotReaped() throws InterruptedException {
+        FakeSession session = new FakeSession(Ping.ANSWERED);
+        heartbeat.heard(session.context);
+        Assertions.assertEquals(Duration.ofMillis(200), session.idleTimeout,
+                "Jetty should be left to close sessions that go dead");
+
+        // Well past the idle timeout, with nothing heard but pongs Javalin never reports
+        Thread.sleep(400);
+
+        Assertions.assertTrue(session.pings.get() >= 3, "pinged " + session.pings.get() + " times");
+        Assertions.assertEquals(List.of(), reaped);
+        Heartbeat.Stats stats = heartbeat.stats();
+        Assertions.assertEquals(1, stats.watched());
+        Assertions.assertEquals(0, stats.reaped());
+    }
+
+    @Test
+    @DisplayName("Session Heard From Within the Interval Is Not Pinged")
+    public void chattyIsNotPinged() throws InterruptedException {
+        Heartbeat slow = new Heartbeat(new Heartbeat.Settings(200, 1_000, 5), reaped::add);
+        try {
+            FakeSession session = new FakeSession(Ping.ANSWERED);
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < end) {
+                slow.heard(session.context);
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(0, session.pings.get());
+            Assertions.assertEquals(0, slow.stats().pings());
+        } finally {
+            slow.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Session Whose Ping Fails Is Reaped Once")
+    public void failedPingReaps() throws InterruptedException {
+        FakeSession failing = new FakeSession(Ping.FAILED);
+        FakeSession throwing = new FakeSession(Ping.THROWN);
+        heartbeat.heard(failing.context);
+        heartbeat.heard(throwing.context);
+
+        awaitReaped(2);
+        Thread.sleep(100);
+        Assertions.assertEquals(2, reaped.size(), "a reaped session should not be checked again");
+        Assertions.assertTrue(reaped.contains(failing.context));
+        Assertions.assertTrue(reaped.contains(throwing.context));
+        Assertions.assertEquals(1, failing.pings.get());
+
+        Heartbeat.Stats stats = heartbeat.stats();
+        Assertions.assertEquals(0, stats.watched());
+        Assertions.assertEquals(2, stats.reaped());
+    }
+
+    @Test
+    @DisplayName("Ping That Never Finishes Leaves the Session to Jetty")
+    public void stalledPingIsLeftToJetty() throws InterruptedException {
+        FakeSession session = new FakeSession(Ping.STALLED);
+        heartbeat.heard(session.context);
+
+        Thread.sleep(300);
+        Assertions.assertTrue(session.pings.get() >= 2);
+        Assertions.assertEquals(List.of(), reaped, "only Jetty's idle timeout should close it");
+    }
+
+    @Test
+    @DisplayName("Forgotten or Closed Session Is No Longer Checked")
+    public void forgotten() throws InterruptedException {
+        FakeSession forgotten = new FakeSession(Ping.FAILED);
+        FakeSession closed = new FakeSession(Ping.FAILED);
+        heartbeat.heard(forgotten.context);
+        heartbeat.heard(closed.context);
+        heartbeat.forget(forgotten.context);
+        closed.open = false;
+
+        Thread.sleep(150);
+        Assertions.assertEquals(0, forgotten.pings.get());
+        Assertions.assertEquals(0, closed.pings.get());
+        Assertions.assertEquals(List.of(), reaped);
+        Assertions.assertEquals(0, heartbeat.stats().watched());
+    }
+
+    private void awaitReaped(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reaped.size() < count) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "only " + reaped.size() + " sessions were reaped");
+            Thread.sleep(1);
+        }
+    }
+
+    private enum Ping { ANSWERED, FAILED, THROWN, STALLED }
+
+    /**
+     * A session whose pings go the way the test says
+     */
+    private static class FakeSession {
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        private final WsContext context;
+        private final AtomicInteger pings = new AtomicInteger();
+        private volatile boolean open = true;
+        private volatile Duration idleTimeout;
+
+        FakeSession(Ping outcome) {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendPing") && args.length == 2) {
+                            pings.incrementAndGet();
+                            WriteCallback callback = (WriteCallback) args[1];
+                            switch (outcome) {
+                                case ANSWERED -> callback.writeSuccess();
+                                case FAILED -> callback.writeFailed(new IOException("broken pipe"));
+                                case THROWN -> throw new IllegalStateException("session closed");
+                                case STALLED -> {
+                                }
+                            }
+                        }
+                        return null;
+                    });
+            Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> open;
+                        case "getRemote" -> remote;
+                        case "setIdleTimeout" -> {
+                            idleTimeout = (Duration) args[0];
+                            yield null;
+                        }
+                        case "close" -> {
+                            open = false;
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "fake session";
+                        default -> null;
+                    });
+            context = new WsMessageContext("fake-" + IDS.incrementAndGet(), session, "");
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.LegalMoves;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dataaccess.GameCache;
+import io.javalin.websocket.WsBinaryMessageContext;
+import io.javalin.websocket.WsMessageContext;
+import json.GsonFactory;
+import model.GameSummary;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.AuthService;
+import service.LobbyService;
+import service.UnauthorizedException;
+import websocket.BinaryProtocol;
+import websocket.commands.UserGameCommand;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the handler the way the passoff websocket tests do, with sessions,
+ * auth, lobby and cache faked in memory so no server or database is needed
+ */
+public class WebSocketHandlerTest {
+
+    private static final int GAME_ID = 1;
+
+    private final GameSummary summary = new GameSummary(GAME_ID, "white", "black", "game");
+    private final List<String> seatsReleased = new CopyOnWriteArrayList<>();
+    private volatile boolean finished;
+    private GameExecutor executor;
+    private FakeGameCache gameCache;
+    private WebSocketHandler handler;
+
+    @BeforeEach
+    public void setUp() {
+        AuthService auth = new AuthService(null, null, 0) {
+            @Override
+            public String authenticate(String token) throws UnauthorizedException {
+                // Each test client's token is its username
+                if (!Set.of("white", "black", "observer").contains(token)) {
+                    throw new UnauthorizedException("unauthorized");
+                }
+                return token;
+            }
+        };
+        LobbyService lobby = new LobbyService(null, null) {
+            @Override
+            public GameSummary getGame(int gameID) {
+                return gameID == GAME_ID ? summary : null;
+            }
+
+            @Override
+            public boolean isFinished(int gameID) {
+                return finished;
+            }
+
+            @Override
+            public void finishGame(int gameID) {
+                finished = true;
+            }
+
+            @Override
+            public void leaveGame(int gameID, ChessGame.TeamColor color, String username) {
+                seatsReleased.add(username);
+            }
+        };
+        executor = new GameExecutor();
+        gameCache = new FakeGameCache();
+        handler = new WebSocketHandler(auth, lobby, gameCache, executor,
+                new ConnectionManager.Settings(64, 10_000), new Heartbeat.Settings(60_000, 600_000, 100));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        handler.close();
+        gameCache.close();
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Move Sends Everyone the Board, Mover Included")
+    public void moveReachesEveryone() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        Client observer = connect("observer");
+        clearAll(white, black, observer);
+
+        send(white, move("white", 2, 5, 4, 5));
+
+        Assertions.assertEquals(List.of("LOAD_GAME"), white.types(), "the mover should only get the board");
+        Assertions.assertEquals(List.of("LOAD_GAME", "NOTIFICATION"), black.types());
+        Assertions.assertEquals(List.of("LOAD_GAME", "NOTIFICATION"), observer.types());
+        JsonObject board = black.received.get(0);
+        Assertions.assertEquals(1, board.get("sequence").getAsInt());
+        Assertions.assertTrue(board.get("game").getAsString().contains(" b "), "the board should be after the move");
+    }
+
+    @Test
+    @DisplayName("Move Deltas Only for Sessions That Ask")
+    public void moveDeltasOnRequest() throws InterruptedException {
+        Client white = connect("white");
+        Client black = new Client("black");
+        send(black, "{\"commandType\":\"CONNECT\",\"authToken\":\"black\",\"gameID\":" + GAME_ID
+                + ",\"moveDeltas\":true}");
+        clearAll(white, black);
+
+        send(white, move("white", 2, 5, 4, 5));
+
+        Assertions.assertEquals(List.of("LOAD_GAME"), white.types());
+        Assertions.assertEquals(List.of("MOVE", "NOTIFICATION"), black.types());
+        JsonObject delta = black.received.get(0);
+        Assertions.assertEquals(1, delta.get("sequence").getAsInt());
+        Assertions.assertEquals("e2e4", delta.get("move").getAsString());
+    }
+
+    @Test
+    @DisplayName("Invalid Move Only Errors the Mover")
+    public void invalidMove() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        clearAll(white, black);
+
+        send(white, move("white", 2, 5, 5, 5));
+        send(black, move("black", 7, 5, 5, 5));
+
+        Assertions.assertEquals(List.of("ERROR"), white.types());
+        Assertions.assertEquals(List.of("ERROR"), black.types(), "black moving out of turn should be an error");
+        Assertions.assertEquals("Error: invalid move", white.received.get(0).get("errorMessage").getAsString());
+        Assertions.assertEquals("Error: it is not your turn", black.received.get(0).get("errorMessage").getAsString());
+    }
+
+    @Test
+    @DisplayName("Connect With Bad GameID or AuthToken")
+    public void badConnect() throws InterruptedException {
+        Client white = connect("white");
+        white.received.clear();
+
+        Client observer = new Client("observer");
+        send(observer, "{\"commandType\":\"CONNECT\",\"authToken\":\"observer\",\"gameID\":" + (GAME_ID + 1) + "}");
+        // That CONNECT runs on the other game's executor
+        awaitGame(GAME_ID + 1);
+        Client stranger = new Client("stranger");
+        send(stranger, command("CONNECT", "badAuth"));
+
+        Assertions.assertEquals(List.of("ERROR"), observer.types());
+        Assertions.assertEquals(List.of("ERROR"), stranger.types());
+        Assertions.assertEquals(List.of(), white.types(), "nobody in the game should hear of failed connects");
+    }
+
+    @Test
+    @DisplayName("Checkmate Notifies Everyone and Ends the Game")
+    public void checkmate() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        Client observer = connect("observer");
+        send(white, move("white", 2, 6, 3, 6));
+        send(black, move("black", 7, 5, 5, 5));
+        send(white, move("white", 2, 7, 4, 7));
+        clearAll(white, black, observer);
+
+        send(black, move("black", 8, 4, 4, 8));
+
+        Assertions.assertEquals(List.of("LOAD_GAME", "NOTIFICATION"), black.types());
+        Assertions.assertEquals(List.of("LOAD_GAME", "NOTIFICATION", "NOTIFICATION"), white.types());
+        Assertions.assertEquals(List.of("LOAD_GAME", "NOTIFICATION", "NOTIFICATION"), observer.types());
+        Assertions.assertTrue(finished);
+
+        clearAll(white, black, observer);
+        send(white, move("white", 2, 1, 3, 1));
+        Assertions.assertEquals(List.of("ERROR"), white.types(), "no moves after checkmate");
+        Assertions.assertEquals(List.of(), black.types());
+    }
+
+    @Test
+    @DisplayName("Resign Once, by a Player")
+    public void resign() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        Client observer = connect("observer");
+        clearAll(white, black, observer);
+
+        send(observer, command("RESIGN", "observer"));
+        Assertions.assertEquals(List.of("ERROR"), observer.types(), "observers cannot resign");
+        Assertions.assertEquals(List.of(), white.types());
+
+        send(black, command("RESIGN", "black"));
+        Assertions.assertEquals(List.of("NOTIFICATION"), black.types());
+        Assertions.assertEquals(List.of("NOTIFICATION"), white.types());
+
+        clearAll(white, black, observer);
+        send(white, command("RESIGN", "white"));
+        Assertions.assertEquals(List.of("ERROR"), white.types(), "the game is already over");
+        Assertions.assertEquals(List.of(), black.types());
+    }
+
+    @Test
+    @DisplayName("Binary Sessions Get Binary Move Deltas")
+    public void binarySession() throws InterruptedException {
+        Client white = connect("white");
+        Client black = new Client("black");
+        ByteBuffer connect = BinaryProtocol.encode(
+                new UserGameCommand(UserGameCommand.CommandType.CONNECT, "black", GAME_ID));
+        handler.onBinaryMessage(new WsBinaryMessageContext(black.id, black.session, connect.array(), 0,
+                connect.remaining()));
+        awaitGame();
+        Assertions.assertEquals(List.of("LOAD_GAME"), black.types());
+        clearAll(white, black);
+
+        send(white, move("white", 2, 5, 4, 5));
+
+        Assertions.assertEquals(List.of("MOVE", "NOTIFICATION"), black.types());
+        Assertions.assertEquals(3, black.binaryFrames, "a binary session should only be sent frames");
+        Assertions.assertEquals(List.of("LOAD_GAME"), white.types());
+    }
+
+    @Test
+    @DisplayName("Retried Move Is Made Once")
+    public void retriedMove() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        send(white, move("white", "w1", 2, 5, 4, 5));
+        clearAll(white, black);
+
+        send(white, move("white", "w1", 2, 5, 4, 5));
+
+        Assertions.assertEquals(List.of("LOAD_GAME"), white.types(), "the retry should just be acknowledged");
+        Assertions.assertEquals(1, white.received.get(0).get("sequence").getAsInt());
+        Assertions.assertEquals(List.of(), black.types(), "nobody else should hear of a retry");
+        Assertions.assertEquals(1, gameCache.plies);
+    }
+
+    @Test
+    @DisplayName("Another User's Key Is Not a Retry")
+    public void sameKeyOtherUser() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        send(white, move("white", "k", 2, 5, 4, 5));
+        clearAll(white, black);
+
+        send(black, move("black", "k", 7, 5, 5, 5));
+
+        Assertions.assertEquals(List.of("LOAD_GAME"), black.types());
+        Assertions.assertEquals(List.of("LOAD_GAME", "NOTIFICATION"), white.types(),
+                "black's move should be made even though white used the same key");
+        Assertions.assertEquals(2, gameCache.plies);
+    }
+
+    @Test
+    @DisplayName("Key Gone From the Window Is a New Move")
+    public void evictedKey() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        send(white, move("white", "w1", 2, 5, 4, 5));
+        gameCache.recent.remove("w1");
+        clearAll(white, black);
+
+        send(white, move("white", "w1", 2, 5, 4, 5));
+
+        Assertions.assertEquals(List.of("ERROR"), white.types(), "the move should be checked again, out of turn");
+        Assertions.assertEquals(List.of(), black.types());
+        Assertions.assertEquals(1, gameCache.plies);
+    }
+
+    @Test
+    @DisplayName("Leave Notifies Everyone Left")
+    public void leaveNotifiesOthers() throws InterruptedException {
+        Client white = connect("white");
+        Client observer = connect("observer");
+        clearAll(white, observer);
+
+        send(white, command("LEAVE", "white"));
+
+        Assertions.assertEquals(List.of(), white.types(), "a client that left should hear nothing more");
+        Assertions.assertEquals(List.of("NOTIFICATION"), observer.types());
+        Assertions.assertEquals(List.of("white"), seatsReleased);
+    }
+
+    @Test
+    @DisplayName("Reaped Player Keeps Their Seat")
+    public void reapKeepsSeat() throws InterruptedException {
+        Client white = connect("white");
+        Client black = connect("black");
+        clearAll(white, black);
+
+        // Stands in for the heartbeat failing to ping white's session
+        handler.reap(new WsMessageContext(white.id, white.session, ""));
+        awaitGame();
+
+        Assertions.assertFalse(white.open, "the unreachable session should be closed");
+        Assertions.assertEquals(List.of("NOTIFICATION"), black.types());
+        Assertions.assertEquals(List.of(), seatsReleased, "a dropped connection should not give up the seat");
+
+        Client back = connect("white");
+        clearAll(back, black);
+        send(back, move("white", 2, 5, 4, 5));
+        Assertions.assertEquals(List.of("LOAD_GAME"), back.types(), "white should still be able to move");
+        Assertions.assertEquals(List.of("LOAD_GAME", "NOTIFICATION"), black.types());
+    }
+
+    private Client connect(String username) throws InterruptedException {
+        Client client = new Client(username);
+        send(client, command("CONNECT", username));
+        Assertions.assertEquals("LOAD_GAME", client.types().get(0), "CONNECT should be answered with the board");
+        return client;
+    }
+
+    /**
+     * Sends a command and waits until the game's executor has run it
+     */
+    private void send(Client client, String json) throws InterruptedException {
+        handler.onMessage(new WsMessageContext(client.id, client.session, json));
+        awaitGame();
+    }
+
+    private void awaitGame() throws InterruptedException {
+        awaitGame(GAME_ID);
+    }
+
+    private void awaitGame(int gameID) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(gameID, done::countDown);
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS), "the game's commands did not finish");
+    }
+
+    private static void clearAll(Client... clients) {
+        for (Client client : clients) {
+            client.received.clear();
+        }
+    }
+
+    private static String command(String type, String token) {
+        return "{\"commandType\":\"" + type + "\",\"authToken\":\"" + token + "\",\"gameID\":" + GAME_ID + "}";
+    }
+
+    private static String move(String token, int fromRow, int fromCol, int toRow, int toCol) {
+        return "{\"commandType\":\"MAKE_MOVE\",\"authToken\":\"" + token + "\",\"gameID\":" + GAME_ID
+                + ",\"move\":{\"startPosition\":{\"row\":" + fromRow + ",\"col\":" + fromCol + "},"
+                + "\"endPosition\":{\"row\":" + toRow + ",\"col\":" + toCol + "}}}";
+    }
+
+    private static String move(String token, String key, int fromRow, int fromCol, int toRow, int toCol) {
+        String move = move(token, fromRow, fromCol, toRow, toCol);
+        return move.substring(0, move.length() - 1) + ",\"idempotencyKey\":\"" + key + "\"}";
+    }
+
+    /**
+     * A websocket session that records the text it is sent
+     */
+    private static class Client {
+        private final String id;
+        private final Session session;
+        private final List<JsonObject> received = new CopyOnWriteArrayList<>();
+        private volatile boolean open = true;
+        // Binary frames received
+        private volatile int binaryFrames;
+
+        Client(String id) {
+            this.id = id;
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString") && args.length == 2) {
+                            received.add(JsonParser.parseString((String) args[0]).getAsJsonObject());
+                            ((WriteCallback) args[1]).writeSuccess();
+                        } else if (method.getName().equals("sendBytes") && args.length == 2) {
+                            var message = BinaryProtocol.decodeMessage((ByteBuffer) args[0]);
+                            received.add(GsonFactory.gson().toJsonTree(message).getAsJsonObject());
+                            binaryFrames++;
+                            ((WriteCallback) args[1]).writeSuccess();
+                        }
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> open;
+                        case "getRemote" -> remote;
+                        case "close" -> {
+                            open = false;
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "session " + id;
+                        default -> null;
+                    });
+        }
+
+        List<String> types() {
+            List<String> types = new ArrayList<>();
+            for (JsonObject message : received) {
+                types.add(message.get("serverMessageType").getAsString());
+            }
+            return types;
+        }
+    }
+
+    /**
+     * Holds one game in memory, checking moves the way the real cache does
+     */
+    private static class FakeGameCache extends GameCache {
+        // Keys stay until a test forgets one, standing in for it leaving the window
+        private final Map<String, AppliedMove> recent = new ConcurrentHashMap<>();
+        private ChessGame game = new ChessGame();
+        private int plies;
+
+        FakeGameCache() {
+            super(null, null, new Settings(16, 600_000, 8));
+        }
+
+        @Override
+        public Position position(int gameID) {
+            return gameID == GAME_ID ? new Position(new ChessGame(game), plies, LegalMoves.of(game)) : null;
+        }
+
+        @Override
+        public AppliedMove applied(int gameID, String key) {
+            return recent.get(key);
+        }
+
+        @Override
+        public Position makeMove(int gameID, ChessMove move, ChessGame.TeamColor color, String username,
+                                 String key) throws InvalidMoveException {
+            if (game.getTeamTurn() != color) {
+                throw new InvalidMoveException("it is not your turn");
+            }
+            game.makeMove(move);
+            plies++;
+            if (key != null) {
+                recent.put(key, new AppliedMove(username, plies, move));
+            }
+            return position(gameID);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package service;
+
+import chess.ChessGame;
+import dataaccess.DataAccessException;
+import dataaccess.GameCache;
+import dataaccess.MySqlGameDAO;
+import model.GameList;
+import model.GameSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the lobby's ETags over an in-memory games table: a poll with the
+ * current ETag is answered without reading the games, and every change the
+ * list shows gives it a new ETag
+ */
+public class LobbyServiceTest {
+
+    private final List<GameSummary> games = new ArrayList<>();
+    private final AtomicInteger reads = new AtomicInteger();
+    private GameCache gameCache;
+    private LobbyService lobby;
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        MySqlGameDAO gameDAO = new MySqlGameDAO(false) {
+            @Override
+            public int createGame(String gameName) {
+                games.add(new GameSummary(games.size() + 1, null, null, gameName));
+                return games.size();
+            }
+
+            @Override
+            public GameSummary getGame(int gameID) {
+                return gameID >= 1 && gameID <= games.size() ? games.get(gameID - 1) : null;
+            }
+
+            @Override
+            public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) {
+                GameSummary game = getGame(gameID);
+                boolean white = color == ChessGame.TeamColor.WHITE;
+                if (game == null || (white ? game.whiteUsername() : game.blackUsername()) != null) {
+                    return false;
+                }
+                games.set(gameID - 1, new GameSummary(gameID, white ? username : game.whiteUsername(),
+                        white ? game.blackUsername() : username, game.gameName()));
+                return true;
+            }
+
+            @Override
+            public GameList listGames(Query query) {
+                reads.incrementAndGet();
+                return new GameList(List.copyOf(games), null);
+            }
+        };
+        gameCache = new GameCache(null, null, new GameCache.Settings(16, 600_000, 8)) {
+            @Override
+            public void create(int gameID, ChessGame game) {
+            }
+        };
+        lobby = new LobbyService(gameDAO, gameCache);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gameCache.close();
+    }
+
+    @Test
+    @DisplayName("List Is 304 Until a Game Is Created or Joined")
+    public void notModifiedUntilChanged() throws DataAccessException {
+        MySqlGameDAO.Query query = MySqlGameDAO.Query.all();
+        LobbyService.Listing first = lobby.listGames(query, null);
+        Assertions.assertFalse(first.notModified());
+        Assertions.assertEquals(first.etag(), lobby.etag(query));
+
+        LobbyService.Listing unchanged = lobby.listGames(query, first.etag());
+        Assertions.assertTrue(unchanged.notModified());
+        Assertions.assertEquals(first.etag(), unchanged.etag());
+        Assertions.assertEquals(1, reads.get(), "a 304 should not read the games");
+
+        int gameID = lobby.createGame("friendly");
+        LobbyService.Listing created = lobby.listGames(query, first.etag());
+        Assertions.assertFalse(created.notModified(), "the new game should show");
+        Assertions.assertNotEquals(first.etag(), created.etag());
+        Assertions.assertTrue(created.body().contains("friendly"));
+        Assertions.assertTrue(lobby.listGames(query, created.etag()).notModified());
+
+        Assertions.assertTrue(lobby.joinGame(gameID, ChessGame.TeamColor.WHITE, "alice"));
+        LobbyService.Listing joined = lobby.listGames(query, created.etag());
+        Assertions.assertFalse(joined.notModified(), "the taken seat should show");
+        Assertions.assertNotEquals(created.etag(), joined.etag());
+        Assertions.assertTrue(joined.body().contains("alice"));
+
+        Assertions.assertFalse(lobby.joinGame(gameID, ChessGame.TeamColor.WHITE, "bob"));
+        Assertions.assertTrue(lobby.listGames(query, joined.etag()).notModified(),
+                "a failed join changes nothing, so the list is still current");
+        Assertions.assertEquals(3, reads.get());
+    }
+
+    @Test
+    @DisplayName("Same List at the Same Version Is Read Once")
+    public void bodyCachedPerVersion() throws DataAccessException {
+        MySqlGameDAO.Query query = MySqlGameDAO.Query.all();
+        String body = lobby.listGames(query, null).body();
+        Assertions.assertSame(body, lobby.listGames(query, null).body());
+        Assertions.assertEquals(1, reads.get());
+
+        var openOnly = new MySqlGameDAO.Query(MySqlGameDAO.DEFAULT_LIMIT, null, true, null);
+        LobbyService.Listing other = lobby.listGames(openOnly, null);
+        Assertions.assertNotEquals(lobby.etag(query), other.etag(), "another filter should get its own ETag");
+        Assertions.assertFalse(lobby.listGames(openOnly, lobby.etag(query)).notModified());
+        Assertions.assertEquals(2, reads.get(), "one read for each query");
+    }
+
+    @Test
+    @DisplayName("If-None-Match Takes Weak Tags, Lists and Star")
+    public void ifNoneMatchForms() throws DataAccessException {
+        MySqlGameDAO.Query query = MySqlGameDAO.Query.all();
+        String etag = lobby.etag(query);
+        Assertions.assertTrue(lobby.listGames(query, "W/" + etag).notModified());
+        Assertions.assertTrue(lobby.listGames(query, "\"stale\", " + etag).notModified());
+        Assertions.assertTrue(lobby.listGames(query, "*").notModified());
+        Assertions.assertFalse(lobby.listGames(query, "\"stale\"").notModified());
+    }
+}
@@ -0,0 +1,70 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class PasswordHasherTest {
+
+    @Test
+    @DisplayName("Hash Checks Out and Cheaper Hashes Are Flagged")
+    public void hashAndVerify() throws ServiceUnavailableException {
+        try (PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(1, 4, 1, 5))) {
+            Assertions.assertEquals(5, hasher.getCost(), "a 1 ms target should fall back to the minimum cost");
+            String hash = hasher.hash("hunter2");
+            Assertions.assertTrue(hasher.verify("hunter2", hash));
+            Assertions.assertFalse(hasher.verify("hunter3", hash));
+            Assertions.assertFalse(hasher.needsRehash(hash));
+            Assertions.assertTrue(hasher.needsRehash(BCrypt.hashpw("hunter2", BCrypt.gensalt(4))));
+            Assertions.assertTrue(hasher.needsRehash("not a hash"));
+            Assertions.assertEquals(3, hasher.stats().completed());
+        }
+    }
+
+    @Test
+    @DisplayName("Hash Is Refused at Once When the Queue Is Full")
+    public void saturated() throws Exception {
+        // One slow hash running and one waiting fills a pool of one thread with a queue of one
+        try (PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(1, 1, 1, 13))) {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hash(hasher));
+            CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> hash(hasher));
+            awaitQueued(hasher, 1);
+
+            long start = System.nanoTime();
+            Assertions.assertThrows(ServiceUnavailableException.class, () -> hasher.verify("hunter2", "$2a$13$x"));
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100),
+                    "a refused hash should not wait for a thread");
+
+            PasswordHasher.Stats stats = hasher.stats();
+            Assertions.assertEquals(1, stats.rejected());
+            Assertions.assertEquals(1, stats.queued());
+            Assertions.assertNotNull(running.get(30, TimeUnit.SECONDS));
+            Assertions.assertNotNull(waiting.get(30, TimeUnit.SECONDS));
+            Assertions.assertEquals(2, hasher.stats().completed());
+        }
+    }
+
+    private static String hash(PasswordHasher hasher) {
+        try {
+            return hasher.hash("hunter2");
+        } catch (ServiceUnavailableException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Waits until the pool's thread is busy and the given number of hashes
+     * wait behind it
+     */
+    private static void awaitQueued(PasswordHasher hasher, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hasher.stats().queued() != queued) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "the hasher never got busy");
+            Thread.sleep(1);
+        }
+    }
+}
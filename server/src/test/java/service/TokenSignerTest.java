@@ -0,0 +1,104 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class TokenSignerTest {
+
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    @DisplayName("Issued Token Verifies Without Any Lookup")
+    public void issueAndVerify() {
+        TokenSigner signer = new TokenSigner(new TokenSigner.Settings(true, "secret", DAY, DAY));
+        long before = System.currentTimeMillis();
+        String token = signer.issue("alice");
+
+        Assertions.assertTrue(TokenSigner.isSigned(token));
+        Assertions.assertFalse(TokenSigner.isSigned("3f2a9c1e-random-token"));
+        TokenSigner.Claims claims = signer.verify(token);
+        Assertions.assertNotNull(claims);
+        Assertions.assertEquals("alice", claims.username());
+        Assertions.assertTrue(claims.issuedAt() >= before);
+        Assertions.assertEquals(claims.issuedAt() / DAY, claims.keyId());
+    }
+
+    @Test
+    @DisplayName("Tampered Token Is Rejected")
+    public void tampered() {
+        TokenSigner signer = new TokenSigner(new TokenSigner.Settings(true, "secret", DAY, DAY));
+        String token = signer.issue("alice");
+        String[] parts = token.split("\\.");
+
+        String otherUser = String.join(".", parts[0], parts[1], parts[2], encode("mallory"), parts[4]);
+        Assertions.assertNull(signer.verify(otherUser), "the signature covers the username");
+        String later = String.join(".", parts[0], parts[1], String.valueOf(Long.parseLong(parts[2]) + 1), parts[3],
+                parts[4]);
+        Assertions.assertNull(signer.verify(later), "the signature covers the issue time");
+        int signature = token.lastIndexOf('.') + 1;
+        String flipped = token.substring(0, signature) + (token.charAt(signature) == 'A' ? 'B' : 'A')
+                + token.substring(signature + 1);
+        Assertions.assertNull(signer.verify(flipped));
+
+        Assertions.assertNull(signer.verify(token + ".extra"));
+        Assertions.assertNull(signer.verify("v1.x.y.z.w"));
+        Assertions.assertNull(signer.verify(null));
+        Assertions.assertNull(new TokenSigner(new TokenSigner.Settings(true, "other", DAY, DAY)).verify(token),
+                "a token from a server with another secret should not verify");
+    }
+
+    @Test
+    @DisplayName("Token Expires After the Max Age")
+    public void expired() throws InterruptedException {
+        TokenSigner signer = new TokenSigner(new TokenSigner.Settings(true, "secret", DAY, 200));
+        // The first signature loads the HMAC provider, which can take longer than the max age
+        signer.verify(signer.issue("warm-up"));
+        String token = signer.issue("alice");
+        Assertions.assertNotNull(signer.verify(token));
+
+        Thread.sleep(300);
+        Assertions.assertNull(signer.verify(token));
+        Assertions.assertFalse(signer.revoke(token), "an expired token was not valid to log out with");
+    }
+
+    @Test
+    @DisplayName("Token Outlives the Rotation of the Key That Signed It")
+    public void rotatedKey() throws InterruptedException {
+        TokenSigner signer = new TokenSigner(new TokenSigner.Settings(true, "secret", 20, DAY));
+        String old = signer.issue("alice");
+        Thread.sleep(60);
+        String current = signer.issue("alice");
+
+        long oldKey = signer.verify(old).keyId();
+        long currentKey = signer.verify(current).keyId();
+        Assertions.assertTrue(currentKey >= oldKey + 2, "new tokens should be signed with a newer key");
+        Assertions.assertNotNull(new TokenSigner(new TokenSigner.Settings(true, "secret", 20, DAY)).verify(old),
+                "keys are derived from the secret, so a restarted server should accept old tokens");
+
+        String[] parts = old.split("\\.");
+        String movedKey = String.join(".", parts[0], String.valueOf(currentKey), parts[2], parts[3], parts[4]);
+        Assertions.assertNull(signer.verify(movedKey), "the key id has to match the issue time");
+    }
+
+    @Test
+    @DisplayName("Revoked Token Is Rejected, Others Are Not")
+    public void revoked() {
+        TokenSigner signer = new TokenSigner(new TokenSigner.Settings(true, "secret", DAY, DAY));
+        String first = signer.issue("alice");
+        String second = signer.issue("bob");
+
+        Assertions.assertTrue(signer.revoke(first));
+        Assertions.assertNull(signer.verify(first));
+        Assertions.assertFalse(signer.revoke(first), "a token can only be logged out once");
+        Assertions.assertNotNull(signer.verify(second));
+        Assertions.assertEquals(1, signer.revokedCount());
+    }
+
+    private static String encode(String username) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(username.getBytes(StandardCharsets.UTF_8));
+    }
+}
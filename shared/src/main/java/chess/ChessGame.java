@@ -19,6 +19,12 @@ public class ChessGame {
         teamColor = TeamColor.WHITE;
     }
 
+    // Copy constructor for ChessGame, given existing game
+    public ChessGame(ChessGame game) {
+        board = new ChessBoard(game.board);
+        teamColor = game.teamColor;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -78,6 +84,20 @@ public class ChessGame {
         return moves;
     }
 
+    /**
+     * Gets all valid moves for every piece of a given team
+     *
+     * @param teamColor team to get valid moves for
+     * @return Collection of valid moves for the team
+     */
+    public Collection<ChessMove> allValidMoves(TeamColor teamColor) {
+        Collection<ChessMove> moves = new ArrayList<>();
+        for (ChessPosition piecePos : board.getTeamPiecePositions(teamColor)) {
+            moves.addAll(validMoves(piecePos));
+        }
+        return moves;
+    }
+
     /**
      * Utility used to actually move chess pieces from one place to another
      *
@@ -106,6 +126,18 @@ public class ChessGame {
         makeMoveBoard(move, board);
     }
 
+    /**
+     * Makes a move already known to be legal, such as one found in this
+     * position's {@link LegalMoves}, without working out the valid moves again
+     *
+     * @param move legal move for the team whose turn it is
+     */
+    public void makeLegalMove(ChessMove move) {
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        executePieceMove(board, piece, move);
+        setTeamTurn(piece.getTeamColor() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
+    }
+
     /**
      * Makes a move in a chess game on a given board
      *
@@ -45,6 +45,37 @@ public class ChessMove {
         return promotionPiece;
     }
 
+    /**
+     * Packs this move into 16 bits: start square (6 bits), end square (6 bits)
+     * and promotion piece (3 bits, 0 for none), squares numbered 0-63 from a1
+     *
+     * @return packed move
+     */
+    public short pack() {
+        int promotion = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return (short) (squareIndex(startPosition) | squareIndex(endPosition) << 6 | promotion << 12);
+    }
+
+    /**
+     * Unpacks a move packed with {@link #pack()}
+     *
+     * @param packed packed move
+     * @return the unpacked move
+     */
+    public static ChessMove unpack(short packed) {
+        int promotion = packed >> 12 & 0x7;
+        return new ChessMove(squarePosition(packed & 0x3f), squarePosition(packed >> 6 & 0x3f),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1]);
+    }
+
+    private static int squareIndex(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    private static ChessPosition squarePosition(int index) {
+        return new ChessPosition(index / 8 + 1, index % 8 + 1);
+    }
+
     @Override
     public String toString() {
         return String.format("%s%s", startPosition, endPosition);
@@ -0,0 +1,135 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation (FEN)
+ * <p>
+ * Only the piece placement and active color fields are used. Castling and en
+ * passant are not part of the rules implemented here, so those fields are
+ * written as "-" and ignored when reading.
+ */
+public class Fen {
+
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    /**
+     * Creates a game from a FEN string
+     *
+     * @param fen FEN string; only the first two fields are required
+     * @return game with the board and team turn from the FEN string
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.strip().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("FEN must have 8 rows: " + fen);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                } else {
+                    ChessPiece.PieceType type = pieceType(Character.toLowerCase(c));
+                    if (type == null || col > 8) {
+                        throw new IllegalArgumentException("Bad FEN row '" + rows[i] + "': " + fen);
+                    }
+                    ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE
+                            : ChessGame.TeamColor.BLACK;
+                    board.addPiece(new ChessPosition(row, col), new ChessPiece(color, type));
+                    col++;
+                }
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("Bad FEN row '" + rows[i] + "': " + fen);
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(fields.length > 1 && fields[1].equals("b") ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE);
+        return game;
+    }
+
+    /**
+     * @return FEN string for a game's board and team turn
+     */
+    public static String format(ChessGame game) {
+        return placement(game.getBoard()) + (game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w" : " b")
+                + " - - 0 1";
+    }
+
+    /**
+     * @return the piece placement field of FEN for a board
+     */
+    public static String placement(ChessBoard board) {
+        StringBuilder fen = new StringBuilder();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(symbol(piece));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        return fen.toString();
+    }
+
+    /**
+     * @return FEN letter for a piece: upper case for white, lower case for black
+     */
+    public static char symbol(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case PAWN -> 'p';
+            case KNIGHT -> 'n';
+            case BISHOP -> 'b';
+            case ROOK -> 'r';
+            case QUEEN -> 'q';
+            case KING -> 'k';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    /**
+     * @param symbol FEN letter: upper case for white, lower case for black
+     * @return the piece the letter stands for
+     * @throws IllegalArgumentException if the letter is not a piece
+     */
+    public static ChessPiece piece(char symbol) {
+        ChessPiece.PieceType type = pieceType(Character.toLowerCase(symbol));
+        if (type == null) {
+            throw new IllegalArgumentException("Not a FEN piece: " + symbol);
+        }
+        return new ChessPiece(Character.isUpperCase(symbol) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK,
+                type);
+    }
+
+    private static ChessPiece.PieceType pieceType(char c) {
+        return switch (c) {
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'k' -> ChessPiece.PieceType.KING;
+            default -> null;
+        };
+    }
+}
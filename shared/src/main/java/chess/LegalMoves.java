@@ -0,0 +1,118 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Every legal move for the side to move in one position, as a 64-bit mask of
+ * destination squares for each origin square
+ * <p>
+ * Squares are numbered 0-63 from a1, the same as in {@link ChessMove#pack()}.
+ * A pawn about to promote has its origin in a separate mask, and a move from
+ * it is only legal with a promotion piece. Checking a move is two bit tests.
+ */
+public final class LegalMoves {
+
+    private final long[] destinations;
+    private final long promoting;
+
+    /**
+     * @param destinations destination mask for each of the 64 origin squares
+     * @param promoting mask of origin squares whose moves must promote
+     */
+    public LegalMoves(long[] destinations, long promoting) {
+        if (destinations.length != 64) {
+            throw new IllegalArgumentException("need a destination mask for each of the 64 squares");
+        }
+        this.destinations = destinations.clone();
+        this.promoting = promoting;
+    }
+
+    /**
+     * @param game game to find moves in
+     * @return the legal moves for the side whose turn it is
+     */
+    public static LegalMoves of(ChessGame game) {
+        long[] destinations = new long[64];
+        long promoting = 0;
+        for (ChessMove move : game.allValidMoves(game.getTeamTurn())) {
+            int from = index(move.getStartPosition());
+            destinations[from] |= 1L << index(move.getEndPosition());
+            if (move.getPromotionPiece() != null) {
+                promoting |= 1L << from;
+            }
+        }
+        return new LegalMoves(destinations, promoting);
+    }
+
+    /**
+     * @param move move to check
+     * @return whether the move is legal in this position
+     */
+    public boolean contains(ChessMove move) {
+        int from = index(move.getStartPosition());
+        if ((destinations[from] & 1L << index(move.getEndPosition())) == 0) {
+            return false;
+        }
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        if ((promoting & 1L << from) == 0) {
+            return promotion == null;
+        }
+        return promotion != null && promotion != ChessPiece.PieceType.KING && promotion != ChessPiece.PieceType.PAWN;
+    }
+
+    /**
+     * @param origin square to move from
+     * @return mask of the squares the piece there can move to, bit n for square n
+     */
+    public long destinations(ChessPosition origin) {
+        return destinations[index(origin)];
+    }
+
+    /**
+     * @param square origin square number, 0-63 from a1
+     * @return mask of the squares the piece there can move to
+     */
+    public long destinations(int square) {
+        return destinations[square];
+    }
+
+    /**
+     * @return mask of origin squares whose moves must promote
+     */
+    public long promoting() {
+        return promoting;
+    }
+
+    /**
+     * @return whether the side to move has no legal move, so the game is
+     *         over by checkmate or stalemate
+     */
+    public boolean isEmpty() {
+        for (long mask : destinations) {
+            if (mask != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int index(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LegalMoves that)) {
+            return false;
+        }
+        return promoting == that.promoting && Arrays.equals(destinations, that.destinations);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(destinations) + Long.hashCode(promoting);
+    }
+}
@@ -0,0 +1,235 @@
+package chess.engine;
+
+import chess.*;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Scores large batches of positions in parallel, for game review, puzzle
+ * validation and similar bulk jobs
+ * <p>
+ * Positions are split recursively across a fork/join pool, so idle workers
+ * steal the remaining work from busy ones. Each worker thread keeps its own
+ * {@link Search}, and results are handed back one at a time as soon as each
+ * position is done rather than after the whole batch.
+ */
+public class Analyzer implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    // Whether the pool was made here, and so is shut down on close
+    private final boolean ownsPool;
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    /**
+     * Analyzes on a pool of its own with one worker per core, shut down by {@link #close()}
+     */
+    public Analyzer() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * @param pool pool to run the analysis on; left running by {@link #close()}
+     */
+    public Analyzer(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private Analyzer(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * How much work to spend on each position. Depths are searched in turn
+     * until the depth limit is reached or the node limit has been used up.
+     *
+     * @param maxDepth deepest search to run
+     * @param maxNodes node count after which no deeper search is started
+     */
+    public record Budget(int maxDepth, long maxNodes) {
+
+        public Budget {
+            if (maxDepth < 1 || maxNodes < 1) {
+                throw new IllegalArgumentException("a budget needs at least one ply and one node");
+            }
+        }
+    }
+
+    /**
+     * @param index position of the game in the submitted list
+     * @param result deepest completed search of the position
+     */
+    public record Analysis(int index, SearchResult result) {
+    }
+
+    /**
+     * @param positions number of positions analyzed
+     * @param nodes total nodes searched
+     * @param elapsedMillis wall time for the whole batch
+     */
+    public record Report(int positions, long nodes, long elapsedMillis) {
+
+        public double positionsPerSecond() {
+            return elapsedMillis == 0 ? positions * 1000.0 : positions * 1000.0 / elapsedMillis;
+        }
+    }
+
+    /**
+     * Analyzes every game's current position, blocking until all are done
+     *
+     * @param games games to analyze; they are not modified
+     * @param budget work to spend on each position
+     * @param callback called from worker threads with each result as it finishes
+     * @return summary of the batch
+     */
+    public Report analyzeAll(List<ChessGame> games, Budget budget, Consumer<Analysis> callback) {
+        long start = System.currentTimeMillis();
+        LongAdder nodes = new LongAdder();
+        pool.invoke(new AnalyzeTask(games, 0, games.size(), budget, analysis -> {
+            nodes.add(analysis.result().nodes());
+            callback.accept(analysis);
+        }));
+        return new Report(games.size(), nodes.sum(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Analyzes positions given in FEN, blocking until all are done
+     *
+     * @param fens positions to analyze
+     * @param budget work to spend on each position
+     * @param callback called from worker threads with each result as it finishes
+     * @return summary of the batch
+     * @throws IllegalArgumentException if a string is not valid FEN
+     */
+    public Report analyzeAllFen(List<String> fens, Budget budget, Consumer<Analysis> callback) {
+        List<ChessGame> games = new ArrayList<>();
+        for (String fen : fens) {
+            games.add(Fen.parse(fen));
+        }
+        return analyzeAll(games, budget, callback);
+    }
+
+    /**
+     * Publishes the analysis of every game's current position. The batch
+     * starts when a subscriber subscribes and the publisher completes once
+     * every position has been delivered. No result is dropped: a worker that
+     * finds a slow subscriber's buffer full waits for room, and the pool
+     * starts a spare worker meanwhile so the rest of the batch carries on.
+     *
+     * @param games games to analyze; they are not modified
+     * @param budget work to spend on each position
+     * @return publisher of results in completion order
+     */
+    public Flow.Publisher<Analysis> publishAll(List<ChessGame> games, Budget budget) {
+        return subscriber -> {
+            SubmissionPublisher<Analysis> publisher = new SubmissionPublisher<>();
+            publisher.subscribe(subscriber);
+            pool.execute(() -> {
+                try {
+                    analyzeAll(games, budget, analysis -> submit(publisher, analysis));
+                    publisher.close();
+                } catch (RuntimeException ex) {
+                    publisher.closeExceptionally(ex);
+                }
+            });
+        };
+    }
+
+    /**
+     * Shuts down the pool if this analyzer made it. Batches already running
+     * are finished first.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Submits to a publisher from a pool worker, telling the pool the worker
+     * may block so it can compensate
+     */
+    private static <T> void submit(SubmissionPublisher<T> publisher, T item) {
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean submitted;
+
+                @Override
+                public boolean block() {
+                    publisher.submit(item);
+                    submitted = true;
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return submitted;
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while publishing a result");
+        }
+    }
+
+    /**
+     * Searches one position with iterative deepening inside the budget
+     */
+    SearchResult analyze(ChessGame game, Budget budget) {
+        Search search = searches.get();
+        SearchResult result = null;
+        long nodes = 0;
+        for (int depth = 1; depth <= budget.maxDepth() && nodes < budget.maxNodes(); depth++) {
+            SearchResult completed = search.search(game, depth);
+            nodes += completed.nodes();
+            result = new SearchResult(completed.bestMove(), completed.score(), depth, nodes,
+                    result == null ? completed.elapsedMillis() : result.elapsedMillis() + completed.elapsedMillis(),
+                    SearchResult.Source.SEARCH);
+            if (completed.bestMove() == null) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private class AnalyzeTask extends RecursiveAction {
+        // Tasks are never serialized; RecursiveAction is only Serializable by inheritance
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<ChessGame> games;
+        private final int from;
+        private final int to;
+        private final transient Budget budget;
+        private final transient Consumer<Analysis> callback;
+
+        AnalyzeTask(List<ChessGame> games, int from, int to, Budget budget, Consumer<Analysis> callback) {
+            this.games = games;
+            this.from = from;
+            this.to = to;
+            this.budget = budget;
+            this.callback = callback;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                callback.accept(new Analysis(from, analyze(games.get(from), budget)));
+            } else if (to > from) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new AnalyzeTask(games, from, mid, budget, callback),
+                        new AnalyzeTask(games, mid, to, budget, callback));
+            }
+        }
+    }
+}
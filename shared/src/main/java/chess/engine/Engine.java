@@ -0,0 +1,105 @@
+package chess.engine;
+
+import chess.*;
+
+import java.util.Random;
+
+/**
+ * Picks moves for a game: from the opening book when the position is in it,
+ * from the endgame tablebase when few enough pieces remain, and otherwise by
+ * searching
+ */
+public class Engine {
+
+    private final Search search = new Search();
+    private final OpeningBook book;
+    private final Tablebase tablebase;
+    private final Random random = new Random();
+    private long bookHits;
+    private long tablebaseHits;
+
+    public Engine() {
+        this(null, null);
+    }
+
+    /**
+     * @param book opening book to consult before searching, or null for none
+     * @param tablebase endgame tablebase to consult before searching, or null for none
+     */
+    public Engine(OpeningBook book, Tablebase tablebase) {
+        this.book = book;
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Chooses a move for the side to move in a game
+     *
+     * @param game game to choose a move for
+     * @param depth search depth to use when neither the book nor the tablebase
+     *              has the position
+     * @return the chosen move and where it came from
+     */
+    public SearchResult bestMove(ChessGame game, int depth) {
+        long start = System.currentTimeMillis();
+        if (book != null) {
+            ChessMove bookMove = book.pickMove(game, random);
+            if (bookMove != null) {
+                bookHits++;
+                return new SearchResult(bookMove, 0, 0, 0, System.currentTimeMillis() - start,
+                        SearchResult.Source.BOOK);
+            }
+        }
+        if (tablebase != null && tablebase.probe(game) != null) {
+            SearchResult result = tablebaseMove(game, start);
+            if (result != null) {
+                tablebaseHits++;
+                return result;
+            }
+        }
+        return search.search(game, depth);
+    }
+
+    /**
+     * Picks the move whose resulting position is best for us according to the
+     * tablebase: the fastest mate when winning, the slowest when losing
+     */
+    private SearchResult tablebaseMove(ChessGame game, long start) {
+        ChessMove bestMove = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (ChessMove move : game.allValidMoves(game.getTeamTurn())) {
+            Tablebase.Result result = tablebase.probe(Search.play(game, move));
+            if (result == null) {
+                continue;
+            }
+            // Results are from the opponent's point of view after our move
+            int score = switch (result.outcome()) {
+                case LOSS -> Search.MATE_SCORE - result.plies() - 1;
+                case DRAW -> 0;
+                case WIN -> -Search.MATE_SCORE + result.plies() + 1;
+            };
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+        }
+        if (bestMove == null) {
+            return null;
+        }
+        return new SearchResult(bestMove, bestScore, 0, 0, System.currentTimeMillis() - start,
+                SearchResult.Source.TABLEBASE);
+    }
+
+    /**
+     * @return number of moves answered from the opening book so far
+     */
+    public long getBookHits() {
+        return bookHits;
+    }
+
+    /**
+     * @return number of moves answered from the endgame tablebase so far
+     */
+    public long getTablebaseHits() {
+        return tablebaseHits;
+    }
+}
@@ -0,0 +1,64 @@
+package chess.engine;
+
+import chess.*;
+
+/**
+ * Static evaluation of a chess board, in centipawns
+ */
+public class Evaluation {
+
+    public static final int PAWN_VALUE = 100;
+    public static final int KNIGHT_VALUE = 320;
+    public static final int BISHOP_VALUE = 330;
+    public static final int ROOK_VALUE = 500;
+    public static final int QUEEN_VALUE = 900;
+    public static final int KING_VALUE = 20000;
+
+    /**
+     * Gets the material value of a piece type
+     *
+     * @param type piece type to get the value of
+     * @return value of the piece type in centipawns
+     */
+    public static int pieceValue(ChessPiece.PieceType type) {
+        return switch (type) {
+            case PAWN -> PAWN_VALUE;
+            case KNIGHT -> KNIGHT_VALUE;
+            case BISHOP -> BISHOP_VALUE;
+            case ROOK -> ROOK_VALUE;
+            case QUEEN -> QUEEN_VALUE;
+            case KING -> KING_VALUE;
+        };
+    }
+
+    /**
+     * Evaluates a board from the point of view of a given team: material plus a
+     * small bonus for centralized minor pieces and advanced pawns
+     *
+     * @param board board to evaluate
+     * @param teamColor team whose point of view the score is from
+     * @return score in centipawns, positive if the team is better
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor teamColor) {
+        int score = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    continue;
+                }
+                int value = pieceValue(piece.getPieceType()) + positionBonus(piece, row, col);
+                score += piece.getTeamColor() == teamColor ? value : -value;
+            }
+        }
+        return score;
+    }
+
+    private static int positionBonus(ChessPiece piece, int row, int col) {
+        return switch (piece.getPieceType()) {
+            case KNIGHT, BISHOP -> 10 - 3 * (Math.abs(2 * row - 9) + Math.abs(2 * col - 9)) / 2;
+            case PAWN -> 5 * (piece.getTeamColor() == ChessGame.TeamColor.WHITE ? row - 2 : 7 - row);
+            default -> 0;
+        };
+    }
+}
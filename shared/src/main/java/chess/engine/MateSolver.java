@@ -0,0 +1,201 @@
+package chess.engine;
+
+import chess.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proves or disproves "mate in N" with depth-first proof-number search (df-pn)
+ * <p>
+ * Positions where the attacker is to move are OR nodes: one mating move is
+ * enough. Positions where the defender is to move are AND nodes: every reply
+ * has to be mated. Each node keeps a proof number and a disproof number, the
+ * smallest number of leaves that still have to be solved to prove or disprove
+ * it, and the search always descends toward the node that is cheapest to
+ * settle. Proof and disproof numbers live in a table keyed by Zobrist key and
+ * remaining depth, so transposed move orders share their work.
+ */
+public class MateSolver {
+
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private final Map<Long, int[]> table = new HashMap<>();
+    private long nodes;
+    private long nodeBudget;
+
+    /**
+     * Outcome of a solve
+     */
+    public enum Status {
+        MATE,
+        NO_MATE,
+        UNKNOWN
+    }
+
+    /**
+     * @param status whether a forced mate was proven, disproven, or neither
+     *               within the node budget
+     * @param principalVariation mating line when a mate was proven, otherwise empty
+     * @param nodes number of positions expanded
+     * @param elapsedMillis wall time spent solving
+     */
+    public record Result(Status status, List<ChessMove> principalVariation, long nodes, long elapsedMillis) {
+    }
+
+    /**
+     * Searches for a forced mate by the side to move
+     *
+     * @param game game whose current position to solve
+     * @param moves mate must be delivered within this many of the attacker's moves
+     * @param nodeBudget maximum number of positions to expand before giving up
+     * @return whether there is a forced mate, and the mating line if there is
+     */
+    public Result solve(ChessGame game, int moves, long nodeBudget) {
+        long start = System.currentTimeMillis();
+        table.clear();
+        nodes = 0;
+        this.nodeBudget = nodeBudget;
+
+        int plies = 2 * moves - 1;
+        int[] root = search(game, plies, true, INFINITY, INFINITY);
+
+        Status status = root[0] == 0 ? Status.MATE : root[1] == 0 ? Status.NO_MATE : Status.UNKNOWN;
+        List<ChessMove> line = status == Status.MATE ? principalVariation(game, plies) : List.of();
+        return new Result(status, line, nodes, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Multiple-iterative-deepening step of df-pn: expands a node until its
+     * proof number reaches {@code proofLimit} or its disproof number reaches
+     * {@code disproofLimit}
+     *
+     * @return the node's {proof number, disproof number}
+     */
+    private int[] search(ChessGame game, int plies, boolean attacker, int proofLimit, int disproofLimit) {
+        if (nodes >= nodeBudget) {
+            return lookup(game, plies);
+        }
+        nodes++;
+
+        List<ChessGame> children = children(game, plies, attacker);
+        if (children.isEmpty()) {
+            return store(game, plies, leaf(game, attacker));
+        }
+
+        while (true) {
+            int proof = attacker ? INFINITY : 0;
+            int disproof = attacker ? 0 : INFINITY;
+            int best = -1;
+            int bestValue = INFINITY;
+            int secondValue = INFINITY;
+            for (int i = 0; i < children.size(); i++) {
+                int[] child = lookup(children.get(i), plies - 1);
+                // OR node: prove one child; AND node: prove them all
+                int value = attacker ? child[0] : child[1];
+                if (attacker) {
+                    proof = Math.min(proof, child[0]);
+                    disproof = add(disproof, child[1]);
+                } else {
+                    proof = add(proof, child[0]);
+                    disproof = Math.min(disproof, child[1]);
+                }
+                if (value < bestValue) {
+                    secondValue = bestValue;
+                    bestValue = value;
+                    best = i;
+                } else if (value < secondValue) {
+                    secondValue = value;
+                }
+            }
+            if (proof >= proofLimit || disproof >= disproofLimit || nodes >= nodeBudget) {
+                return store(game, plies, new int[]{proof, disproof});
+            }
+
+            ChessGame child = children.get(best);
+            int[] current = lookup(child, plies - 1);
+            if (attacker) {
+                search(child, plies - 1, false, Math.min(proofLimit, add(secondValue, 1)),
+                        add(disproofLimit - disproof, current[1]));
+            } else {
+                search(child, plies - 1, true, add(proofLimit - proof, current[0]),
+                        Math.min(disproofLimit, add(secondValue, 1)));
+            }
+        }
+    }
+
+    /**
+     * Follows proven moves from the root to recover the mating line
+     */
+    private List<ChessMove> principalVariation(ChessGame game, int plies) {
+        List<ChessMove> line = new ArrayList<>();
+        while (plies > 0) {
+            ChessMove next = null;
+            for (ChessMove move : game.allValidMoves(game.getTeamTurn())) {
+                ChessGame child = Search.play(game, move);
+                if (lookup(child, plies - 1)[0] == 0) {
+                    // Every defender reply is a proven mate, so any one will do
+                    next = move;
+                    break;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            line.add(next);
+            game = Search.play(game, next);
+            plies--;
+        }
+        return line;
+    }
+
+    /**
+     * Generates the children worth searching. On the attacker's last move
+     * only checks can mate, so quiet moves are dropped there.
+     */
+    private List<ChessGame> children(ChessGame game, int plies, boolean attacker) {
+        List<ChessGame> children = new ArrayList<>();
+        if (plies == 0) {
+            return children;
+        }
+        Collection<ChessMove> moves = game.allValidMoves(game.getTeamTurn());
+        for (ChessMove move : moves) {
+            ChessGame child = Search.play(game, move);
+            if (attacker && plies == 1 && !child.isInCheck(child.getTeamTurn())) {
+                continue;
+            }
+            children.add(child);
+        }
+        return children;
+    }
+
+    /**
+     * Proof and disproof numbers of a node with nothing left to search
+     */
+    private int[] leaf(ChessGame game, boolean attacker) {
+        boolean mated = !attacker && game.isInCheck(game.getTeamTurn())
+                && game.allValidMoves(game.getTeamTurn()).isEmpty();
+        return mated ? new int[]{0, INFINITY} : new int[]{INFINITY, 0};
+    }
+
+    private int[] lookup(ChessGame game, int plies) {
+        int[] entry = table.get(tableKey(game, plies));
+        return entry == null ? new int[]{1, 1} : entry;
+    }
+
+    private int[] store(ChessGame game, int plies, int[] numbers) {
+        table.put(tableKey(game, plies), numbers);
+        return numbers;
+    }
+
+    private static long tableKey(ChessGame game, int plies) {
+        return Zobrist.key(game) ^ plies * 0x9E3779B97F4A7C15L;
+    }
+
+    private static int add(int a, int b) {
+        return (int) Math.min((long) a + b, INFINITY);
+    }
+}
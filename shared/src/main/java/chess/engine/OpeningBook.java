@@ -0,0 +1,141 @@
+package chess.engine;
+
+import chess.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Read-only opening book backed by a memory-mapped file
+ * <p>
+ * The file is a header (magic number, record count) followed by fixed-size
+ * records of (position key, packed move, weight), sorted by position key.
+ * Lookups binary search the mapping directly, so nothing is copied onto the
+ * heap, and every process that opens the same file shares one copy of it
+ * through the operating system's page cache.
+ */
+public class OpeningBook {
+
+    static final int MAGIC = 0x43424B31; // "CBK1"
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 12;
+
+    private final ByteBuffer records;
+    private final int count;
+
+    private OpeningBook(ByteBuffer records, int count) {
+        this.records = records;
+        this.count = count;
+    }
+
+    /**
+     * A move stored in the book for a position
+     *
+     * @param move the book move
+     * @param weight how often the move was played, relative to the other book moves
+     */
+    public record BookEntry(ChessMove move, int weight) {
+    }
+
+    /**
+     * Maps an opening book file into memory
+     *
+     * @param path book file written by {@link OpeningBookBuilder}
+     * @return the opening book
+     * @throws IOException if the file cannot be read or is not an opening book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            int count = buffer.getInt(4);
+            if ((long) HEADER_SIZE + (long) count * RECORD_SIZE > buffer.limit()) {
+                throw new IOException("Truncated opening book: " + path);
+            }
+            return new OpeningBook(buffer, count);
+        }
+    }
+
+    /**
+     * @return number of (position, move) records in the book
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the book moves for a position
+     *
+     * @param key Zobrist key of the position
+     * @return book moves for the position, empty if the position is not in the book
+     */
+    public List<BookEntry> lookup(long key) {
+        List<BookEntry> entries = new ArrayList<>();
+        for (int i = lowerBound(key); i < count && keyAt(i) == key; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            ChessMove move = ChessMove.unpack(records.getShort(offset + 8));
+            entries.add(new BookEntry(move, Short.toUnsignedInt(records.getShort(offset + 10))));
+        }
+        return entries;
+    }
+
+    /**
+     * Picks a book move for a game's current position, at random in proportion
+     * to the move weights. Moves that are not valid in the game (possible after
+     * a key collision) are never returned.
+     *
+     * @param game game to pick a move for
+     * @param random source of randomness
+     * @return a book move, or null if the position is not in the book
+     */
+    public ChessMove pickMove(ChessGame game, Random random) {
+        List<BookEntry> entries = new ArrayList<>();
+        int totalWeight = 0;
+        for (BookEntry entry : lookup(Zobrist.key(game))) {
+            Collection<ChessMove> validMoves = game.validMoves(entry.move().getStartPosition());
+            if (entry.weight() > 0 && validMoves != null && validMoves.contains(entry.move())) {
+                entries.add(entry);
+                totalWeight += entry.weight();
+            }
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+        int pick = random.nextInt(totalWeight);
+        for (BookEntry entry : entries) {
+            pick -= entry.weight();
+            if (pick < 0) {
+                return entry.move();
+            }
+        }
+        return entries.get(entries.size() - 1).move();
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int index) {
+        return records.getLong(HEADER_SIZE + index * RECORD_SIZE);
+    }
+}
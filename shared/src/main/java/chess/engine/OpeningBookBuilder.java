@@ -0,0 +1,75 @@
+package chess.engine;
+
+import chess.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds an opening book file offline from a set of played games
+ */
+public class OpeningBookBuilder {
+
+    private final int maxPly;
+    // Position key -> packed move -> number of games the move was played in
+    private final Map<Long, Map<Short, Integer>> counts = new TreeMap<>();
+
+    /**
+     * @param maxPly number of plies from the start of each game to record
+     */
+    public OpeningBookBuilder(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Replays a game from the starting position and records its opening moves
+     *
+     * @param moves the moves of the game, in order
+     * @throws InvalidMoveException if the game contains an invalid move
+     */
+    public void addGame(List<ChessMove> moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int ply = 0; ply < Math.min(maxPly, moves.size()); ply++) {
+            ChessMove move = moves.get(ply);
+            counts.computeIfAbsent(Zobrist.key(game), key -> new HashMap<>())
+                    .merge(move.pack(), 1, Integer::sum);
+            game.makeMove(move);
+        }
+    }
+
+    /**
+     * Writes the book, sorted by position key, to a file
+     *
+     * @param path file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        int records = 0;
+        for (Map<Short, Integer> moves : counts.values()) {
+            records += moves.size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_SIZE + records * OpeningBook.RECORD_SIZE);
+        buffer.putInt(OpeningBook.MAGIC).putInt(records);
+        for (Map.Entry<Long, Map<Short, Integer>> position : counts.entrySet()) {
+            for (Map.Entry<Short, Integer> move : position.getValue().entrySet()) {
+                buffer.putLong(position.getKey())
+                        .putShort(move.getKey())
+                        .putShort((short) Math.min(move.getValue(), 0xFFFF));
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
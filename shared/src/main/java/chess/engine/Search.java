@@ -0,0 +1,177 @@
+package chess.engine;
+
+import chess.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Fixed-depth alpha-beta search over the shared chess rules, finished off with
+ * a capture-only quiescence search so that leaf scores are never taken in the
+ * middle of an exchange
+ * <p>
+ * A search instance keeps counters between calls and is not thread-safe; use
+ * one instance per thread.
+ */
+public class Search {
+
+    public static final int MATE_SCORE = 1_000_000;
+
+    // Largest swing a single capture can make, used to skip hopeless captures
+    private static final int DELTA_MARGIN = 200;
+
+    private long nodes;
+
+    /**
+     * Searches a game position to a fixed depth
+     *
+     * @param game game whose current position and team turn to search
+     * @param depth number of plies to search before dropping into quiescence
+     * @return the best move and its score
+     */
+    public SearchResult search(ChessGame game, int depth) {
+        long start = System.currentTimeMillis();
+        nodes = 0;
+
+        ChessMove bestMove = null;
+        int alpha = -MATE_SCORE - 1;
+        int beta = MATE_SCORE + 1;
+        for (ChessMove move : orderMoves(game, game.allValidMoves(game.getTeamTurn()))) {
+            int score = -alphaBeta(play(game, move), depth - 1, -beta, -alpha, 1);
+            if (bestMove == null || score > alpha) {
+                alpha = score;
+                bestMove = move;
+            }
+        }
+        if (bestMove == null) {
+            alpha = terminalScore(game, 0);
+        }
+        return new SearchResult(bestMove, alpha, depth, nodes, System.currentTimeMillis() - start,
+                SearchResult.Source.SEARCH);
+    }
+
+    /**
+     * @return number of positions visited by the last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    int alphaBeta(ChessGame game, int depth, int alpha, int beta, int ply) {
+        if (depth <= 0) {
+            return quiescence(game, alpha, beta);
+        }
+        nodes++;
+
+        Collection<ChessMove> moves = game.allValidMoves(game.getTeamTurn());
+        if (moves.isEmpty()) {
+            return terminalScore(game, ply);
+        }
+        for (ChessMove move : orderMoves(game, moves)) {
+            int score = -alphaBeta(play(game, move), depth - 1, -beta, -alpha, ply + 1);
+            if (score >= beta) {
+                return beta;
+            }
+            alpha = Math.max(alpha, score);
+        }
+        return alpha;
+    }
+
+    /**
+     * Searches captures only until the position is quiet. The side to move may
+     * always "stand pat" on the static evaluation instead of capturing, captures
+     * that cannot raise the score to alpha are skipped (delta pruning), and
+     * captures that lose material according to SEE are never searched.
+     */
+    int quiescence(ChessGame game, int alpha, int beta) {
+        nodes++;
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor team = game.getTeamTurn();
+
+        int standPat = Evaluation.evaluate(board, team);
+        if (standPat >= beta) {
+            return beta;
+        }
+        if (standPat + Evaluation.QUEEN_VALUE + DELTA_MARGIN < alpha) {
+            return alpha;
+        }
+        alpha = Math.max(alpha, standPat);
+
+        List<ScoredMove> captures = new ArrayList<>();
+        for (ChessPosition piecePos : board.getTeamPiecePositions(team)) {
+            ChessPiece piece = board.getPiece(piecePos);
+            for (ChessMove move : piece.pieceMoves(board, piecePos)) {
+                ChessPiece target = board.getPiece(move.getEndPosition());
+                if (target == null && move.getPromotionPiece() == null) {
+                    continue;
+                }
+                int gain = target == null ? 0 : Evaluation.pieceValue(target.getPieceType());
+                if (standPat + gain + DELTA_MARGIN < alpha && move.getPromotionPiece() == null) {
+                    continue;
+                }
+                int see = StaticExchange.evaluate(board, move);
+                if (see >= 0) {
+                    captures.add(new ScoredMove(move, see));
+                }
+            }
+        }
+        captures.sort(Comparator.comparingInt(ScoredMove::score).reversed());
+
+        for (ScoredMove capture : captures) {
+            ChessGame next = play(game, capture.move());
+            // Captures come from pieceMoves, so the ones leaving our king in check are dropped here
+            if (next.isInCheck(team)) {
+                continue;
+            }
+            int score = -quiescence(next, -beta, -alpha);
+            if (score >= beta) {
+                return beta;
+            }
+            alpha = Math.max(alpha, score);
+        }
+        return alpha;
+    }
+
+    /**
+     * Orders moves for the search: winning and even captures by SEE first,
+     * then quiet moves, then captures that lose material
+     *
+     * @param game game the moves are made in
+     * @param moves moves to order
+     * @return the moves, best candidates first
+     */
+    public static List<ChessMove> orderMoves(ChessGame game, Collection<ChessMove> moves) {
+        ChessBoard board = game.getBoard();
+        List<ScoredMove> scored = new ArrayList<>();
+        for (ChessMove move : moves) {
+            boolean capture = board.getPiece(move.getEndPosition()) != null || move.getPromotionPiece() != null;
+            int score = capture ? StaticExchange.evaluate(board, move) : -1;
+            scored.add(new ScoredMove(move, score));
+        }
+        scored.sort(Comparator.comparingInt(ScoredMove::score).reversed());
+
+        List<ChessMove> ordered = new ArrayList<>();
+        for (ScoredMove move : scored) {
+            ordered.add(move.move());
+        }
+        return ordered;
+    }
+
+    private int terminalScore(ChessGame game, int ply) {
+        return game.isInCheck(game.getTeamTurn()) ? -MATE_SCORE + ply : 0;
+    }
+
+    static ChessGame play(ChessGame game, ChessMove move) {
+        ChessGame next = new ChessGame(game);
+        ChessPiece piece = next.getBoard().getPiece(move.getStartPosition());
+        next.executePieceMove(next.getBoard(), piece, move);
+        next.setTeamTurn(piece.getTeamColor() == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        return next;
+    }
+
+    private record ScoredMove(ChessMove move, int score) {
+    }
+}
@@ -0,0 +1,27 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+/**
+ * Outcome of a search: the best move found, its score from the point of view
+ * of the side to move, and how much work it took to find it
+ *
+ * @param bestMove best move found, or null if the side to move has no moves
+ * @param score score in centipawns from the side to move's point of view
+ * @param depth depth the search completed
+ * @param nodes number of positions visited, including quiescence nodes
+ * @param elapsedMillis wall time spent searching
+ * @param source where the move came from
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long elapsedMillis,
+                           Source source) {
+
+    /**
+     * Where a result came from
+     */
+    public enum Source {
+        SEARCH,
+        BOOK,
+        TABLEBASE
+    }
+}
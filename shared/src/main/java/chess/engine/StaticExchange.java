@@ -0,0 +1,167 @@
+package chess.engine;
+
+import chess.*;
+
+/**
+ * Static exchange evaluation (SEE): scores the full sequence of captures on a
+ * single square, each side always recapturing with its least valuable piece,
+ * without making any moves on the board.
+ */
+public class StaticExchange {
+
+    private static final int[][] KNIGHT_DIRECTIONS = {
+            {-1, 2}, {1, 2}, {-2, 1}, {2, 1}, {-2, -1}, {2, -1}, {-1, -2}, {1, -2}
+    };
+    private static final int[][] DIAGONAL_DIRECTIONS = {{-1, 1}, {1, 1}, {-1, -1}, {1, -1}};
+    private static final int[][] ORTHOGONAL_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+    private static final int[][] KING_DIRECTIONS = {
+            {0, 1}, {0, -1}, {1, 0}, {-1, 0}, {-1, 1}, {1, 1}, {-1, -1}, {1, -1}
+    };
+
+    /**
+     * Evaluates the material outcome of a move and every recapture that follows
+     * it on the move's end square
+     *
+     * @param board board the move is made on
+     * @param move move to evaluate, normally a capture
+     * @return expected material gain in centipawns for the moving side
+     */
+    public static int evaluate(ChessBoard board, ChessMove move) {
+        ChessPiece mover = board.getPiece(move.getStartPosition());
+        ChessPiece target = board.getPiece(move.getEndPosition());
+        ChessPosition square = move.getEndPosition();
+        boolean[][] removed = new boolean[8][8];
+        int[] gain = new int[32];
+
+        gain[0] = target == null ? 0 : Evaluation.pieceValue(target.getPieceType());
+        int onSquare = Evaluation.pieceValue(mover.getPieceType());
+        if (move.getPromotionPiece() != null) {
+            int promotion = Evaluation.pieceValue(move.getPromotionPiece());
+            gain[0] += promotion - Evaluation.PAWN_VALUE;
+            onSquare = promotion;
+        }
+        removed[move.getStartPosition().getRow() - 1][move.getStartPosition().getColumn() - 1] = true;
+
+        ChessGame.TeamColor side = opponent(mover.getTeamColor());
+        int depth = 0;
+        while (depth < gain.length - 1) {
+            ChessPosition attacker = leastValuableAttacker(board, square, side, removed);
+            if (attacker == null) {
+                break;
+            }
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            // Neither side can improve on standing pat from here on
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                break;
+            }
+            removed[attacker.getRow() - 1][attacker.getColumn() - 1] = true;
+            onSquare = Evaluation.pieceValue(board.getPiece(attacker).getPieceType());
+            side = opponent(side);
+        }
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    /**
+     * Finds the least valuable piece of a team attacking a square, ignoring
+     * pieces that have already been traded off so sliders behind them are seen
+     *
+     * @param board board to search
+     * @param square square being attacked
+     * @param side team whose attackers to look for
+     * @param removed squares whose pieces have already been traded off
+     * @return position of the least valuable attacker, or null if there is none
+     */
+    static ChessPosition leastValuableAttacker(ChessBoard board, ChessPosition square,
+                                               ChessGame.TeamColor side, boolean[][] removed) {
+        ChessPosition best = null;
+        int bestValue = Integer.MAX_VALUE;
+
+        // A pawn of this side attacks the square from one row behind it
+        int pawnRow = square.getRow() + (side == ChessGame.TeamColor.WHITE ? -1 : 1);
+        for (int dx : new int[]{-1, 1}) {
+            ChessPosition pos = pieceAt(board, pawnRow, square.getColumn() + dx, removed);
+            if (isPiece(board, pos, side, ChessPiece.PieceType.PAWN)) {
+                return pos;
+            }
+        }
+        for (int[] dir : KNIGHT_DIRECTIONS) {
+            ChessPosition pos = pieceAt(board, square.getRow() + dir[1], square.getColumn() + dir[0], removed);
+            if (isPiece(board, pos, side, ChessPiece.PieceType.KNIGHT)) {
+                return pos;
+            }
+        }
+        for (int[] dir : DIAGONAL_DIRECTIONS) {
+            ChessPosition pos = firstAlongRay(board, square, dir, removed);
+            if (pos != null && (isPiece(board, pos, side, ChessPiece.PieceType.BISHOP)
+                    || isPiece(board, pos, side, ChessPiece.PieceType.QUEEN))) {
+                int value = Evaluation.pieceValue(board.getPiece(pos).getPieceType());
+                if (value < bestValue) {
+                    best = pos;
+                    bestValue = value;
+                }
+            }
+        }
+        for (int[] dir : ORTHOGONAL_DIRECTIONS) {
+            ChessPosition pos = firstAlongRay(board, square, dir, removed);
+            if (pos != null && (isPiece(board, pos, side, ChessPiece.PieceType.ROOK)
+                    || isPiece(board, pos, side, ChessPiece.PieceType.QUEEN))) {
+                int value = Evaluation.pieceValue(board.getPiece(pos).getPieceType());
+                if (value < bestValue) {
+                    best = pos;
+                    bestValue = value;
+                }
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        for (int[] dir : KING_DIRECTIONS) {
+            ChessPosition pos = pieceAt(board, square.getRow() + dir[1], square.getColumn() + dir[0], removed);
+            if (isPiece(board, pos, side, ChessPiece.PieceType.KING)) {
+                return pos;
+            }
+        }
+        return null;
+    }
+
+    private static ChessPosition firstAlongRay(ChessBoard board, ChessPosition square, int[] dir,
+                                               boolean[][] removed) {
+        int row = square.getRow() + dir[1];
+        int col = square.getColumn() + dir[0];
+        while (row > 0 && col > 0 && row < 9 && col < 9) {
+            ChessPosition pos = pieceAt(board, row, col, removed);
+            if (pos != null) {
+                return pos;
+            }
+            row += dir[1];
+            col += dir[0];
+        }
+        return null;
+    }
+
+    private static ChessPosition pieceAt(ChessBoard board, int row, int col, boolean[][] removed) {
+        if (row < 1 || col < 1 || row > 8 || col > 8 || removed[row - 1][col - 1]) {
+            return null;
+        }
+        ChessPosition pos = new ChessPosition(row, col);
+        return board.getPiece(pos) == null ? null : pos;
+    }
+
+    private static boolean isPiece(ChessBoard board, ChessPosition pos, ChessGame.TeamColor side,
+                                   ChessPiece.PieceType type) {
+        if (pos == null) {
+            return false;
+        }
+        ChessPiece piece = board.getPiece(pos);
+        return piece.getTeamColor() == side && piece.getPieceType() == type;
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor teamColor) {
+        return teamColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
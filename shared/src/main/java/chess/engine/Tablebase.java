@@ -0,0 +1,182 @@
+package chess.engine;
+
+import chess.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Endgame tablebases for king and one extra piece against a lone king (KQK,
+ * KRK, KPK and so on), probed through memory-mapped table files
+ * <p>
+ * Each table holds one byte per position, indexed by side to move and the
+ * squares of the strong king, weak king and extra piece. Tables are stored
+ * with the strong side as white; positions where black is the strong side are
+ * mirrored before probing. A byte is {@link #DRAW}, {@link #ILLEGAL}, a win for
+ * the side to move in {@code n} plies ({@code 1 <= n <= 127}), or a loss for the
+ * side to move in {@code n} plies (stored as {@link #LOSS} + n).
+ */
+public class Tablebase {
+
+    public static final int TABLE_SIZE = 2 * 64 * 64 * 64;
+    public static final byte DRAW = 0;
+    public static final byte ILLEGAL = (byte) 255;
+    public static final int LOSS = 128;
+
+    private final Map<ChessPiece.PieceType, ByteBuffer> tables;
+
+    private Tablebase(Map<ChessPiece.PieceType, ByteBuffer> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Outcome of a position for the side to move
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * @param outcome outcome for the side to move
+     * @param plies plies until mate with best play, or 0 for a draw
+     */
+    public record Result(Outcome outcome, int plies) {
+    }
+
+    /**
+     * Maps every table file found in a directory into memory
+     *
+     * @param directory directory holding table files written by the generator
+     * @return the tablebase, possibly with no tables if none were found
+     * @throws IOException if a table file cannot be read
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Map<ChessPiece.PieceType, ByteBuffer> tables = new EnumMap<>(ChessPiece.PieceType.class);
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            Path file = directory.resolve(fileName(type));
+            if (type == ChessPiece.PieceType.KING || !Files.exists(file)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() != TABLE_SIZE) {
+                    throw new IOException("Wrong table size: " + file);
+                }
+                tables.put(type, channel.map(FileChannel.MapMode.READ_ONLY, 0, TABLE_SIZE));
+            }
+        }
+        return new Tablebase(tables);
+    }
+
+    /**
+     * @return file name of the table for king and a piece of the given type against king
+     */
+    public static String fileName(ChessPiece.PieceType type) {
+        // Standard letters; ChessPiece.toString prints 'K' for knights as well as kings
+        char letter = switch (type) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case ROOK -> 'R';
+            case PAWN -> 'P';
+        };
+        return "K" + letter + "K.tb";
+    }
+
+    /**
+     * Computes a position's index into a table, with white as the strong side
+     *
+     * @param strongKing square 0-63 of the strong side's king
+     * @param weakKing square 0-63 of the weak side's king
+     * @param piece square 0-63 of the strong side's extra piece
+     * @param strongToMove true if the strong side is to move
+     * @return index into the table
+     */
+    public static int index(int strongKing, int weakKing, int piece, boolean strongToMove) {
+        return (((strongToMove ? 0 : 1) * 64 + strongKing) * 64 + weakKing) * 64 + piece;
+    }
+
+    /**
+     * Decodes a table byte
+     *
+     * @param value byte from a table
+     * @return result for the side to move, or null for an illegal position
+     */
+    public static Result decode(byte value) {
+        int v = Byte.toUnsignedInt(value);
+        if (value == ILLEGAL) {
+            return null;
+        } else if (v == 0) {
+            return new Result(Outcome.DRAW, 0);
+        } else if (v < LOSS) {
+            return new Result(Outcome.WIN, v);
+        }
+        return new Result(Outcome.LOSS, v - LOSS);
+    }
+
+    /**
+     * Looks up a game's current position
+     *
+     * @param game game to look up
+     * @return result for the side to move, or null if the material is not covered
+     * by a loaded table
+     */
+    public Result probe(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        Collection<ChessPosition> white = board.getTeamPiecePositions(ChessGame.TeamColor.WHITE);
+        Collection<ChessPosition> black = board.getTeamPiecePositions(ChessGame.TeamColor.BLACK);
+        if (white.size() == 1 && black.size() == 1) {
+            return new Result(Outcome.DRAW, 0);
+        }
+        boolean whiteStrong = black.size() == 1 && white.size() == 2;
+        if (!whiteStrong && !(white.size() == 1 && black.size() == 2)) {
+            return null;
+        }
+
+        ChessGame.TeamColor strong = whiteStrong ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        int strongKing = -1;
+        int weakKing = -1;
+        int piece = -1;
+        ChessPiece.PieceType pieceType = null;
+        for (ChessPosition pos : whiteStrong ? white : black) {
+            ChessPiece p = board.getPiece(pos);
+            if (p.getPieceType() == ChessPiece.PieceType.KING) {
+                strongKing = square(pos, whiteStrong);
+            } else {
+                piece = square(pos, whiteStrong);
+                pieceType = p.getPieceType();
+            }
+        }
+        for (ChessPosition pos : whiteStrong ? black : white) {
+            weakKing = square(pos, whiteStrong);
+        }
+
+        ByteBuffer table = tables.get(pieceType);
+        if (strongKing < 0 || weakKing < 0 || table == null) {
+            return null;
+        }
+        return decode(table.get(index(strongKing, weakKing, piece, game.getTeamTurn() == strong)));
+    }
+
+    /**
+     * @return true if a table for the given piece type is loaded
+     */
+    public boolean covers(ChessPiece.PieceType type) {
+        return tables.containsKey(type);
+    }
+
+    // Square number 0-63, mirrored top to bottom when black is the strong side
+    private static int square(ChessPosition pos, boolean whiteStrong) {
+        int row = whiteStrong ? pos.getRow() : 9 - pos.getRow();
+        return (row - 1) * 8 + pos.getColumn() - 1;
+    }
+}
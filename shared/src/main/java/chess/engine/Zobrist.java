@@ -0,0 +1,71 @@
+package chess.engine;
+
+import chess.*;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of chess positions: a 64-bit key built by XOR-ing one random
+ * number per (piece, square) pair plus one for the side to move
+ * <p>
+ * The random numbers come from a fixed seed, so keys are stable across runs
+ * and processes and may be stored in files such as the opening book.
+ */
+public class Zobrist {
+
+    private static final long[][][] PIECE_KEYS = new long[2][6][64];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (long[][] team : PIECE_KEYS) {
+            for (long[] type : team) {
+                for (int square = 0; square < 64; square++) {
+                    type[square] = random.nextLong();
+                }
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    /**
+     * @return key of the game's current position and team turn
+     */
+    public static long key(ChessGame game) {
+        return key(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * Computes the key of a board with a given team to move
+     *
+     * @param board board to hash
+     * @param teamTurn team whose turn it is
+     * @return 64-bit position key
+     */
+    public static long key(ChessBoard board, ChessGame.TeamColor teamTurn) {
+        long key = teamTurn == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece != null) {
+                    key ^= pieceKey(piece, (row - 1) * 8 + col - 1);
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return random number for a piece standing on a square numbered 0-63 from a1
+     */
+    public static long pieceKey(ChessPiece piece, int square) {
+        return PIECE_KEYS[piece.getTeamColor().ordinal()][piece.getPieceType().ordinal()][square];
+    }
+
+    /**
+     * @return random number toggled whenever the side to move changes
+     */
+    public static long sideKey() {
+        return BLACK_TO_MOVE;
+    }
+}
@@ -0,0 +1,102 @@
+package json;
+
+import chess.ChessMove;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+
+import java.io.IOException;
+
+/**
+ * Reads a command as the subclass its commandType calls for, in one pass over
+ * the JSON, whatever order the fields come in
+ */
+class CommandAdapter extends TypeAdapter<UserGameCommand> {
+
+    private final MoveAdapter moves = new MoveAdapter();
+
+    @Override
+    public void write(JsonWriter out, UserGameCommand command) throws IOException {
+        if (command == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("commandType").value(command.getCommandType() == null ? null : command.getCommandType().name());
+        out.name("authToken").value(command.getAuthToken());
+        out.name("gameID").value(command.getGameID());
+        if (command.getIdempotencyKey() != null) {
+            out.name("idempotencyKey").value(command.getIdempotencyKey());
+        }
+        if (command instanceof MakeMoveCommand makeMove) {
+            out.name("move");
+            moves.write(out, makeMove.getMove());
+        }
+        if (command instanceof ConnectCommand connect && connect.wantsMoveDeltas()) {
+            out.name("moveDeltas").value(true);
+        }
+        out.endObject();
+    }
+
+    @Override
+    public UserGameCommand read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        UserGameCommand.CommandType type = null;
+        String authToken = null;
+        Integer gameID = null;
+        ChessMove move = null;
+        String idempotencyKey = null;
+        boolean moveDeltas = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "commandType" -> type = commandType(in.nextString());
+                case "authToken" -> authToken = in.nextString();
+                case "gameID" -> gameID = gameID(in);
+                case "move" -> move = moves.read(in);
+                case "idempotencyKey" -> idempotencyKey = in.nextString();
+                case "moveDeltas" -> moveDeltas = in.nextBoolean();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (type == UserGameCommand.CommandType.MAKE_MOVE) {
+            return new MakeMoveCommand(authToken, gameID, move, idempotencyKey);
+        }
+        if (type == UserGameCommand.CommandType.CONNECT) {
+            return new ConnectCommand(authToken, gameID, moveDeltas, idempotencyKey);
+        }
+        return new UserGameCommand(type, authToken, gameID, idempotencyKey);
+    }
+
+    private static int gameID(JsonReader in) throws IOException {
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException ex) {
+            throw new JsonParseException("gameID is not a whole number", ex);
+        }
+    }
+
+    private static UserGameCommand.CommandType commandType(String name) {
+        try {
+            return UserGameCommand.CommandType.valueOf(name);
+        } catch (IllegalArgumentException ex) {
+            throw new JsonParseException("unknown command type " + name, ex);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package json;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.LegalMoves;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import websocket.commands.UserGameCommand;
+
+/**
+ * Gson set up with compact, hand-written adapters for the chess types and
+ * websocket commands
+ * <p>
+ * Without them Gson writes a board as an 8x8 array of piece objects that
+ * repeat every field name. With them:
+ * <ul>
+ * <li>a game is a FEN string, and a board is FEN's piece placement field</li>
+ * <li>a piece is its FEN letter</li>
+ * <li>a position is its square name, such as {@code "e4"}</li>
+ * <li>a move is one token, such as {@code "e7e8q"}</li>
+ * <li>legal moves are a hex destination mask per origin square</li>
+ * </ul>
+ * A {@link UserGameCommand} is read straight into the subclass its
+ * commandType calls for, a MakeMoveCommand or ConnectCommand. Positions and moves are also read in Gson's usual
+ * object form, so clients that do not use these adapters can still send
+ * commands.
+ */
+public final class GsonFactory {
+
+    private static final Gson GSON = builder().create();
+
+    private GsonFactory() {
+    }
+
+    /**
+     * @return a builder with the adapters registered, for callers that need more settings
+     */
+    public static GsonBuilder builder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(ChessPosition.class, new PositionAdapter())
+                .registerTypeAdapter(ChessMove.class, new MoveAdapter())
+                .registerTypeAdapter(ChessPiece.class, new PieceAdapter())
+                .registerTypeAdapter(ChessBoard.class, new BoardAdapter())
+                .registerTypeAdapter(ChessGame.class, new GameAdapter())
+                .registerTypeAdapter(LegalMoves.class, new LegalMovesAdapter())
+                .registerTypeHierarchyAdapter(UserGameCommand.class, new CommandAdapter());
+    }
+
+    /**
+     * @return a shared Gson with the adapters registered; Gson is thread-safe
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+}
@@ -0,0 +1,85 @@
+package json;
+
+import chess.LegalMoves;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes legal moves as an object from each origin square that has a move to
+ * its destination mask in hex, such as {@code {"e2":"18100000","g1":"a00000"}}.
+ * Masks are strings because JSON numbers cannot hold 64 bits exactly. The
+ * origins whose moves must promote, if any, are a mask under "promoting".
+ */
+class LegalMovesAdapter extends TypeAdapter<LegalMoves> {
+
+    private static final String PROMOTING = "promoting";
+
+    @Override
+    public void write(JsonWriter out, LegalMoves moves) throws IOException {
+        if (moves == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (int square = 0; square < 64; square++) {
+            long mask = moves.destinations(square);
+            if (mask != 0) {
+                out.name(square(square)).value(Long.toHexString(mask));
+            }
+        }
+        if (moves.promoting() != 0) {
+            out.name(PROMOTING).value(Long.toHexString(moves.promoting()));
+        }
+        out.endObject();
+    }
+
+    @Override
+    public LegalMoves read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        long[] destinations = new long[64];
+        long promoting = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            long mask = mask(in.nextString());
+            if (name.equals(PROMOTING)) {
+                promoting = mask;
+            } else if (name.length() == 2) {
+                destinations[index(name)] = mask;
+            } else {
+                throw new JsonParseException("not a square: " + name);
+            }
+        }
+        in.endObject();
+        return new LegalMoves(destinations, promoting);
+    }
+
+    private static String square(int square) {
+        return new String(new char[]{(char) ('a' + square % 8), (char) ('1' + square / 8)});
+    }
+
+    private static int index(String square) {
+        int col = square.charAt(0) - 'a';
+        int row = square.charAt(1) - '1';
+        if (col < 0 || col > 7 || row < 0 || row > 7) {
+            throw new JsonParseException("not a square: " + square);
+        }
+        return row * 8 + col;
+    }
+
+    private static long mask(String hex) {
+        try {
+            return Long.parseUnsignedLong(hex, 16);
+        } catch (NumberFormatException ex) {
+            throw new JsonParseException("not a move mask: " + hex, ex);
+        }
+    }
+}
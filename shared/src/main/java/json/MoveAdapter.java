@@ -0,0 +1,97 @@
+package json;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a move as one token: the start and end squares followed by the
+ * promotion piece's letter if there is one, such as {@code "e2e4"} or
+ * {@code "b7b8q"}. Also reads the object form Gson would otherwise use.
+ */
+class MoveAdapter extends TypeAdapter<ChessMove> {
+
+    private final PositionAdapter positions = new PositionAdapter();
+
+    @Override
+    public void write(JsonWriter out, ChessMove move) throws IOException {
+        if (move == null) {
+            out.nullValue();
+            return;
+        }
+        String text = PositionAdapter.format(move.getStartPosition()) + PositionAdapter.format(move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            // Black pieces are lower case
+            text += Fen.symbol(new ChessPiece(ChessGame.TeamColor.BLACK, move.getPromotionPiece()));
+        }
+        out.value(text);
+    }
+
+    @Override
+    public ChessMove read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            return parse(in.nextString());
+        }
+
+        ChessPosition start = null;
+        ChessPosition end = null;
+        ChessPiece.PieceType promotion = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "startPosition" -> start = positions.read(in);
+                case "endPosition" -> end = positions.read(in);
+                case "promotionPiece" -> {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else {
+                        promotion = pieceType(in.nextString());
+                    }
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (start == null || end == null) {
+            throw new JsonParseException("move needs a start and an end position");
+        }
+        return new ChessMove(start, end, promotion);
+    }
+
+    private static ChessPiece.PieceType pieceType(String name) {
+        try {
+            return ChessPiece.PieceType.valueOf(name);
+        } catch (IllegalArgumentException ex) {
+            throw new JsonParseException("no such piece type " + name, ex);
+        }
+    }
+
+    private static ChessMove parse(String text) {
+        if (text.length() != 4 && text.length() != 5) {
+            throw new JsonParseException("not a move: " + text);
+        }
+        ChessPiece.PieceType promotion = null;
+        if (text.length() == 5) {
+            try {
+                promotion = Fen.piece(text.charAt(4)).getPieceType();
+            } catch (IllegalArgumentException ex) {
+                throw new JsonParseException("not a move: " + text, ex);
+            }
+        }
+        return new ChessMove(PositionAdapter.parse(text, 0), PositionAdapter.parse(text, 2), promotion);
+    }
+}
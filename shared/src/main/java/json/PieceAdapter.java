@@ -0,0 +1,43 @@
+package json;
+
+import chess.ChessPiece;
+import chess.Fen;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a piece as its FEN letter: upper case for white, lower case for black
+ */
+class PieceAdapter extends TypeAdapter<ChessPiece> {
+
+    @Override
+    public void write(JsonWriter out, ChessPiece piece) throws IOException {
+        if (piece == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(String.valueOf(Fen.symbol(piece)));
+    }
+
+    @Override
+    public ChessPiece read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String symbol = in.nextString();
+        try {
+            if (symbol.length() != 1) {
+                throw new IllegalArgumentException("Not a FEN piece: " + symbol);
+            }
+            return Fen.piece(symbol.charAt(0));
+        } catch (IllegalArgumentException ex) {
+            throw new JsonParseException(ex.getMessage(), ex);
+        }
+    }
+}
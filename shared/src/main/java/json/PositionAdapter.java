@@ -0,0 +1,82 @@
+package json;
+
+import chess.ChessPosition;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a position as its square name, such as {@code "e4"}. Also reads the
+ * {@code {"row":4,"col":5}} form Gson would otherwise use.
+ */
+class PositionAdapter extends TypeAdapter<ChessPosition> {
+
+    @Override
+    public void write(JsonWriter out, ChessPosition position) throws IOException {
+        if (position == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(format(position));
+    }
+
+    @Override
+    public ChessPosition read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            String square = in.nextString();
+            if (square.length() != 2) {
+                throw new JsonParseException("not a square: " + square);
+            }
+            return parse(square, 0);
+        }
+
+        int row = 0;
+        int col = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "row" -> row = coordinate(in);
+                case "col" -> col = coordinate(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return checked(row, col);
+    }
+
+    static String format(ChessPosition position) {
+        return new String(new char[]{(char) ('a' + position.getColumn() - 1), (char) ('0' + position.getRow())});
+    }
+
+    /**
+     * @param text text holding a square name
+     * @param start index of the square name's file letter
+     */
+    static ChessPosition parse(String text, int start) {
+        return checked(text.charAt(start + 1) - '0', text.charAt(start) - 'a' + 1);
+    }
+
+    private static int coordinate(JsonReader in) throws IOException {
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException ex) {
+            throw new JsonParseException("row and col must be whole numbers", ex);
+        }
+    }
+
+    private static ChessPosition checked(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            throw new JsonParseException("no such square: row " + row + ", column " + col);
+        }
+        return new ChessPosition(row, col);
+    }
+}
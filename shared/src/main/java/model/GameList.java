@@ -0,0 +1,12 @@
+package model;
+
+import java.util.List;
+
+/**
+ * One page of the game list
+ *
+ * @param games games on this page, in gameID order
+ * @param nextCursor cursor to pass to get the next page, or null if this is the last page
+ */
+public record GameList(List<GameSummary> games, Integer nextCursor) {
+}
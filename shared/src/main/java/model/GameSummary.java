@@ -0,0 +1,12 @@
+package model;
+
+/**
+ * What the lobby shows about a game: everything but the board
+ *
+ * @param gameID game's ID
+ * @param whiteUsername player with the white pieces, or null if the seat is open
+ * @param blackUsername player with the black pieces, or null if the seat is open
+ * @param gameName name given when the game was created
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName) {
+}
@@ -0,0 +1,271 @@
+package websocket;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.LegalMoves;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes websocket commands and messages as fixed-layout binary frames, an
+ * alternative to JSON text frames
+ * <p>
+ * A client chooses it by sending its CONNECT as a binary frame; the server
+ * then answers that session in binary. Every frame starts with a version byte
+ * and the ordinal of its command or message type. Numbers are big-endian,
+ * moves are {@link ChessMove#pack() packed} into two bytes and strings are a
+ * two-byte length followed by UTF-8. A frame with bytes left over once its
+ * layout is read is malformed.
+ * <pre>
+ * command:      version, type, int gameID, string authToken[, short move if MAKE_MOVE][, string idempotencyKey]
+ * LOAD_GAME:    version, type, int sequence (-1 if none), byte turn, 32 bytes board[, legal moves]
+ * MOVE:         version, type, int sequence, short move
+ * NOTIFICATION: version, type, string message
+ * ERROR:        version, type, string errorMessage
+ * </pre>
+ * The board is one nibble per square from a1 to h8: 0 for empty, otherwise
+ * the piece type's ordinal plus one, plus 8 for black. Legal moves, when
+ * sent, are a byte count of origin squares with moves, then for each a byte
+ * square number and a long destination mask, then a long mask of the origins
+ * whose moves must promote.
+ */
+public final class BinaryProtocol {
+
+    public static final byte VERSION = 1;
+
+    private static final int BOARD_BYTES = 32;
+    private static final int BLACK = 8;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * @param command command to encode
+     * @return the frame, ready to read
+     */
+    public static ByteBuffer encode(UserGameCommand command) {
+        byte[] token = bytes(command.getAuthToken());
+        byte[] key = command.getIdempotencyKey() == null ? null : bytes(command.getIdempotencyKey());
+        ByteBuffer frame = ByteBuffer.allocate(2 + 4 + 2 + token.length + 2 + (key == null ? 0 : 2 + key.length));
+        frame.put(VERSION).put((byte) command.getCommandType().ordinal());
+        frame.putInt(command.getGameID());
+        putString(frame, token);
+        if (command instanceof MakeMoveCommand move) {
+            frame.putShort(move.getMove().pack());
+        }
+        if (key != null) {
+            putString(frame, key);
+        }
+        return frame.flip();
+    }
+
+    /**
+     * @param frame frame to decode; read from its position to its limit
+     * @return the command, a {@link MakeMoveCommand} for MAKE_MOVE
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static UserGameCommand decodeCommand(ByteBuffer frame) {
+        try {
+            UserGameCommand.CommandType type = header(frame, UserGameCommand.CommandType.values());
+            int gameID = frame.getInt();
+            String token = getString(frame);
+            if (type == UserGameCommand.CommandType.MAKE_MOVE) {
+                ChessMove move = ChessMove.unpack(frame.getShort());
+                String key = frame.hasRemaining() ? getString(frame) : null;
+                return end(frame, new MakeMoveCommand(token, gameID, move, key));
+            }
+            String key = frame.hasRemaining() ? getString(frame) : null;
+            return end(frame, new UserGameCommand(type, token, gameID, key));
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("truncated command frame", ex);
+        }
+    }
+
+    /**
+     * @param message message to encode
+     * @return the frame, ready to read
+     */
+    public static ByteBuffer encode(ServerMessage message) {
+        ByteBuffer frame = switch (message) {
+            case LoadGameMessage load -> {
+                LegalMoves legal = load.getLegalMoves();
+                int origins = legal == null ? 0 : origins(legal);
+                int legalBytes = legal == null ? 0 : 1 + origins * 9 + 8;
+                ByteBuffer buffer = header(2 + 4 + 1 + BOARD_BYTES + legalBytes, message);
+                buffer.putInt(load.getSequence() == null ? -1 : load.getSequence());
+                buffer.put((byte) load.getGame().getTeamTurn().ordinal());
+                putBoard(buffer, load.getGame().getBoard());
+                if (legal != null) {
+                    putLegalMoves(buffer, legal, origins);
+                }
+                yield buffer;
+            }
+            case MoveMessage move -> header(2 + 4 + 2, message).putInt(move.getSequence())
+                    .putShort(move.getMove().pack());
+            case NotificationMessage notification -> text(message, notification.getMessage());
+            case ErrorMessage error -> text(message, error.getErrorMessage());
+            default -> throw new IllegalArgumentException("no binary form for " + message.getServerMessageType());
+        };
+        return frame.flip();
+    }
+
+    /**
+     * @param frame frame to decode; read from its position to its limit
+     * @return the message, as the subclass for its type
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static ServerMessage decodeMessage(ByteBuffer frame) {
+        try {
+            return end(frame, switch (header(frame, ServerMessage.ServerMessageType.values())) {
+                case LOAD_GAME -> {
+                    int sequence = frame.getInt();
+                    ChessGame.TeamColor turn = ChessGame.TeamColor.values()[frame.get()];
+                    ChessGame game = new ChessGame();
+                    game.setBoard(getBoard(frame));
+                    game.setTeamTurn(turn);
+                    LegalMoves legal = frame.hasRemaining() ? getLegalMoves(frame) : null;
+                    yield new LoadGameMessage(game, sequence < 0 ? null : sequence, legal);
+                }
+                case MOVE -> new MoveMessage(frame.getInt(), ChessMove.unpack(frame.getShort()));
+                case NOTIFICATION -> new NotificationMessage(getString(frame));
+                case ERROR -> new ErrorMessage(getString(frame));
+            });
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("malformed message frame", ex);
+        }
+    }
+
+    private static <T extends Enum<T>> T header(ByteBuffer frame, T[] types) {
+        byte version = frame.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported frame version " + version);
+        }
+        int type = frame.get();
+        if (type < 0 || type >= types.length) {
+            throw new IllegalArgumentException("unknown frame type " + type);
+        }
+        return types[type];
+    }
+
+    /**
+     * @return what was decoded, once the whole frame has been used
+     */
+    private static <T> T end(ByteBuffer frame, T decoded) {
+        if (frame.hasRemaining()) {
+            throw new IllegalArgumentException(frame.remaining() + " byte(s) left over in frame");
+        }
+        return decoded;
+    }
+
+    private static ByteBuffer header(int size, ServerMessage message) {
+        return ByteBuffer.allocate(size).put(VERSION).put((byte) message.getServerMessageType().ordinal());
+    }
+
+    private static ByteBuffer text(ServerMessage message, String text) {
+        byte[] bytes = bytes(text);
+        return putString(header(2 + 2 + bytes.length, message), bytes);
+    }
+
+    private static void putBoard(ByteBuffer frame, ChessBoard board) {
+        for (int square = 0; square < 64; square += 2) {
+            frame.put((byte) (code(board, square) << 4 | code(board, square + 1)));
+        }
+    }
+
+    private static ChessBoard getBoard(ByteBuffer frame) {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square += 2) {
+            int pair = frame.get() & 0xff;
+            addPiece(board, square, pair >> 4);
+            addPiece(board, square + 1, pair & 0xf);
+        }
+        return board;
+    }
+
+    private static int origins(LegalMoves legal) {
+        int origins = 0;
+        for (int square = 0; square < 64; square++) {
+            if (legal.destinations(square) != 0) {
+                origins++;
+            }
+        }
+        return origins;
+    }
+
+    private static void putLegalMoves(ByteBuffer frame, LegalMoves legal, int origins) {
+        frame.put((byte) origins);
+        for (int square = 0; square < 64; square++) {
+            long mask = legal.destinations(square);
+            if (mask != 0) {
+                frame.put((byte) square).putLong(mask);
+            }
+        }
+        frame.putLong(legal.promoting());
+    }
+
+    private static LegalMoves getLegalMoves(ByteBuffer frame) {
+        long[] destinations = new long[64];
+        int origins = frame.get() & 0xff;
+        for (int i = 0; i < origins; i++) {
+            destinations[frame.get()] = frame.getLong();
+        }
+        return new LegalMoves(destinations, frame.getLong());
+    }
+
+    private static int code(ChessBoard board, int square) {
+        ChessPiece piece = board.getPiece(new ChessPosition(square / 8 + 1, square % 8 + 1));
+        if (piece == null) {
+            return 0;
+        }
+        return piece.getPieceType().ordinal() + 1 + (piece.getTeamColor() == ChessGame.TeamColor.BLACK ? BLACK : 0);
+    }
+
+    private static void addPiece(ChessBoard board, int square, int code) {
+        if (code == 0) {
+            return;
+        }
+        ChessGame.TeamColor color = code >= BLACK ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        ChessPiece.PieceType type = ChessPiece.PieceType.values()[(code & (BLACK - 1)) - 1];
+        board.addPiece(new ChessPosition(square / 8 + 1, square % 8 + 1), new ChessPiece(color, type));
+    }
+
+    private static byte[] bytes(String text) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("string too long for a binary frame");
+        }
+        return bytes;
+    }
+
+    private static ByteBuffer putString(ByteBuffer frame, byte[] bytes) {
+        return frame.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer frame) {
+        int length = frame.getShort() & 0xffff;
+        if (length > frame.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (frame.hasArray()) {
+            String text = new String(frame.array(), frame.arrayOffset() + frame.position(), length,
+                    StandardCharsets.UTF_8);
+            frame.position(frame.position() + length);
+            return text;
+        }
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
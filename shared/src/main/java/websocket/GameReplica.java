@@ -0,0 +1,79 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.LegalMoves;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+
+/**
+ * A client's copy of a game, kept up to date from the server's messages
+ */
+public class GameReplica {
+
+    private ChessGame game;
+    private int sequence;
+    private LegalMoves legalMoves;
+
+    /**
+     * Replaces the copy with the whole game
+     *
+     * @param message the server's LOAD_GAME message
+     */
+    public void load(LoadGameMessage message) {
+        game = message.getGame();
+        sequence = message.getSequence() == null ? 0 : message.getSequence();
+        legalMoves = message.getLegalMoves();
+    }
+
+    /**
+     * Applies a move to the copy
+     *
+     * @param message the server's MOVE message
+     * @return whether the copy is up to date with the move; false means a
+     *         move was missed or the copy disagrees with the server, and the
+     *         client should resync
+     */
+    public boolean apply(MoveMessage message) {
+        if (game != null && message.getSequence() <= sequence) {
+            // Already applied, such as the server acknowledging a retried move again
+            return true;
+        }
+        if (game == null || message.getSequence() != sequence + 1) {
+            return false;
+        }
+        try {
+            game.makeMove(message.getMove());
+        } catch (InvalidMoveException ex) {
+            return false;
+        }
+        sequence = message.getSequence();
+        legalMoves = null;
+        return true;
+    }
+
+    /**
+     * @return the copy of the game, or null before the first LOAD_GAME
+     */
+    public ChessGame getGame() {
+        return game;
+    }
+
+    /**
+     * @return the moves the side to move can make: the server's if it sent
+     *         them with the current position, otherwise worked out here
+     */
+    public LegalMoves getLegalMoves() {
+        if (legalMoves == null && game != null) {
+            legalMoves = LegalMoves.of(game);
+        }
+        return legalMoves;
+    }
+
+    /**
+     * @return the sequence number of the last move applied
+     */
+    public int getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,31 @@
+package websocket.commands;
+
+/**
+ * Asks the server to add the client to a game
+ * <p>
+ * After each move a JSON client is sent the whole game again as a LOAD_GAME
+ * message, unless it asks for move deltas here. Then it gets just the move,
+ * as a MOVE message to apply to its own copy. Clients using the binary
+ * protocol always get moves.
+ */
+public class ConnectCommand extends UserGameCommand {
+
+    private final boolean moveDeltas;
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas) {
+        this(authToken, gameID, moveDeltas, null);
+    }
+
+    /**
+     * @param moveDeltas whether to be sent each move rather than the whole game after it
+     * @param idempotencyKey key to send again unchanged if the command is retried; may be null
+     */
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas, String idempotencyKey) {
+        super(CommandType.CONNECT, authToken, gameID, idempotencyKey);
+        this.moveDeltas = moveDeltas;
+    }
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
+}
@@ -0,0 +1,28 @@
+package websocket.commands;
+
+import chess.ChessMove;
+
+/**
+ * Asks the server to make a move in a game
+ */
+public class MakeMoveCommand extends UserGameCommand {
+
+    private final ChessMove move;
+
+    public MakeMoveCommand(String authToken, Integer gameID, ChessMove move) {
+        this(authToken, gameID, move, null);
+    }
+
+    /**
+     * @param idempotencyKey key to send again unchanged if the command is
+     *                       retried, so the move is only made once; may be null
+     */
+    public MakeMoveCommand(String authToken, Integer gameID, ChessMove move, String idempotencyKey) {
+        super(CommandType.MAKE_MOVE, authToken, gameID, idempotencyKey);
+        this.move = move;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+}
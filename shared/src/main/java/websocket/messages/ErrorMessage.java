@@ -0,0 +1,18 @@
+package websocket.messages;
+
+/**
+ * Tells a client its command could not be carried out
+ */
+public class ErrorMessage extends ServerMessage {
+
+    private final String errorMessage;
+
+    public ErrorMessage(String errorMessage) {
+        super(ServerMessageType.ERROR);
+        this.errorMessage = errorMessage;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
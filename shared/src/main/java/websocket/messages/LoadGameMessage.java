@@ -0,0 +1,45 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.LegalMoves;
+
+/**
+ * Sends a client the whole current state of its game
+ * <p>
+ * Sent when a client connects or asks to resync; after that the client is
+ * kept up to date with {@link MoveMessage}s.
+ */
+public class LoadGameMessage extends ServerMessage {
+
+    private final ChessGame game;
+    private final Integer sequence;
+    private final LegalMoves legalMoves;
+
+    public LoadGameMessage(ChessGame game) {
+        this(game, null, null);
+    }
+
+    /**
+     * @param game the game's current position
+     * @param sequence moves made so far; the next {@link MoveMessage} will carry one more
+     * @param legalMoves the moves the side to move can make, or null if not sent
+     */
+    public LoadGameMessage(ChessGame game, Integer sequence, LegalMoves legalMoves) {
+        super(ServerMessageType.LOAD_GAME);
+        this.game = game;
+        this.sequence = sequence;
+        this.legalMoves = legalMoves;
+    }
+
+    public ChessGame getGame() {
+        return game;
+    }
+
+    public Integer getSequence() {
+        return sequence;
+    }
+
+    public LegalMoves getLegalMoves() {
+        return legalMoves;
+    }
+}
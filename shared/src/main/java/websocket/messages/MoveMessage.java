@@ -0,0 +1,31 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+/**
+ * Tells a client one move was made in its game, for it to apply to its own
+ * copy of the board
+ * <p>
+ * Moves are numbered from 1 within each game. A client that gets a number
+ * other than one more than the last it saw has missed a move and should send
+ * a RESYNC command to get the whole game again.
+ */
+public class MoveMessage extends ServerMessage {
+
+    private final int sequence;
+    private final ChessMove move;
+
+    public MoveMessage(int sequence, ChessMove move) {
+        super(ServerMessageType.MOVE);
+        this.sequence = sequence;
+        this.move = move;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+}
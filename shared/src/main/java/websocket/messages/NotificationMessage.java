@@ -0,0 +1,18 @@
+package websocket.messages;
+
+/**
+ * Tells a client something happened in its game, for the user to read
+ */
+public class NotificationMessage extends ServerMessage {
+
+    private final String message;
+
+    public NotificationMessage(String message) {
+        super(ServerMessageType.NOTIFICATION);
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,90 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class LegalMovesTest {
+
+    private static final String[] POSITIONS = {
+            Fen.STARTING_POSITION,
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 0 1",
+            // Promotions by push and by capture, for both sides
+            "r3k3/1P4P1/8/8/8/8/1p4p1/R3K2R w - - 0 1",
+            "r3k3/1P4P1/8/8/8/8/1p4p1/R3K2R b - - 0 1",
+            // White in check, with only some moves getting out of it
+            "4k3/8/8/8/1b6/8/3P4/4K3 w - - 0 1",
+    };
+
+    @Test
+    @DisplayName("Contains Exactly the Valid Moves")
+    public void matchesValidMoves() {
+        for (String fen : POSITIONS) {
+            ChessGame game = Fen.parse(fen);
+            Set<ChessMove> valid = new HashSet<>(game.allValidMoves(game.getTeamTurn()));
+            LegalMoves legal = LegalMoves.of(game);
+            for (int from = 0; from < 64; from++) {
+                for (int to = 0; to < 64; to++) {
+                    for (ChessPiece.PieceType promotion : promotions()) {
+                        ChessMove move = new ChessMove(square(from), square(to), promotion);
+                        Assertions.assertEquals(valid.contains(move), legal.contains(move), fen + ": " + move);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Promotions Need a Promotion Piece")
+    public void promotion() {
+        LegalMoves legal = LegalMoves.of(Fen.parse("r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1"));
+        ChessPosition b7 = new ChessPosition(7, 2);
+        ChessPosition b8 = new ChessPosition(8, 2);
+        ChessPosition a8 = new ChessPosition(8, 1);
+        Assertions.assertFalse(legal.contains(new ChessMove(b7, b8, null)), "a pawn reaching the end must promote");
+        Assertions.assertTrue(legal.contains(new ChessMove(b7, b8, ChessPiece.PieceType.KNIGHT)));
+        Assertions.assertTrue(legal.contains(new ChessMove(b7, a8, ChessPiece.PieceType.QUEEN)));
+        Assertions.assertFalse(legal.contains(new ChessMove(b7, b8, ChessPiece.PieceType.KING)));
+        Assertions.assertFalse(legal.contains(new ChessMove(b7, b8, ChessPiece.PieceType.PAWN)));
+        Assertions.assertFalse(legal.contains(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5),
+                ChessPiece.PieceType.QUEEN)), "only pawns promote");
+    }
+
+    @Test
+    @DisplayName("Empty When Mated or Stalemated")
+    public void empty() {
+        Assertions.assertTrue(LegalMoves.of(Fen.parse("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w")).isEmpty(),
+                "checkmate");
+        Assertions.assertTrue(LegalMoves.of(Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b")).isEmpty(), "stalemate");
+        Assertions.assertFalse(LegalMoves.of(new ChessGame()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Making a Legal Move Matches Make Move")
+    public void makeLegalMove() throws InvalidMoveException {
+        for (String fen : POSITIONS) {
+            ChessGame game = Fen.parse(fen);
+            for (ChessMove move : game.allValidMoves(game.getTeamTurn())) {
+                ChessGame checked = new ChessGame(game);
+                checked.makeMove(move);
+                ChessGame trusted = new ChessGame(game);
+                trusted.makeLegalMove(move);
+                Assertions.assertEquals(checked, trusted, fen + ": " + move);
+            }
+        }
+    }
+
+    private static ChessPiece.PieceType[] promotions() {
+        ChessPiece.PieceType[] types = ChessPiece.PieceType.values();
+        ChessPiece.PieceType[] promotions = new ChessPiece.PieceType[types.length + 1];
+        System.arraycopy(types, 0, promotions, 1, types.length);
+        return promotions;
+    }
+
+    private static ChessPosition square(int index) {
+        return new ChessPosition(index / 8 + 1, index % 8 + 1);
+    }
+}
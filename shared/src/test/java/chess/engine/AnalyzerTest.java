@@ -0,0 +1,100 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AnalyzerTest {
+
+    private static final String MATE_IN_ONE = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+
+    @Test
+    @DisplayName("Budget Must Allow Some Work")
+    public void emptyBudget() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Analyzer.Budget(0, 1000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Analyzer.Budget(2, 0));
+    }
+
+    @Test
+    @DisplayName("Analyzes Every Position")
+    public void analyzeAll() {
+        List<String> fens = Collections.nCopies(20, MATE_IN_ONE);
+        Set<Integer> indexes = Collections.synchronizedSet(new HashSet<>());
+        try (Analyzer analyzer = new Analyzer()) {
+            Analyzer.Report report = analyzer.analyzeAllFen(fens, new Analyzer.Budget(2, Long.MAX_VALUE), analysis -> {
+                Assertions.assertEquals(Search.MATE_SCORE - 1, analysis.result().score());
+                indexes.add(analysis.index());
+            });
+            Assertions.assertEquals(20, report.positions());
+        }
+        Assertions.assertEquals(20, indexes.size());
+    }
+
+    @Test
+    @DisplayName("Slow Subscriber Gets Every Result")
+    public void slowSubscriber() throws InterruptedException {
+        List<ChessGame> games = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            games.add(Fen.parse(MATE_IN_ONE));
+        }
+        Set<Integer> received = new HashSet<>();
+        CountDownLatch complete = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // One worker and a subscriber slower than it, so the publisher's buffer fills up
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try (Analyzer analyzer = new Analyzer(pool)) {
+            analyzer.publishAll(games, new Analyzer.Budget(1, Long.MAX_VALUE)).subscribe(new Flow.Subscriber<>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Analyzer.Analysis item) {
+                    received.add(item.index());
+                    if (item.index() % 100 == 0) {
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    failure.set(throwable);
+                    complete.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    complete.countDown();
+                }
+            });
+            Assertions.assertTrue(complete.await(30, TimeUnit.SECONDS), "publisher never completed");
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertNull(failure.get());
+        Assertions.assertEquals(600, received.size());
+    }
+}
@@ -0,0 +1,82 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class MateSolverTest {
+
+    private static final long BUDGET = 1_000_000;
+
+    @Test
+    @DisplayName("Proves Mate in One")
+    public void mateInOne() throws InvalidMoveException {
+        MateSolver.Result back = new MateSolver().solve(Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), 1, BUDGET);
+        Assertions.assertEquals(MateSolver.Status.MATE, back.status());
+        Assertions.assertEquals(List.of(move("a1", "a8")), back.principalVariation());
+
+        String scholars = "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w - - 0 1";
+        MateSolver.Result result = new MateSolver().solve(Fen.parse(scholars), 1, BUDGET);
+        Assertions.assertEquals(List.of(move("h5", "f7")), result.principalVariation());
+    }
+
+    @Test
+    @DisplayName("Proves Longer Mates With a Line That Mates")
+    public void longerMates() throws InvalidMoveException {
+        assertMates("k7/8/2K5/8/8/8/8/7R w - - 0 1", 2, 2);
+        // Also mates in two, which a three-move search is free to find
+        assertMates("2k5/8/3K4/8/8/8/8/7R w - - 0 1", 3, 2);
+        assertMates("2k5/8/3K4/8/8/8/8/7R w - - 0 1", 2, 2);
+    }
+
+    @Test
+    @DisplayName("Disproves Mates That Are Not There")
+    public void noMate() {
+        MateSolver solver = new MateSolver();
+        Assertions.assertEquals(MateSolver.Status.NO_MATE,
+                solver.solve(Fen.parse("k7/8/2K5/8/8/8/8/7R w - - 0 1"), 1, BUDGET).status(),
+                "the rook needs two moves here");
+        Assertions.assertEquals(MateSolver.Status.NO_MATE,
+                solver.solve(new ChessGame(), 2, BUDGET).status(), "no mate in two from the start");
+        MateSolver.Result bare = solver.solve(Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1"), 3, BUDGET);
+        Assertions.assertEquals(MateSolver.Status.NO_MATE, bare.status(), "two kings cannot mate");
+        Assertions.assertEquals(List.of(), bare.principalVariation());
+    }
+
+    @Test
+    @DisplayName("Gives Up at the Node Limit")
+    public void nodeLimit() {
+        MateSolver.Result result = new MateSolver().solve(Fen.parse("2k5/8/3K4/8/8/8/8/7R w - - 0 1"), 3, 20);
+        Assertions.assertEquals(MateSolver.Status.UNKNOWN, result.status());
+        Assertions.assertEquals(20, result.nodes());
+        Assertions.assertEquals(List.of(), result.principalVariation());
+    }
+
+    private static void assertMates(String fen, int moves, int mateIn) throws InvalidMoveException {
+        MateSolver.Result result = new MateSolver().solve(Fen.parse(fen), moves, BUDGET);
+        Assertions.assertEquals(MateSolver.Status.MATE, result.status(), fen);
+        List<ChessMove> line = result.principalVariation();
+        Assertions.assertEquals(2 * mateIn - 1, line.size(), "a mate in " + mateIn + ": " + line);
+
+        ChessGame game = Fen.parse(fen);
+        for (ChessMove move : line) {
+            game.makeMove(move);
+        }
+        Assertions.assertTrue(game.isInCheckmate(game.getTeamTurn()), "the line should end in mate: " + line);
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(square(from), square(to), null);
+    }
+
+    private static ChessPosition square(String name) {
+        return new ChessPosition(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+}
@@ -0,0 +1,80 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+public class OpeningBookTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Written Book Is Mapped and Looked Up by Key")
+    public void writeAndLookUp() throws IOException, InvalidMoveException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(2);
+        builder.addGame(List.of(move("e2", "e4"), move("e7", "e5"), move("g1", "f3")));
+        builder.addGame(List.of(move("e2", "e4"), move("c7", "c5")));
+        builder.addGame(List.of(move("d2", "d4"), move("d7", "d5")));
+        Path path = directory.resolve("book.bin");
+        builder.write(path);
+
+        OpeningBook book = OpeningBook.open(path);
+        Assertions.assertEquals(5, book.size(), "e4 and d4, then e5, c5 and d5; g1f3 is past maxPly");
+        Assertions.assertEquals(OpeningBook.HEADER_SIZE + 5 * OpeningBook.RECORD_SIZE, Files.size(path));
+
+        ChessGame start = new ChessGame();
+        Assertions.assertEquals(List.of(new OpeningBook.BookEntry(move("d2", "d4"), 1),
+                new OpeningBook.BookEntry(move("e2", "e4"), 2)), sorted(book.lookup(Zobrist.key(start))));
+
+        ChessGame afterE4 = new ChessGame();
+        afterE4.makeMove(move("e2", "e4"));
+        Assertions.assertEquals(List.of(new OpeningBook.BookEntry(move("c7", "c5"), 1),
+                new OpeningBook.BookEntry(move("e7", "e5"), 1)), sorted(book.lookup(Zobrist.key(afterE4))));
+
+        afterE4.makeMove(move("e7", "e5"));
+        Assertions.assertEquals(List.of(), book.lookup(Zobrist.key(afterE4)));
+        Assertions.assertNull(book.pickMove(afterE4, new Random(1)));
+
+        ChessMove picked = book.pickMove(start, new Random(27));
+        Assertions.assertTrue(picked.equals(move("e2", "e4")) || picked.equals(move("d2", "d4")));
+    }
+
+    @Test
+    @DisplayName("Other Files Are Refused")
+    public void notABook() throws IOException {
+        Path garbage = directory.resolve("garbage.bin");
+        Files.write(garbage, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(garbage));
+
+        Path truncated = directory.resolve("truncated.bin");
+        new OpeningBookBuilder(1).write(truncated);
+        byte[] header = Files.readAllBytes(truncated);
+        header[7] = 3;
+        Files.write(truncated, header);
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(truncated), "claims 3 records, has none");
+    }
+
+    private static List<OpeningBook.BookEntry> sorted(List<OpeningBook.BookEntry> entries) {
+        return entries.stream().sorted((a, b) -> a.move().toString().compareTo(b.move().toString())).toList();
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(square(from), square(to), null);
+    }
+
+    private static ChessPosition square(String name) {
+        return new ChessPosition(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+}
@@ -0,0 +1,98 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SearchTest {
+
+    @Test
+    @DisplayName("Finds Mate in One")
+    public void mateInOne() {
+        // Back-rank mate: Ra8#
+        ChessGame game = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = new Search().search(game, 2);
+        Assertions.assertEquals(move("a1", "a8"), result.bestMove());
+        Assertions.assertEquals(Search.MATE_SCORE - 1, result.score(),
+                "mate one ply away should score just under mate");
+    }
+
+    @Test
+    @DisplayName("Mated Side Has No Move")
+    public void alreadyMated() {
+        ChessGame game = Fen.parse("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        SearchResult result = new Search().search(game, 2);
+        Assertions.assertNull(result.bestMove());
+        Assertions.assertEquals(-Search.MATE_SCORE, result.score());
+    }
+
+    @Test
+    @DisplayName("Captures Hanging Piece")
+    public void capturesHangingPiece() {
+        ChessGame game = Fen.parse("4k3/8/8/3r4/8/8/8/3QK3 w - - 0 1");
+        SearchResult result = new Search().search(game, 2);
+        Assertions.assertEquals(move("d1", "d5"), result.bestMove());
+        Assertions.assertTrue(result.score() >= Evaluation.ROOK_VALUE - Evaluation.PAWN_VALUE,
+                "winning a rook should score about a rook, got " + result.score());
+    }
+
+    @Test
+    @DisplayName("Does Not Take Defended Pawn With Rook")
+    public void avoidsLosingCapture() {
+        // Rxd5 cxd5 loses the exchange, so quiescence should stand pat instead
+        ChessGame game = Fen.parse("4k3/8/2p5/3p4/8/8/8/3RK3 w - - 0 1");
+        Search search = new Search();
+        int standPat = Evaluation.evaluate(game.getBoard(), ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals(standPat, search.quiescence(game, -Search.MATE_SCORE, Search.MATE_SCORE));
+        Assertions.assertNotEquals(move("d1", "d5"), search.search(game, 1).bestMove());
+    }
+
+    @Test
+    @DisplayName("SEE on Undefended Square")
+    public void seeUndefended() {
+        ChessGame game = Fen.parse("4k3/8/8/3r4/8/8/8/3QK3 w - - 0 1");
+        Assertions.assertEquals(Evaluation.ROOK_VALUE, StaticExchange.evaluate(game.getBoard(), move("d1", "d5")));
+    }
+
+    @Test
+    @DisplayName("SEE on Defended Square")
+    public void seeDefended() {
+        ChessGame game = Fen.parse("4k3/8/2p5/3p4/8/8/8/3RK3 w - - 0 1");
+        Assertions.assertEquals(Evaluation.PAWN_VALUE - Evaluation.ROOK_VALUE,
+                StaticExchange.evaluate(game.getBoard(), move("d1", "d5")), "RxP, PxR");
+
+        // A pawn taking a defended knight still comes out ahead
+        game = Fen.parse("4k3/8/2p5/3n4/4P3/8/8/4K3 w - - 0 1");
+        Assertions.assertEquals(Evaluation.KNIGHT_VALUE - Evaluation.PAWN_VALUE,
+                StaticExchange.evaluate(game.getBoard(), move("e4", "d5")), "PxN, PxP");
+    }
+
+    @Test
+    @DisplayName("SEE Sees X-Ray Attackers")
+    public void seeXRay() {
+        // Doubled rooks against a pawn defended once: RxP, PxR, RxP
+        ChessGame game = Fen.parse("4k3/8/2p5/3p4/8/8/3R4/3RK3 w - - 0 1");
+        Assertions.assertEquals(Evaluation.PAWN_VALUE - Evaluation.ROOK_VALUE + Evaluation.PAWN_VALUE,
+                StaticExchange.evaluate(game.getBoard(), move("d2", "d5")));
+    }
+
+    @Test
+    @DisplayName("Orders Winning Captures First")
+    public void ordersCapturesFirst() {
+        ChessGame game = Fen.parse("4k3/8/8/3r4/8/8/8/3QK3 w - - 0 1");
+        var ordered = Search.orderMoves(game, game.allValidMoves(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(move("d1", "d5"), ordered.get(0));
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(square(from), square(to), null);
+    }
+
+    private static ChessPosition square(String name) {
+        return new ChessPosition(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+}
@@ -0,0 +1,37 @@
+package chess.engine;
+
+import chess.ChessPiece;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class TablebaseTest {
+
+    @Test
+    @DisplayName("Table File Names Are Distinct")
+    public void fileNamesDistinct() {
+        Set<String> names = new HashSet<>();
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            String name = Tablebase.fileName(type);
+            Assertions.assertTrue(names.add(name), "two piece types share " + name);
+        }
+        Assertions.assertEquals("KNK.tb", Tablebase.fileName(ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals("KQK.tb", Tablebase.fileName(ChessPiece.PieceType.QUEEN));
+    }
+
+    @Test
+    @DisplayName("Index Covers Every Position Once")
+    public void indexRange() {
+        Set<Integer> seen = new HashSet<>();
+        for (boolean strongToMove : new boolean[]{true, false}) {
+            for (int square = 0; square < 64; square += 9) {
+                int index = Tablebase.index(square, 63 - square, (square + 7) % 64, strongToMove);
+                Assertions.assertTrue(index >= 0 && index < Tablebase.TABLE_SIZE);
+                Assertions.assertTrue(seen.add(index));
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package json;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.LegalMoves;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+
+public class GsonFactoryTest {
+
+    private static final Gson GSON = GsonFactory.gson();
+
+    @Test
+    @DisplayName("Positions Round Trip as Square Names")
+    public void positions() {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                Assertions.assertEquals(position, GSON.fromJson(GSON.toJson(position), ChessPosition.class));
+            }
+        }
+        Assertions.assertEquals("\"e4\"", GSON.toJson(new ChessPosition(4, 5)));
+        Assertions.assertEquals(new ChessPosition(4, 5), GSON.fromJson("{\"row\":4,\"col\":5}", ChessPosition.class),
+                "Gson's object form should still be read");
+    }
+
+    @Test
+    @DisplayName("Moves Round Trip as One Token")
+    public void moves() {
+        ChessMove push = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2),
+                ChessPiece.PieceType.QUEEN);
+        Assertions.assertEquals("\"e2e4\"", GSON.toJson(push));
+        Assertions.assertEquals("\"b7b8q\"", GSON.toJson(promotion));
+        for (ChessMove move : new ChessMove[]{push, promotion}) {
+            Assertions.assertEquals(move, GSON.fromJson(GSON.toJson(move), ChessMove.class));
+        }
+        Assertions.assertEquals(promotion, GSON.fromJson("{\"startPosition\":{\"row\":7,\"col\":2},"
+                + "\"endPosition\":{\"row\":8,\"col\":2},\"promotionPiece\":\"QUEEN\"}", ChessMove.class));
+    }
+
+    @Test
+    @DisplayName("Pieces, Boards and Games Round Trip as FEN")
+    public void boardsAndGames() {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                ChessPiece piece = new ChessPiece(color, type);
+                Assertions.assertEquals(piece, GSON.fromJson(GSON.toJson(piece), ChessPiece.class));
+            }
+        }
+
+        ChessGame game = Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b - - 0 1");
+        String json = GSON.toJson(game);
+        Assertions.assertEquals("\"r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b - - 0 1\"", json);
+        Assertions.assertEquals(game, GSON.fromJson(json, ChessGame.class));
+        Assertions.assertEquals(new ChessGame(), GSON.fromJson(GSON.toJson(new ChessGame()), ChessGame.class));
+
+        ChessBoard board = game.getBoard();
+        Assertions.assertEquals(board, GSON.fromJson(GSON.toJson(board), ChessBoard.class));
+    }
+
+    @Test
+    @DisplayName("Legal Moves Round Trip as Hex Masks")
+    public void legalMoves() {
+        LegalMoves start = LegalMoves.of(new ChessGame());
+        String json = GSON.toJson(start);
+        // Knights on b1 and g1 and every pawn can move; masks are hex strings
+        Assertions.assertTrue(json.contains("\"b1\":\"50000\""), json);
+        Assertions.assertFalse(json.contains("promoting"), json);
+        Assertions.assertEquals(start, GSON.fromJson(json, LegalMoves.class));
+
+        for (String fen : new String[]{"r3k3/1P4P1/8/8/8/8/1p4p1/R3K2R w", "r3k3/1P4P1/8/8/8/8/1p4p1/R3K2R b",
+                "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w"}) {
+            LegalMoves legal = LegalMoves.of(Fen.parse(fen));
+            Assertions.assertEquals(legal, GSON.fromJson(GSON.toJson(legal), LegalMoves.class), fen);
+        }
+        assertMalformed("{\"e9\":\"1\"}", LegalMoves.class);
+        assertMalformed("{\"e2\":\"xyz\"}", LegalMoves.class);
+    }
+
+    @Test
+    @DisplayName("Commands Are Read as Their Subclass in One Pass")
+    public void commands() {
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        UserGameCommand makeMove = GSON.fromJson(
+                "{\"move\":\"e2e4\",\"gameID\":3,\"idempotencyKey\":\"k\",\"authToken\":\"t\","
+                        + "\"commandType\":\"MAKE_MOVE\"}", UserGameCommand.class);
+        MakeMoveCommand parsed = Assertions.assertInstanceOf(MakeMoveCommand.class, makeMove,
+                "the move comes before commandType, so it has to be held until the type is known");
+        Assertions.assertEquals(move, parsed.getMove());
+        Assertions.assertEquals(3, parsed.getGameID());
+        Assertions.assertEquals("t", parsed.getAuthToken());
+        Assertions.assertEquals("k", parsed.getIdempotencyKey());
+
+        ConnectCommand connect = Assertions.assertInstanceOf(ConnectCommand.class, GSON.fromJson(
+                "{\"commandType\":\"CONNECT\",\"authToken\":\"t\",\"gameID\":3,\"moveDeltas\":true}",
+                UserGameCommand.class));
+        Assertions.assertTrue(connect.wantsMoveDeltas());
+
+        UserGameCommand leave = GSON.fromJson("{\"commandType\":\"LEAVE\",\"authToken\":\"t\",\"gameID\":3}",
+                UserGameCommand.class);
+        Assertions.assertEquals(UserGameCommand.class, leave.getClass());
+
+        for (UserGameCommand command : new UserGameCommand[]{new MakeMoveCommand("t", 3, move, "k"),
+                new ConnectCommand("t", 3, true), new ConnectCommand("t", 3, false),
+                new UserGameCommand(UserGameCommand.CommandType.RESIGN, "t", 3)}) {
+            UserGameCommand read = GSON.fromJson(GSON.toJson(command), UserGameCommand.class);
+            Assertions.assertEquals(command, read);
+            Assertions.assertEquals(command.getClass(), read.getClass());
+            Assertions.assertEquals(command.getIdempotencyKey(), read.getIdempotencyKey());
+        }
+        Assertions.assertNotEquals(new UserGameCommand(UserGameCommand.CommandType.RESIGN, "t", 3, "a"),
+                new UserGameCommand(UserGameCommand.CommandType.RESIGN, "t", 3, "b"),
+                "commands under different idempotency keys are different commands");
+        MakeMoveCommand moved = (MakeMoveCommand) GSON.fromJson(GSON.toJson(new MakeMoveCommand("t", 3, move)),
+                UserGameCommand.class);
+        Assertions.assertEquals(move, moved.getMove());
+    }
+
+    @Test
+    @DisplayName("Malformed Input Fails as JsonParseException")
+    public void malformed() {
+        assertMalformed("{\"commandType\":\"CONNECT\",\"authToken\":\"t\",\"gameID\":\"abc\"}", UserGameCommand.class);
+        assertMalformed("{\"commandType\":\"CONNECT\",\"authToken\":\"t\",\"gameID\":1.5}", UserGameCommand.class);
+        assertMalformed("{\"commandType\":\"DANCE\",\"authToken\":\"t\",\"gameID\":1}", UserGameCommand.class);
+        assertMalformed("{\"row\":\"x\",\"col\":5}", ChessPosition.class);
+        assertMalformed("{\"row\":9,\"col\":5}", ChessPosition.class);
+        assertMalformed("\"e9\"", ChessPosition.class);
+        assertMalformed("{\"startPosition\":\"b7\",\"endPosition\":\"b8\",\"promotionPiece\":\"DRAGON\"}",
+                ChessMove.class);
+        assertMalformed("{\"startPosition\":\"b7\"}", ChessMove.class);
+        assertMalformed("\"e2e4x\"", ChessMove.class);
+        assertMalformed("\"e2\"", ChessMove.class);
+        assertMalformed("\"x\"", ChessPiece.class);
+        assertMalformed("\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP\"", ChessBoard.class);
+        assertMalformed("\"rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w\"", ChessGame.class);
+    }
+
+    private static void assertMalformed(String json, Class<?> type) {
+        Assertions.assertThrows(JsonParseException.class, () -> GSON.fromJson(json, type), json);
+    }
+}
@@ -0,0 +1,194 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.LegalMoves;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BinaryProtocolTest {
+
+    private static final ChessMove PROMOTION = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1),
+            ChessPiece.PieceType.KNIGHT);
+
+    @Test
+    @DisplayName("Commands Round Trip")
+    public void commandsRoundTrip() {
+        UserGameCommand connect = roundTrip(new UserGameCommand(UserGameCommand.CommandType.CONNECT, "token", 7));
+        Assertions.assertEquals(UserGameCommand.CommandType.CONNECT, connect.getCommandType());
+        Assertions.assertEquals("token", connect.getAuthToken());
+        Assertions.assertEquals(7, connect.getGameID());
+        Assertions.assertNull(connect.getIdempotencyKey());
+
+        UserGameCommand leave = roundTrip(new UserGameCommand(UserGameCommand.CommandType.LEAVE, "tökén", 1, "key"));
+        Assertions.assertEquals("tökén", leave.getAuthToken(), "strings should round trip as UTF-8");
+        Assertions.assertEquals("key", leave.getIdempotencyKey());
+
+        UserGameCommand move = roundTrip(new MakeMoveCommand("token", 3, PROMOTION, "retry-1"));
+        MakeMoveCommand makeMove = Assertions.assertInstanceOf(MakeMoveCommand.class, move);
+        Assertions.assertEquals(PROMOTION, makeMove.getMove());
+        Assertions.assertEquals("retry-1", makeMove.getIdempotencyKey());
+        Assertions.assertNull(((MakeMoveCommand) roundTrip(new MakeMoveCommand("t", 3, PROMOTION)))
+                .getIdempotencyKey());
+    }
+
+    @Test
+    @DisplayName("Messages Round Trip")
+    public void messagesRoundTrip() {
+        ChessGame game = Fen.parse("r3k2r/1P6/8/3pP3/8/8/8/R3K2R w - d6 0 1");
+        LegalMoves legal = LegalMoves.of(game);
+
+        LoadGameMessage load = (LoadGameMessage) roundTrip(new LoadGameMessage(game, 12, legal));
+        Assertions.assertEquals(game, load.getGame());
+        Assertions.assertEquals(12, load.getSequence());
+        Assertions.assertEquals(legal, load.getLegalMoves());
+        Assertions.assertTrue(load.getLegalMoves().contains(PROMOTION));
+
+        LoadGameMessage bare = (LoadGameMessage) roundTrip(new LoadGameMessage(new ChessGame()));
+        Assertions.assertEquals(new ChessGame(), bare.getGame());
+        Assertions.assertNull(bare.getSequence());
+        Assertions.assertNull(bare.getLegalMoves());
+
+        MoveMessage move = (MoveMessage) roundTrip(new MoveMessage(40, PROMOTION));
+        Assertions.assertEquals(40, move.getSequence());
+        Assertions.assertEquals(PROMOTION, move.getMove());
+
+        Assertions.assertEquals("white is in check",
+                ((NotificationMessage) roundTrip(new NotificationMessage("white is in check"))).getMessage());
+        Assertions.assertEquals("Error: unauthorized",
+                ((ErrorMessage) roundTrip(new ErrorMessage("Error: unauthorized"))).getErrorMessage());
+    }
+
+    @Test
+    @DisplayName("Legal Moves Round Trip")
+    public void legalMovesRoundTrip() {
+        for (String fen : new String[]{Fen.STARTING_POSITION, "r3k3/1P4P1/8/8/8/8/1p4p1/R3K2R w",
+                "r3k3/1P4P1/8/8/8/8/1p4p1/R3K2R b", "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w"}) {
+            ChessGame game = Fen.parse(fen);
+            LegalMoves legal = LegalMoves.of(game);
+            LoadGameMessage load = (LoadGameMessage) roundTrip(new LoadGameMessage(game, 1, legal));
+            Assertions.assertEquals(legal, load.getLegalMoves(), fen);
+            Assertions.assertEquals(legal.isEmpty(), load.getLegalMoves().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Truncated Frames Are Rejected")
+    public void truncatedFrames() {
+        byte[] move = bytes(BinaryProtocol.encode(new MakeMoveCommand("token", 3, PROMOTION)));
+        for (int length = 0; length < move.length; length++) {
+            byte[] prefix = Arrays.copyOf(move, length);
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> BinaryProtocol.decodeCommand(ByteBuffer.wrap(prefix)), "MAKE_MOVE cut to " + length);
+        }
+
+        // Everything up to the end of the board is required
+        byte[] load = bytes(BinaryProtocol.encode(new LoadGameMessage(new ChessGame(), 1, null)));
+        for (int length = 0; length < load.length; length++) {
+            byte[] prefix = Arrays.copyOf(load, length);
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> BinaryProtocol.decodeMessage(ByteBuffer.wrap(prefix)), "LOAD_GAME cut to " + length);
+        }
+
+        byte[] legal = bytes(BinaryProtocol.encode(new LoadGameMessage(new ChessGame(), 1,
+                LegalMoves.of(new ChessGame()))));
+        byte[] cut = Arrays.copyOf(legal, legal.length - 3);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.decodeMessage(ByteBuffer.wrap(cut)), "legal moves cut short");
+    }
+
+    @Test
+    @DisplayName("Garbage Frames Are Rejected")
+    public void garbageFrames() {
+        byte[] move = bytes(BinaryProtocol.encode(new MoveMessage(1, PROMOTION)));
+
+        byte[] version = move.clone();
+        version[0] = BinaryProtocol.VERSION + 1;
+        assertMalformed(version, "wrong version");
+
+        byte[] type = move.clone();
+        type[1] = 9;
+        assertMalformed(type, "unknown message type");
+
+        byte[] negativeType = move.clone();
+        negativeType[1] = -1;
+        assertMalformed(negativeType, "negative message type");
+
+        assertMalformed(Arrays.copyOf(move, move.length + 1), "trailing byte");
+
+        byte[] notification = bytes(BinaryProtocol.encode(new NotificationMessage("hi")));
+        notification[3] = 100;
+        assertMalformed(notification, "string longer than the frame");
+
+        byte[] load = bytes(BinaryProtocol.encode(new LoadGameMessage(new ChessGame(), 1, null)));
+        load[6] = 5;
+        assertMalformed(load, "no such side to move");
+        load[6] = 0;
+        load[7] = 0x77;
+        assertMalformed(load, "no such piece");
+    }
+
+    @Test
+    @DisplayName("Random Frames Only Fail as Malformed")
+    public void randomFrames() {
+        Random random = new Random(46);
+        for (int i = 0; i < 20_000; i++) {
+            byte[] frame = new byte[random.nextInt(64)];
+            random.nextBytes(frame);
+            if (frame.length > 1) {
+                frame[0] = BinaryProtocol.VERSION;
+                frame[1] = (byte) random.nextInt(5);
+            }
+            try {
+                BinaryProtocol.decodeMessage(ByteBuffer.wrap(frame));
+            } catch (IllegalArgumentException expected) {
+                // Fine; anything else escaping would reach the socket handler
+            }
+            try {
+                BinaryProtocol.decodeCommand(ByteBuffer.wrap(frame));
+            } catch (IllegalArgumentException expected) {
+                // Fine
+            }
+        }
+    }
+
+    private static UserGameCommand roundTrip(UserGameCommand command) {
+        ByteBuffer frame = BinaryProtocol.encode(command);
+        UserGameCommand decoded = BinaryProtocol.decodeCommand(frame);
+        Assertions.assertFalse(frame.hasRemaining(), "the whole frame should be read");
+        Assertions.assertEquals(command, decoded);
+        return decoded;
+    }
+
+    private static ServerMessage roundTrip(ServerMessage message) {
+        ServerMessage decoded = BinaryProtocol.decodeMessage(BinaryProtocol.encode(message));
+        Assertions.assertEquals(message.getServerMessageType(), decoded.getServerMessageType());
+        return decoded;
+    }
+
+    private static void assertMalformed(byte[] frame, String description) {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.decodeMessage(ByteBuffer.wrap(frame)), description);
+    }
+
+    private static byte[] bytes(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        return bytes;
+    }
+}
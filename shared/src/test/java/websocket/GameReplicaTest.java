@@ -0,0 +1,111 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.LegalMoves;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+
+public class GameReplicaTest {
+
+    private static final ChessMove E4 = move(2, 5, 4, 5);
+    private static final ChessMove E5 = move(7, 5, 5, 5);
+    private static final ChessMove NF3 = move(1, 7, 3, 6);
+    private static final ChessMove NC6 = move(8, 2, 6, 3);
+
+    @Test
+    @DisplayName("Moves Apply in Sequence Order")
+    public void inOrder() throws InvalidMoveException {
+        GameReplica replica = new GameReplica();
+        replica.load(new LoadGameMessage(new ChessGame(), 0, null));
+
+        Assertions.assertTrue(replica.apply(new MoveMessage(1, E4)));
+        Assertions.assertTrue(replica.apply(new MoveMessage(2, E5)));
+
+        Assertions.assertEquals(2, replica.getSequence());
+        Assertions.assertEquals(play(E4, E5), replica.getGame());
+        Assertions.assertTrue(replica.getLegalMoves().contains(NF3), "legal moves should be worked out for the copy");
+    }
+
+    @Test
+    @DisplayName("Duplicate or Older Move Is Ignored")
+    public void duplicate() throws InvalidMoveException {
+        GameReplica replica = new GameReplica();
+        replica.load(new LoadGameMessage(new ChessGame(), 0, null));
+        replica.apply(new MoveMessage(1, E4));
+        replica.apply(new MoveMessage(2, E5));
+
+        Assertions.assertTrue(replica.apply(new MoveMessage(2, E5)), "a repeated move is already applied");
+        Assertions.assertTrue(replica.apply(new MoveMessage(1, E4)));
+        Assertions.assertEquals(2, replica.getSequence());
+        Assertions.assertEquals(play(E4, E5), replica.getGame(), "nothing should be played twice");
+    }
+
+    @Test
+    @DisplayName("Gap in the Sequence Asks for a Resync")
+    public void gap() throws InvalidMoveException {
+        GameReplica replica = new GameReplica();
+        Assertions.assertFalse(replica.apply(new MoveMessage(1, E4)), "there is nothing to apply a move to yet");
+        Assertions.assertNull(replica.getGame());
+        Assertions.assertNull(replica.getLegalMoves());
+
+        replica.load(new LoadGameMessage(new ChessGame(), 0, null));
+        replica.apply(new MoveMessage(1, E4));
+        Assertions.assertFalse(replica.apply(new MoveMessage(3, NF3)), "move 2 was missed");
+        Assertions.assertEquals(1, replica.getSequence());
+        Assertions.assertEquals(play(E4), replica.getGame());
+    }
+
+    @Test
+    @DisplayName("Move the Copy Rejects Asks for a Resync")
+    public void rejected() throws InvalidMoveException {
+        GameReplica replica = new GameReplica();
+        replica.load(new LoadGameMessage(new ChessGame(), 0, null));
+        replica.apply(new MoveMessage(1, E4));
+
+        // White to move on the server, but the copy has black to move
+        Assertions.assertFalse(replica.apply(new MoveMessage(2, NF3)));
+        Assertions.assertEquals(1, replica.getSequence());
+        Assertions.assertEquals(play(E4), replica.getGame());
+    }
+
+    @Test
+    @DisplayName("LOAD_GAME Replaces the Copy and Its Sequence")
+    public void reload() throws InvalidMoveException {
+        GameReplica replica = new GameReplica();
+        replica.load(new LoadGameMessage(new ChessGame(), 0, null));
+        replica.apply(new MoveMessage(1, E4));
+        Assertions.assertFalse(replica.apply(new MoveMessage(4, NF3)));
+
+        ChessGame resynced = play(E4, E5, NF3);
+        LegalMoves sent = LegalMoves.of(resynced);
+        replica.load(new LoadGameMessage(resynced, 3, sent));
+        Assertions.assertEquals(3, replica.getSequence());
+        Assertions.assertSame(sent, replica.getLegalMoves(), "the server's legal moves should be used as sent");
+
+        Assertions.assertTrue(replica.apply(new MoveMessage(4, NC6)));
+        Assertions.assertEquals(play(E4, E5, NF3, NC6), replica.getGame());
+        Assertions.assertNotSame(sent, replica.getLegalMoves(), "legal moves should change with the position");
+
+        replica.load(new LoadGameMessage(new ChessGame()));
+        Assertions.assertEquals(0, replica.getSequence(), "a LOAD_GAME without a sequence starts over");
+        Assertions.assertTrue(replica.apply(new MoveMessage(1, E4)));
+    }
+
+    private static ChessGame play(ChessMove... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+        }
+        return game;
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import chess.*;
+import chess.engine.Analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures bulk analysis throughput in positions per second, first on a
+ * single worker and then on one worker per core
+ * <p>
+ * Usage: {@code AnalyzerBenchmark [positions] [depth]}
+ */
+public class AnalyzerBenchmark {
+
+    public static void main(String[] args) throws InvalidMoveException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        List<ChessGame> positions = randomPositions(count, new Random(240));
+        Analyzer.Budget budget = new Analyzer.Budget(depth, Long.MAX_VALUE);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            Analyzer.Report report = new Analyzer(pool).analyzeAll(positions, budget, analysis -> {
+            });
+            pool.shutdown();
+            System.out.printf("%d thread(s): %d positions, %d nodes, %d ms, %.1f positions/s%n", threads,
+                    report.positions(), report.nodes(), report.elapsedMillis(), report.positionsPerSecond());
+        }
+    }
+
+    /**
+     * Plays random moves from the starting position to get a spread of
+     * opening and middlegame positions
+     */
+    static List<ChessGame> randomPositions(int count, Random random) throws InvalidMoveException {
+        List<ChessGame> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            ChessGame game = new ChessGame();
+            int plies = 4 + random.nextInt(30);
+            for (int ply = 0; ply < plies; ply++) {
+                List<ChessMove> moves = new ArrayList<>(game.allValidMoves(game.getTeamTurn()));
+                if (moves.isEmpty()) {
+                    break;
+                }
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            positions.add(game);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import dataaccess.ConnectionPool;
+import service.TokenSigner;
+
+import java.util.UUID;
+
+/**
+ * Measures the cost of authenticating one request, checking a signed token
+ * in memory and, when database details are given, looking a random token up
+ * in an auth table
+ * <p>
+ * Usage: {@code AuthBenchmark [host port user password database] [requests]}
+ */
+public class AuthBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        boolean database = args.length >= 5;
+        int requests = args.length == 1 || args.length == 6 ? Integer.parseInt(args[args.length - 1]) : 1_000_000;
+
+        var signer = new TokenSigner(new TokenSigner.Settings(true, "benchmark", 3_600_000, 3_600_000));
+        String token = signer.issue("benchmark-user");
+        // Warm up the JIT before timing
+        for (int i = 0; i < 100_000; i++) {
+            signer.verify(token);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            if (signer.verify(token) == null) {
+                throw new IllegalStateException("token did not verify");
+            }
+        }
+        report("Signed token", requests, System.nanoTime() - start);
+
+        if (database) {
+            lookup(args, Math.min(requests, 20_000));
+        }
+    }
+
+    private static void lookup(String[] args, int requests) throws Exception {
+        String url = String.format("jdbc:mysql://%s:%s?useServerPrepStmts=true", args[0], args[1]);
+        var settings = new ConnectionPool.Settings(1, 4, 300_000, 5_000, 30_000, 32);
+        try (var pool = new ConnectionPool(url, args[2], args[3], args[4], settings)) {
+            String token = UUID.randomUUID().toString();
+            try (var conn = pool.borrow()) {
+                try (var statement = conn.prepareStatement(
+                        "CREATE TEMPORARY TABLE IF NOT EXISTS auth_benchmark (authToken VARCHAR(255) PRIMARY KEY, "
+                                + "username VARCHAR(255) NOT NULL)")) {
+                    statement.executeUpdate();
+                }
+                try (var statement = conn.prepareStatement("INSERT INTO auth_benchmark VALUES (?, ?)")) {
+                    statement.setString(1, token);
+                    statement.setString(2, "benchmark-user");
+                    statement.executeUpdate();
+                }
+
+                // A temporary table is only visible on the connection that made it
+                long start = System.nanoTime();
+                for (int i = 0; i < requests; i++) {
+                    try (var statement = conn.prepareStatement(
+                            "SELECT username FROM auth_benchmark WHERE authToken = ?")) {
+                        statement.setString(1, token);
+                        try (var rs = statement.executeQuery()) {
+                            if (!rs.next()) {
+                                throw new IllegalStateException("token not found");
+                            }
+                        }
+                    }
+                }
+                report("Database lookup", requests, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static void report(String name, int requests, long nanos) {
+        System.out.printf("%-16s %d requests: %.2f us/request%n", name, requests, nanos / 1000.0 / requests);
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import dataaccess.ConnectionPool;
+import dataaccess.DataAccessException;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares requests per second for a DAO-style query when every request
+ * opens its own connection against borrowing one from a {@link ConnectionPool}
+ * <p>
+ * Usage: {@code ConnectionPoolBenchmark host port user password database [threads] [seconds]}
+ */
+public class ConnectionPoolBenchmark {
+
+    private interface ConnectionSource {
+        Connection get() throws SQLException, DataAccessException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = String.format("jdbc:mysql://%s:%s", args[0], args[1]);
+        String user = args[2];
+        String password = args[3];
+        String database = args[4];
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : 16;
+        int seconds = args.length > 6 ? Integer.parseInt(args[6]) : 10;
+
+        run("DriverManager", threads, seconds, () -> {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            connection.setCatalog(database);
+            return connection;
+        });
+
+        var settings = new ConnectionPool.Settings(2, threads, 300_000, 5_000, 30_000, 32);
+        try (var pool = new ConnectionPool(url + "?useServerPrepStmts=true", user, password, database, settings)) {
+            run("ConnectionPool", threads, seconds, pool::borrow);
+            System.out.println(pool.stats());
+        }
+    }
+
+    private static void run(String name, int threads, int seconds, ConnectionSource source)
+            throws InterruptedException {
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                while (System.currentTimeMillis() < end) {
+                    try (var connection = source.get();
+                         var statement = connection.prepareStatement("SELECT 1");
+                         var rs = statement.executeQuery()) {
+                        rs.next();
+                        requests.incrementAndGet();
+                    } catch (SQLException | DataAccessException ex) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("%-15s %d threads: %.0f requests/s, %d errors%n", name, threads,
+                requests.get() / (double) seconds, errors.get());
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import chess.Fen;
+import chess.engine.MateSolver;
+
+import java.util.List;
+
+/**
+ * Solves a fixed set of mate puzzles and reports the result, node count and
+ * solve time of each
+ * <p>
+ * Usage: {@code MateBenchmark [nodeBudget]}
+ */
+public class MateBenchmark {
+
+    private record Puzzle(String name, String fen, int moves) {
+    }
+
+    private static final List<Puzzle> PUZZLES = List.of(
+            new Puzzle("Back rank, mate in 1", "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", 1),
+            new Puzzle("Scholar's mate, mate in 1",
+                    "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w - - 0 1", 1),
+            new Puzzle("Rook and king, mate in 1", "k7/8/1K6/8/8/8/8/7R w - - 0 1", 1),
+            new Puzzle("Rook and king, mate in 2", "k7/8/2K5/8/8/8/8/7R w - - 0 1", 2),
+            new Puzzle("Queen and king, mate in 1", "7k/8/5K2/8/8/8/8/6Q1 w - - 0 1", 1),
+            new Puzzle("Rook and king, mate within 3", "2k5/8/3K4/8/8/8/8/7R w - - 0 1", 3),
+            new Puzzle("Rook and king, no mate in 1", "k7/8/2K5/8/8/8/8/7R w - - 0 1", 1));
+
+    public static void main(String[] args) {
+        long nodeBudget = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        MateSolver solver = new MateSolver();
+        long totalMillis = 0;
+        for (Puzzle puzzle : PUZZLES) {
+            MateSolver.Result result = solver.solve(Fen.parse(puzzle.fen()), puzzle.moves(), nodeBudget);
+            totalMillis += result.elapsedMillis();
+            System.out.printf("%-30s %-8s %8d nodes %6d ms  %s%n", puzzle.name(), result.status(),
+                    result.nodes(), result.elapsedMillis(), result.principalVariation());
+        }
+        System.out.printf("Total: %d ms%n", totalMillis);
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.LegalMoves;
+import com.google.gson.Gson;
+import json.GsonFactory;
+import websocket.BinaryProtocol;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Compares how many websocket commands and messages per second can be
+ * encoded and decoded as plain Gson JSON, as JSON through the
+ * {@link GsonFactory} adapters, and in the binary protocol
+ * <p>
+ * Usage: {@code ProtocolBenchmark [iterations]}
+ */
+public class ProtocolBenchmark {
+
+    private static final Gson GSON = new Gson();
+    private static final Gson COMPACT = GsonFactory.gson();
+
+    // Results are stored here so the timed loops are not optimized away
+    private static Object sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        var command = new MakeMoveCommand("0b4bc1a4-5cf0-4a4e-9a1c-3f8f3b6f5d2e", 42, move);
+        var moveMessage = new MoveMessage(17, move);
+        ChessGame game = new ChessGame();
+        var loadGame = new LoadGameMessage(game, 17, LegalMoves.of(game));
+
+        String commandJson = GSON.toJson(command);
+        String commandCompact = COMPACT.toJson(command);
+        ByteBuffer commandFrame = BinaryProtocol.encode(command);
+        size("MAKE_MOVE", commandJson, commandCompact, commandFrame);
+        size("MOVE", GSON.toJson(moveMessage), COMPACT.toJson(moveMessage), BinaryProtocol.encode(moveMessage));
+        size("LOAD_GAME", GSON.toJson(loadGame), COMPACT.toJson(loadGame), BinaryProtocol.encode(loadGame));
+        System.out.println();
+
+        // Plain Gson has to parse twice: once to find the type, again as the subclass
+        compare("Decode MAKE_MOVE", iterations, () -> {
+            UserGameCommand parsed = GSON.fromJson(commandJson, UserGameCommand.class);
+            return parsed.getCommandType() == UserGameCommand.CommandType.MAKE_MOVE
+                    ? GSON.fromJson(commandJson, MakeMoveCommand.class) : parsed;
+        }, () -> COMPACT.fromJson(commandCompact, UserGameCommand.class),
+                () -> BinaryProtocol.decodeCommand(commandFrame.duplicate()));
+        compare("Encode MOVE", iterations, () -> GSON.toJson(moveMessage), () -> COMPACT.toJson(moveMessage),
+                () -> BinaryProtocol.encode(moveMessage));
+        compare("Encode LOAD_GAME", iterations / 10, () -> GSON.toJson(loadGame), () -> COMPACT.toJson(loadGame),
+                () -> BinaryProtocol.encode(loadGame));
+
+        String loadJson = GSON.toJson(loadGame);
+        String loadCompact = COMPACT.toJson(loadGame);
+        ByteBuffer loadFrame = BinaryProtocol.encode(loadGame);
+        compare("Decode LOAD_GAME", iterations / 10, () -> GSON.fromJson(loadJson, LoadGameMessage.class),
+                () -> COMPACT.fromJson(loadCompact, LoadGameMessage.class),
+                () -> BinaryProtocol.decodeMessage(loadFrame.duplicate()));
+    }
+
+    private static void size(String name, String json, String compact, ByteBuffer frame) {
+        System.out.printf("%-10s JSON %5d bytes, compact JSON %4d bytes, binary %4d bytes%n", name,
+                json.getBytes(StandardCharsets.UTF_8).length, compact.getBytes(StandardCharsets.UTF_8).length,
+                frame.remaining());
+    }
+
+    private static void compare(String name, int iterations, Supplier<Object> json, Supplier<Object> compact,
+                                Supplier<Object> binary) {
+        double jsonRate = rate(iterations, json);
+        double compactRate = rate(iterations, compact);
+        double binaryRate = rate(iterations, binary);
+        System.out.printf("%-17s JSON %,11.0f/s, compact JSON %,11.0f/s (%.1fx), binary %,12.0f/s (%.1fx)%n",
+                name, jsonRate, compactRate, compactRate / jsonRate, binaryRate, binaryRate / jsonRate);
+    }
+
+    private static double rate(int iterations, Supplier<Object> work) {
+        // Warm up the JIT before timing
+        for (int i = 0; i < Math.min(iterations, 100_000); i++) {
+            sink = work.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = work.get();
+        }
+        return iterations * 1e9 / (System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import dataaccess.DatabaseManager;
+import server.Server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load tests the server on platform threads and then on virtual threads,
+ * reporting sustained requests per second and p99 latency for an endpoint
+ * that blocks on the database
+ * <p>
+ * The server uses the database in db.properties. Usage:
+ * {@code ServerLoadBenchmark [clients] [seconds] [path]}
+ */
+public class ServerLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String path = args.length > 2 ? args[2] : "/health";
+
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            Server server = new Server(virtualThreads);
+            int port = server.run(0);
+            try {
+                run(virtualThreads ? "Virtual threads" : "Platform threads", port, path, clients, seconds);
+            } finally {
+                server.stop();
+                DatabaseManager.closePool();
+            }
+        }
+    }
+
+    private static void run(String name, int port, String path, int clients, int seconds) throws Exception {
+        HttpClient http = HttpClient.newBuilder().executor(Runnable::run).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+
+        // Warm up, then measure
+        drive(http, request, clients, 2);
+        AtomicLong errors = new AtomicLong();
+        long[] latencies = drive(http, request, clients, seconds, errors);
+
+        Arrays.sort(latencies);
+        long p99 = latencies.length == 0 ? 0 : latencies[(int) Math.min(latencies.length - 1, latencies.length * 0.99)];
+        System.out.printf("%-16s %d clients: %.0f requests/s, p99 %.1f ms, %d non-200 responses%n", name, clients,
+                latencies.length / (double) seconds, p99 / 1e6, errors.get());
+    }
+
+    private static long[] drive(HttpClient http, HttpRequest request, int clients, int seconds) throws Exception {
+        return drive(http, request, clients, seconds, new AtomicLong());
+    }
+
+    /**
+     * Runs closed-loop clients, each sending its next request as soon as the
+     * last one is answered
+     *
+     * @return latency of every answered request, in nanoseconds
+     */
+    private static long[] drive(HttpClient http, HttpRequest request, int clients, int seconds, AtomicLong errors)
+            throws Exception {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        long[][] perClient = new long[clients][];
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            workers.add(Thread.ofVirtual().start(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                perClient[client] = Arrays.copyOf(latencies, count);
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return Arrays.stream(perClient).flatMapToLong(Arrays::stream).toArray();
+    }
+}
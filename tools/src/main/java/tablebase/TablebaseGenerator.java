@@ -0,0 +1,293 @@
+package tablebase;
+
+import chess.*;
+import chess.engine.Tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates king and piece against king tablebases by retrograde analysis
+ * over the shared chess rules, and writes them in the format read by
+ * {@link Tablebase}
+ * <p>
+ * Every position in a table is first expanded once into its successor
+ * positions. Results are then propagated backwards from the checkmates one
+ * ply per pass: a position is won in n plies once some move reaches a position
+ * lost in n - 1 plies, and lost in n plies once every move reaches a won
+ * position. Positions left over when nothing changes any more are draws.
+ * Both phases are split across a fork/join pool.
+ */
+public class TablebaseGenerator {
+
+    private static final int UNRESOLVED = -1;
+    private static final int THRESHOLD = 4096;
+
+    private final ChessPiece.PieceType pieceType;
+    private final Map<ChessPiece.PieceType, byte[]> promotionTables;
+    private final ForkJoinPool pool;
+
+    // Successors of each position: an index into this table, or -(1 + value)
+    // for a successor whose result is already known (a capture or a promotion)
+    private final int[][] successors = new int[Tablebase.TABLE_SIZE][];
+    private final int[] values = new int[Tablebase.TABLE_SIZE];
+
+    /**
+     * @param pieceType the strong side's extra piece
+     * @param promotionTables finished tables to look up positions reached by promotion
+     * @param pool pool to run the generation on
+     */
+    public TablebaseGenerator(ChessPiece.PieceType pieceType, Map<ChessPiece.PieceType, byte[]> promotionTables,
+                              ForkJoinPool pool) {
+        this.pieceType = pieceType;
+        this.promotionTables = promotionTables;
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "tablebases");
+        Files.createDirectories(directory);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        byte[] queen = generate(ChessPiece.PieceType.QUEEN, Map.of(), pool, directory);
+        byte[] rook = generate(ChessPiece.PieceType.ROOK, Map.of(), pool, directory);
+        generate(ChessPiece.PieceType.PAWN,
+                Map.of(ChessPiece.PieceType.QUEEN, queen, ChessPiece.PieceType.ROOK, rook), pool, directory);
+    }
+
+    private static byte[] generate(ChessPiece.PieceType type, Map<ChessPiece.PieceType, byte[]> promotionTables,
+                                   ForkJoinPool pool, Path directory) throws IOException {
+        long start = System.currentTimeMillis();
+        byte[] table = new TablebaseGenerator(type, promotionTables, pool).generate();
+        Files.write(directory.resolve(Tablebase.fileName(type)), table);
+
+        int wins = 0;
+        int losses = 0;
+        int draws = 0;
+        int longest = 0;
+        for (byte value : table) {
+            Tablebase.Result result = Tablebase.decode(value);
+            if (result == null) {
+                continue;
+            }
+            switch (result.outcome()) {
+                case WIN -> wins++;
+                case LOSS -> losses++;
+                case DRAW -> draws++;
+            }
+            longest = Math.max(longest, result.plies());
+        }
+        System.out.printf("%s: %d wins, %d losses, %d draws, longest mate %d plies, %d ms%n",
+                Tablebase.fileName(type), wins, losses, draws, longest, System.currentTimeMillis() - start);
+        return table;
+    }
+
+    /**
+     * Runs the retrograde analysis
+     *
+     * @return the finished table
+     */
+    public byte[] generate() {
+        pool.invoke(new Expand(0, Tablebase.TABLE_SIZE));
+
+        int longestKnown = 0;
+        for (int[] moves : successors) {
+            if (moves == null) {
+                continue;
+            }
+            for (int successor : moves) {
+                if (successor < 0) {
+                    Tablebase.Result result = Tablebase.decode((byte) (-successor - 1));
+                    longestKnown = Math.max(longestKnown, result.plies());
+                }
+            }
+        }
+
+        AtomicBoolean changed = new AtomicBoolean(true);
+        for (int ply = 1; ply < Tablebase.LOSS - 1 && (changed.get() || ply <= longestKnown + 1); ply++) {
+            changed.set(false);
+            pool.invoke(new Propagate(0, Tablebase.TABLE_SIZE, ply, changed));
+        }
+
+        byte[] table = new byte[Tablebase.TABLE_SIZE];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = values[i] == UNRESOLVED ? Tablebase.DRAW : (byte) values[i];
+        }
+        return table;
+    }
+
+    /**
+     * Sets up one position from its index, marking illegal positions,
+     * checkmates and stalemates, and records the successors of the rest
+     */
+    private void expand(int index) {
+        boolean strongToMove = index < Tablebase.TABLE_SIZE / 2;
+        int strongKing = index / (64 * 64) % 64;
+        int weakKing = index / 64 % 64;
+        int piece = index % 64;
+
+        if (strongKing == weakKing || strongKing == piece || weakKing == piece
+                || Math.abs(strongKing / 8 - weakKing / 8) <= 1 && Math.abs(strongKing % 8 - weakKing % 8) <= 1
+                || pieceType == ChessPiece.PieceType.PAWN && (piece < 8 || piece >= 56)) {
+            values[index] = Byte.toUnsignedInt(Tablebase.ILLEGAL);
+            return;
+        }
+
+        ChessBoard board = new ChessBoard();
+        board.addPiece(position(strongKing), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(position(weakKing), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(position(piece), new ChessPiece(ChessGame.TeamColor.WHITE, pieceType));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        ChessGame.TeamColor toMove = strongToMove ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessGame.TeamColor waiting = strongToMove ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        game.setTeamTurn(toMove);
+
+        if (game.isInCheck(waiting)) {
+            values[index] = Byte.toUnsignedInt(Tablebase.ILLEGAL);
+            return;
+        }
+        Collection<ChessMove> moves = game.allValidMoves(toMove);
+        if (moves.isEmpty()) {
+            values[index] = game.isInCheck(toMove) ? Tablebase.LOSS : Tablebase.DRAW;
+            return;
+        }
+
+        int[] next = new int[moves.size()];
+        int i = 0;
+        for (ChessMove move : moves) {
+            next[i++] = successor(board, move, !strongToMove);
+        }
+        successors[index] = next;
+        values[index] = UNRESOLVED;
+    }
+
+    private int successor(ChessBoard board, ChessMove move, boolean strongToMove) {
+        ChessBoard after = new ChessBoard(board);
+        ChessPiece moving = after.getPiece(move.getStartPosition());
+        after.addPiece(move.getStartPosition(), null);
+        after.addPiece(move.getEndPosition(), move.getPromotionPiece() == null ? moving
+                : new ChessPiece(moving.getTeamColor(), move.getPromotionPiece()));
+
+        int strongKing = square(after.getPiecePositions(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        int weakKing = square(after.getPiecePositions(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        if (after.getTeamPiecePositions(ChessGame.TeamColor.WHITE).size() == 1) {
+            // The weak king took the extra piece
+            return known(Tablebase.DRAW);
+        }
+        if (move.getPromotionPiece() == null) {
+            return Tablebase.index(strongKing, weakKing, square(after.getPiecePositions(ChessGame.TeamColor.WHITE,
+                    pieceType)), strongToMove);
+        }
+        byte[] promoted = promotionTables.get(move.getPromotionPiece());
+        if (promoted == null) {
+            // King and minor piece against king cannot force mate
+            return known(Tablebase.DRAW);
+        }
+        int promotedPiece = square(after.getPiecePositions(ChessGame.TeamColor.WHITE, move.getPromotionPiece()));
+        return known(promoted[Tablebase.index(strongKing, weakKing, promotedPiece, strongToMove)]);
+    }
+
+    /**
+     * Resolves one position if its result is decided at the given ply
+     */
+    private boolean propagate(int index, int ply) {
+        if (values[index] != UNRESOLVED) {
+            return false;
+        }
+        int fastestWin = Integer.MAX_VALUE;
+        int slowestLoss = 0;
+        boolean allLost = true;
+        for (int successor : successors[index]) {
+            int value = successor < 0 ? -successor - 1 : values[successor];
+            Tablebase.Result result = value == UNRESOLVED ? null : Tablebase.decode((byte) value);
+            if (result != null && result.outcome() == Tablebase.Outcome.LOSS && result.plies() < ply) {
+                fastestWin = Math.min(fastestWin, result.plies() + 1);
+            }
+            if (result != null && result.outcome() == Tablebase.Outcome.WIN && result.plies() < ply) {
+                slowestLoss = Math.max(slowestLoss, result.plies() + 1);
+            } else {
+                allLost = false;
+            }
+        }
+        if (fastestWin != Integer.MAX_VALUE) {
+            values[index] = fastestWin;
+            return true;
+        } else if (allLost) {
+            values[index] = Tablebase.LOSS + slowestLoss;
+            return true;
+        }
+        return false;
+    }
+
+    private static int known(byte value) {
+        return -Byte.toUnsignedInt(value) - 1;
+    }
+
+    private static ChessPosition position(int square) {
+        return new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
+
+    private static int square(Collection<ChessPosition> positions) {
+        ChessPosition position = positions.iterator().next();
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    private class Expand extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        Expand(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int index = from; index < to; index++) {
+                    expand(index);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Expand(from, mid), new Expand(mid, to));
+            }
+        }
+    }
+
+    private class Propagate extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int ply;
+        private final AtomicBoolean changed;
+
+        Propagate(int from, int to, int ply, AtomicBoolean changed) {
+            this.from = from;
+            this.to = to;
+            this.ply = ply;
+            this.changed = changed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                boolean any = false;
+                for (int index = from; index < to; index++) {
+                    any |= propagate(index, ply);
+                }
+                if (any) {
+                    changed.set(true);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Propagate(from, mid, ply, changed), new Propagate(mid, to, ply, changed));
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package tablebase;
+
+import chess.ChessPiece;
+import chess.Fen;
+import chess.engine.Tablebase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Generates the KQK and KRK tables once and probes positions whose results
+ * are known
+ */
+public class TablebaseGeneratorTest {
+
+    @TempDir
+    static Path directory;
+
+    private static byte[] queen;
+    private static byte[] rook;
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        queen = new TablebaseGenerator(ChessPiece.PieceType.QUEEN, Map.of(), pool).generate();
+        rook = new TablebaseGenerator(ChessPiece.PieceType.ROOK, Map.of(), pool).generate();
+        Files.write(directory.resolve(Tablebase.fileName(ChessPiece.PieceType.QUEEN)), queen);
+        Files.write(directory.resolve(Tablebase.fileName(ChessPiece.PieceType.ROOK)), rook);
+        tablebase = Tablebase.open(directory);
+    }
+
+    @Test
+    @DisplayName("KQK Mate in One and Mated")
+    public void queenMate() {
+        Assertions.assertTrue(tablebase.covers(ChessPiece.PieceType.QUEEN));
+        Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1),
+                tablebase.probe(Fen.parse("7k/Q7/6K1/8/8/8/8/8 w - - 0 1")), "Qg7# or Qa8#");
+        Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.LOSS, 0),
+                tablebase.probe(Fen.parse("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1")), "already mated");
+        Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.DRAW, 0),
+                tablebase.probe(Fen.parse("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1")), "stalemate");
+    }
+
+    @Test
+    @DisplayName("KRK Mates and Draws")
+    public void rookMate() {
+        Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1),
+                tablebase.probe(Fen.parse("6k1/8/6K1/8/8/8/8/R7 w - - 0 1")), "Ra8#");
+        Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.DRAW, 0),
+                tablebase.probe(Fen.parse("7K/8/8/8/8/2k5/1R6/8 b - - 0 1")), "the king takes the rook");
+        // Black as the strong side is mirrored onto the white table
+        Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1),
+                tablebase.probe(Fen.parse("r7/8/8/8/8/6k1/8/6K1 b - - 0 1")), "Ra1#");
+    }
+
+    @Test
+    @DisplayName("Longest Mates Match the Known Lengths")
+    public void longestMates() {
+        // Mate in 10 and mate in 16 with the strong side to move, one ply more with the weak side to move
+        Assertions.assertEquals(20, longestLoss(queen));
+        Assertions.assertEquals(19, longestWin(queen));
+        Assertions.assertEquals(32, longestLoss(rook));
+        Assertions.assertEquals(31, longestWin(rook));
+    }
+
+    private static int longestWin(byte[] table) {
+        return longest(table, Tablebase.Outcome.WIN);
+    }
+
+    private static int longestLoss(byte[] table) {
+        return longest(table, Tablebase.Outcome.LOSS);
+    }
+
+    private static int longest(byte[] table, Tablebase.Outcome outcome) {
+        int longest = 0;
+        for (byte value : table) {
+            Tablebase.Result result = Tablebase.decode(value);
+            if (result != null && result.outcome() == outcome) {
+                longest = Math.max(longest, result.plies());
+            }
+        }
+        return longest;
+    }
+}